@@ -754,6 +754,7 @@ static jclass CLS_Status = NULL;
 static jclass CLS_Variant = NULL;
 static jclass CLS_BusAttachment = NULL;
 static jclass CLS_SessionOpts = NULL;
+static jclass CLS_MethodCallFuture = NULL;
 
 static jmethodID MID_Integer_intValue = NULL;
 static jmethodID MID_Object_equals = NULL;
@@ -762,6 +763,8 @@ static jmethodID MID_MsgArg_marshal = NULL;
 static jmethodID MID_MsgArg_marshal_array = NULL;
 static jmethodID MID_MsgArg_unmarshal = NULL;
 static jmethodID MID_MsgArg_unmarshal_array = NULL;
+static jmethodID MID_MethodCallFuture_replied = NULL;
+static jmethodID MID_MethodCallFuture_failed = NULL;
 
 
 // predeclare some methods as necessary
@@ -955,6 +958,20 @@ JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM* vm,
         }
         CLS_SessionOpts = (jclass)env->NewGlobalRef(clazz);
 
+        clazz = env->FindClass("org/alljoyn/bus/MethodCallFuture");
+        if (!clazz) {
+            return JNI_ERR;
+        }
+        CLS_MethodCallFuture = (jclass)env->NewGlobalRef(clazz);
+        MID_MethodCallFuture_replied = env->GetMethodID(CLS_MethodCallFuture, "replied", "(J)V");
+        if (!MID_MethodCallFuture_replied) {
+            return JNI_ERR;
+        }
+        MID_MethodCallFuture_failed = env->GetMethodID(CLS_MethodCallFuture, "failed", "(Ljava/lang/String;Ljava/lang/String;)V");
+        if (!MID_MethodCallFuture_failed) {
+            return JNI_ERR;
+        }
+
 #if defined (QCC_OS_ANDROID) && defined(AJ_ENABLE_PROXIMITY_SCANNER)
 
         clazz = env->FindClass("org/alljoyn/bus/ScanResultMessage");
@@ -1250,10 +1267,10 @@ class JBusAttachment : public BusAttachment {
     Mutex baCommonLock;
 
     /**
-     * A mutex to serialize method call, property, etc., access in any attached
-     * ProxyBusObject.  This is a blunt instrument, but support for
-     * multi-threading on client and service sides has not been completely
-     * implemented, so we simply disallow it for now.
+     * A mutex to serialize the lazy addition of interfaces to the attached
+     * ProxyBusObjects, which creates the interface descriptions on this bus
+     * attachment.  It is taken at most once per proxy and interface, never
+     * while a method call or property access is in progress.
      */
     Mutex baProxyLock;
 
@@ -2078,10 +2095,34 @@ class JProxyBusObject : public ProxyBusObject {
   public:
     JProxyBusObject(JBusAttachment* jbap, const char* endpoint, const char* path, SessionId sessionId, bool secure);
     ~JProxyBusObject();
+    void AddPendingReply(jobject jreply);
+    bool RemovePendingReply(jobject jreply);
+    void MethodReplyCB(Message& msg, void* context);
+    const InterfaceDescription* ResolveInterface(jobject thiz, jobject jbus, jstring jinterfaceName,
+                                                 const char* interfaceName);
+    const InterfaceDescription::Member* ResolveMember(jobject thiz, jobject jbus, jstring jinterfaceName,
+                                                      const char* interfaceName, const char* memberName);
     JBusAttachment* busPtr;
   private:
     JProxyBusObject(const JProxyBusObject& other);
     JProxyBusObject& operator =(const JProxyBusObject& other);
+
+    /*
+     * The interfaces and members resolved by calls on this proxy, keyed by
+     * interface name and by interface name and member name.  Resolution,
+     * including the lazy addition of the interface, happens once per proxy,
+     * after which a call only takes resolveLock for a map lookup.
+     */
+    map<String, const InterfaceDescription*> interfaces;
+    map<String, const InterfaceDescription::Member*> members;
+    Mutex resolveLock;
+
+    /*
+     * Global references to the Java MethodCallFuture objects of asynchronous
+     * method calls still waiting for their replies.
+     */
+    list<jobject> pendingReplies;
+    Mutex pendingRepliesLock;
 };
 
 class JSignalHandler : public MessageReceiver {
@@ -7880,7 +7921,8 @@ QStatus JBusObject::MethodReply(const InterfaceDescription::Member* member, Mess
     QCC_DbgPrintf(("JBusObject::MethodReply()"));
 
     qcc::String val;
-    if (member->GetAnnotation(org::freedesktop::DBus::AnnotateNoReply, val) && val == "true") {
+    if ((msg->GetFlags() & ALLJOYN_FLAG_NO_REPLY_EXPECTED) ||
+        (member->GetAnnotation(org::freedesktop::DBus::AnnotateNoReply, val) && val == "true")) {
         return ER_OK;
     } else {
         return BusObject::MethodReply(msg, status);
@@ -7892,7 +7934,8 @@ QStatus JBusObject::MethodReply(const InterfaceDescription::Member* member, cons
     QCC_DbgPrintf(("JBusObject::MethodReply()"));
 
     qcc::String val;
-    if (member->GetAnnotation(org::freedesktop::DBus::AnnotateNoReply, val) && val == "true") {
+    if ((msg->GetFlags() & ALLJOYN_FLAG_NO_REPLY_EXPECTED) ||
+        (member->GetAnnotation(org::freedesktop::DBus::AnnotateNoReply, val) && val == "true")) {
         return ER_OK;
     } else {
         return BusObject::MethodReply(msg, error, errorMessage);
@@ -7903,6 +7946,11 @@ QStatus JBusObject::MethodReply(const InterfaceDescription::Member* member, Mess
 {
     QCC_DbgPrintf(("JBusObject::MethodReply()"));
 
+    /* The caller is not waiting for the reply, so do not build it. */
+    if (msg->GetFlags() & ALLJOYN_FLAG_NO_REPLY_EXPECTED) {
+        return ER_OK;
+    }
+
     qcc::String val;
     if (member->GetAnnotation(org::freedesktop::DBus::AnnotateNoReply, val) && val == "true") {
         if (!jreply) {
@@ -9116,6 +9164,110 @@ JProxyBusObject::~JProxyBusObject()
      */
     assert(busPtr);
     QCC_DbgPrintf(("JProxyBusObject::~JProxyBusObject(): Refcount on busPtr at destruction is %d", busPtr->GetRef()));
+
+    /*
+     * Any asynchronous method calls still waiting for their replies will
+     * never see them once we are gone, so fail them now rather than leaking
+     * the Java objects and leaving their callers waiting forever.
+     */
+    pendingRepliesLock.Lock();
+    list<jobject> replies;
+    replies.swap(pendingReplies);
+    pendingRepliesLock.Unlock();
+
+    if (!replies.empty()) {
+        JNIEnv* env = GetEnv();
+        JLocalRef<jstring> jmessage = env->NewStringUTF(QCC_StatusText(ER_BUS_STOPPING));
+        for (list<jobject>::iterator i = replies.begin(); i != replies.end(); ++i) {
+            if (jmessage) {
+                env->CallVoidMethod(*i, MID_MethodCallFuture_failed, (jstring)NULL, (jstring)jmessage);
+                if (env->ExceptionCheck()) {
+                    QCC_LogError(ER_FAIL, ("JProxyBusObject::~JProxyBusObject(): Exception"));
+                    env->ExceptionClear();
+                }
+            }
+            env->DeleteGlobalRef(*i);
+        }
+    }
+}
+
+void JProxyBusObject::AddPendingReply(jobject jreply)
+{
+    pendingRepliesLock.Lock();
+    pendingReplies.push_back(jreply);
+    pendingRepliesLock.Unlock();
+}
+
+/**
+ * Remove a pending asynchronous method call.  Returns false if the call is
+ * no longer pending, in which case it has already been completed and its
+ * global reference deleted.
+ */
+bool JProxyBusObject::RemovePendingReply(jobject jreply)
+{
+    pendingRepliesLock.Lock();
+    list<jobject>::iterator i = find(pendingReplies.begin(), pendingReplies.end(), jreply);
+    bool found = (i != pendingReplies.end());
+    if (found) {
+        pendingReplies.erase(i);
+    }
+    pendingRepliesLock.Unlock();
+    return found;
+}
+
+/**
+ * Handle the reply of an asynchronous method call.  The context is the global
+ * reference to the Java MethodCallFuture of the call.  The reply arguments
+ * are copied into a single MsgArg (a struct if there are several) that is
+ * handed over to Java, which unmarshals it on its reply executor and then
+ * destroys it.
+ */
+void JProxyBusObject::MethodReplyCB(Message& msg, void* context)
+{
+    QCC_DbgPrintf(("JProxyBusObject::MethodReplyCB()"));
+
+    /*
+     * JScopedEnv will automagically attach the JVM to the current native
+     * thread.
+     */
+    JScopedEnv env;
+
+    jobject jreply = static_cast<jobject>(context);
+    if (!RemovePendingReply(jreply)) {
+        return;
+    }
+
+    if (msg->GetType() == MESSAGE_METHOD_RET) {
+        const MsgArg* replyArgs;
+        size_t numReplyArgs;
+        msg->GetArgs(numReplyArgs, replyArgs);
+        MsgArg* replyArg = NULL;
+        if (numReplyArgs > 1) {
+            replyArg = new MsgArg(ALLJOYN_STRUCT);
+            replyArg->v_struct.numMembers = numReplyArgs;
+            replyArg->v_struct.members = new MsgArg[numReplyArgs];
+            for (size_t i = 0; i < numReplyArgs; ++i) {
+                replyArg->v_struct.members[i] = replyArgs[i];
+            }
+            replyArg->SetOwnershipFlags(MsgArg::OwnsArgs);
+        } else if (numReplyArgs > 0) {
+            replyArg = new MsgArg(replyArgs[0]);
+        }
+        env->CallVoidMethod(jreply, MID_MethodCallFuture_replied, (jlong)replyArg);
+    } else {
+        String errorMessage;
+        const char* errorName = msg->GetErrorName(&errorMessage);
+        JLocalRef<jstring> jerrorName = errorName ? env->NewStringUTF(errorName) : NULL;
+        JLocalRef<jstring> jerrorMessage = env->NewStringUTF(errorName ? errorMessage.c_str() : QCC_StatusText(ER_FAIL));
+        if (!env->ExceptionCheck()) {
+            env->CallVoidMethod(jreply, MID_MethodCallFuture_failed, (jstring)jerrorName, (jstring)jerrorMessage);
+        }
+    }
+    if (env->ExceptionCheck()) {
+        QCC_LogError(ER_FAIL, ("JProxyBusObject::MethodReplyCB(): Exception"));
+    }
+
+    env->DeleteGlobalRef(jreply);
 }
 
 JNIEXPORT void JNICALL Java_org_alljoyn_bus_ProxyBusObject_create(JNIEnv* env, jobject thiz, jobject jbus,
@@ -9260,6 +9412,67 @@ static void AddInterface(jobject thiz, jobject jbus, jstring jinterfaceName)
     }
 }
 
+/**
+ * Return the interface of this proxy with the given name, adding it if
+ * needed.  Returns NULL with a pending Java exception if it cannot be added.
+ */
+const InterfaceDescription* JProxyBusObject::ResolveInterface(jobject thiz, jobject jbus, jstring jinterfaceName,
+                                                              const char* interfaceName)
+{
+    ScopedMutexLock guard(resolveLock);
+
+    map<String, const InterfaceDescription*>::const_iterator i = interfaces.find(interfaceName);
+    if (i != interfaces.end()) {
+        return i->second;
+    }
+
+    const InterfaceDescription* intf = GetInterface(interfaceName);
+    if (!intf) {
+        busPtr->baProxyLock.Lock();
+        AddInterface(thiz, jbus, jinterfaceName);
+        busPtr->baProxyLock.Unlock();
+        if (GetEnv()->ExceptionCheck()) {
+            return NULL;
+        }
+        intf = GetInterface(interfaceName);
+        assert(intf);
+    }
+    interfaces[interfaceName] = intf;
+    return intf;
+}
+
+/**
+ * Return the member of an interface of this proxy, adding the interface if
+ * needed.  Returns NULL if the member does not exist, with a pending Java
+ * exception if the interface cannot be added.
+ */
+const InterfaceDescription::Member* JProxyBusObject::ResolveMember(jobject thiz, jobject jbus, jstring jinterfaceName,
+                                                                   const char* interfaceName, const char* memberName)
+{
+    String key = String(interfaceName) + "." + memberName;
+
+    resolveLock.Lock();
+    map<String, const InterfaceDescription::Member*>::const_iterator i = members.find(key);
+    if (i != members.end()) {
+        const InterfaceDescription::Member* member = i->second;
+        resolveLock.Unlock();
+        return member;
+    }
+    resolveLock.Unlock();
+
+    const InterfaceDescription* intf = ResolveInterface(thiz, jbus, jinterfaceName, interfaceName);
+    if (!intf) {
+        return NULL;
+    }
+    const InterfaceDescription::Member* member = intf->GetMember(memberName);
+    if (member) {
+        resolveLock.Lock();
+        members[key] = member;
+        resolveLock.Unlock();
+    }
+    return member;
+}
+
 /*
  * if the interface security policy is Required return true,
  * if the interface security policy is off return false
@@ -9277,6 +9490,67 @@ static inline bool SecurityApplies(const JProxyBusObject* obj, const InterfaceDe
     }
 }
 
+/*
+ * Return true if a method call is sent without waiting for a reply, either
+ * because the member is annotated as no-reply or because the caller set
+ * ALLJOYN_FLAG_NO_REPLY_EXPECTED.
+ */
+static bool IsNoReply(const InterfaceDescription::Member* member, jint flags)
+{
+    if (flags & ALLJOYN_FLAG_NO_REPLY_EXPECTED) {
+        return true;
+    }
+    qcc::String val;
+    return member->GetAnnotation(org::freedesktop::DBus::AnnotateNoReply, val) && val == "true";
+}
+
+/*
+ * Return the flags of a method call, adding ALLJOYN_FLAG_ENCRYPTED to calls
+ * on the org.freedesktop.DBus.Properties interface that need it.
+ */
+static jint PropertiesCallFlags(const JProxyBusObject* proxyBusObj, const char* interfaceName, MsgArg& args, jint flags)
+{
+    /*
+     * If we call any method on the org.freedesktop.DBus.Properties interface
+     *    - org.freedesktop.DBus.Properties.Get(ssv)
+     *    - org.freedesktop.DBus.Properties.Set(ssv)
+     *    - org.freedesktop.DBus.Properties.GetAll(sa{sv})
+     * If the properties are part of an encrypted interface then the they must
+     * also be encrypted.  The first parameter of Get, Set, and GetAll is the
+     * interface name that the property belongs to.
+     *    - this code reads the interface name from the Properties method call
+     *    - tries to Get the InterfaceDescription from the proxyBusObj based on
+     *      the interface name
+     *    - Checks the InterfaceDescription to see if it has Security Annotation
+     *      or object security
+     *    - if security is set change the security flag to for the property
+     *      method so the properties are encrypted.
+     *    - if it is unable to get the InterfaceDescription it will check the
+     *      security of the ProxyObject.
+     *    - Failure to find a security indication will result the properties
+     *      methods being used without encryption.
+     */
+    if (strcmp(interfaceName, org::freedesktop::DBus::Properties::InterfaceName) == 0) {
+        char* interface_name;
+        /* the fist member of the struct is the interface name*/
+        args.v_struct.members[0].Get("s", &interface_name);
+        const InterfaceDescription* ifac_with_property = proxyBusObj->GetInterface(interface_name);
+        /*
+         * If the object or the property interface is secure method call
+         * must be encrypted.
+         */
+        if (ifac_with_property == NULL) {
+            if (proxyBusObj->IsSecure()) {
+                flags |= ALLJOYN_FLAG_ENCRYPTED;
+            }
+        } else
+        if (SecurityApplies(proxyBusObj, ifac_with_property)) {
+            flags |= ALLJOYN_FLAG_ENCRYPTED;
+        }
+    }
+    return flags;
+}
+
 JNIEXPORT jobject JNICALL Java_org_alljoyn_bus_ProxyBusObject_methodCall(JNIEnv* env,
                                                                          jobject thiz,
                                                                          jobject jbus,
@@ -9326,56 +9600,28 @@ JNIEXPORT jobject JNICALL Java_org_alljoyn_bus_ProxyBusObject_methodCall(JNIEnv*
 
     QCC_DbgPrintf(("ProxybusObject_methodCall(): Refcount on busPtr is %d", busPtr->GetRef()));
 
-    /*
-     * This part of the binding and on down lower is fundamentally single
-     * threaded.  We want to eventually support multiple overlapping synchronous
-     * calls, but we do not support this now.
-     *
-     * It might sound reasonable for a user of the bindings to get around this
-     * limitation by spinning up a bunch of threads to make overlapping
-     * synchronous method calls.  Since these calls will be coming in here to be
-     * dispatched, We have to actively prevent this from happening for now.
-     *
-     * It's a bit of a blunt instrument, but we acquire a common method call lock
-     * in the underlying bus attachment before allowing any method call on a
-     * proxy bus object to proceed.
-     */
-    busPtr->baProxyLock.Lock();
-
     Message replyMsg(*busPtr);
 
     JProxyBusObject* proxyBusObj = GetHandle<JProxyBusObject*>(thiz);
     if (env->ExceptionCheck()) {
-        busPtr->baProxyLock.Unlock();
         QCC_LogError(ER_FAIL, ("ProxyBusObjexct_methodCall(): Exception"));
         return NULL;
     }
 
     assert(proxyBusObj);
 
-    const InterfaceDescription::Member* member = NULL;
-
-    const InterfaceDescription* intf = proxyBusObj->GetInterface(interfaceName.c_str());
-    if (!intf) {
-        AddInterface(thiz, jbus, jinterfaceName);
+    const InterfaceDescription::Member* member = proxyBusObj->ResolveMember(thiz, jbus, jinterfaceName,
+                                                                            interfaceName.c_str(),
+                                                                            methodName.c_str());
+    if (!member) {
         if (env->ExceptionCheck()) {
-            busPtr->baProxyLock.Unlock();
             QCC_LogError(ER_FAIL, ("ProxyBusObjexct_methodCall(): Exception"));
-            return NULL;
+        } else {
+            env->ThrowNew(CLS_BusException, QCC_StatusText(ER_BUS_INTERFACE_NO_SUCH_MEMBER));
         }
-        intf = proxyBusObj->GetInterface(interfaceName.c_str());
-        assert(intf);
-    }
-
-    member = intf->GetMember(methodName.c_str());
-    if (!member) {
-        busPtr->baProxyLock.Unlock();
-        env->ThrowNew(CLS_BusException, QCC_StatusText(ER_BUS_INTERFACE_NO_SUCH_MEMBER));
         return NULL;
     }
 
-    busPtr->baProxyLock.Unlock();
-
     MsgArg args;
     QStatus status;
     const MsgArg* replyArgs;
@@ -9387,46 +9633,9 @@ JNIEXPORT jobject JNICALL Java_org_alljoyn_bus_ProxyBusObject_methodCall(JNIEnv*
         return jreplyArg;
     }
 
-    /*
-     * If we call any method on the org.freedesktop.DBus.Properties interface
-     *    - org.freedesktop.DBus.Properties.Get(ssv)
-     *    - org.freedesktop.DBus.Properties.Set(ssv)
-     *    - org.freedesktop.DBus.Properties.GetAll(sa{sv})
-     * If the properties are part of an encrypted interface then the they must
-     * also be encrypted.  The first parameter of Get, Set, and GetAll is the
-     * interface name that the property belongs to.
-     *    - this code reads the interface name from the Properties method call
-     *    - tries to Get the InterfaceDescription from the proxyBusObj based on
-     *      the interface name
-     *    - Checks the InterfaceDescription to see if it has Security Annotation
-     *      or object security
-     *    - if security is set change the security flag to for the property
-     *      method so the properties are encrypted.
-     *    - if it is unable to get the InterfaceDescription it will check the
-     *      security of the ProxyObject.
-     *    - Failure to find a security indication will result the properties
-     *      methods being used without encryption.
-     */
-    if (strcmp(interfaceName.c_str(), org::freedesktop::DBus::Properties::InterfaceName) == 0) {
-        char* interface_name;
-        /* the fist member of the struct is the interface name*/
-        args.v_struct.members[0].Get("s", &interface_name);
-        const InterfaceDescription* ifac_with_property = proxyBusObj->GetInterface(interface_name);
-        /*
-         * If the object or the property interface is secure method call
-         * must be encrypted.
-         */
-        if (ifac_with_property == NULL) {
-            if (proxyBusObj->IsSecure()) {
-                flags |= ALLJOYN_FLAG_ENCRYPTED;
-            }
-        } else
-        if (SecurityApplies(proxyBusObj, ifac_with_property)) {
-            flags |= ALLJOYN_FLAG_ENCRYPTED;
-        }
-    }
-    qcc::String val;
-    if (member->GetAnnotation(org::freedesktop::DBus::AnnotateNoReply, val) && val == "true") {
+    flags = PropertiesCallFlags(proxyBusObj, interfaceName.c_str(), args, flags);
+
+    if (IsNoReply(member, flags)) {
         status = proxyBusObj->MethodCallAsync(*member, NULL, NULL, args.v_struct.members,
                                               args.v_struct.numMembers, NULL, replyTimeoutMsecs, flags);
         if (ER_OK != status) {
@@ -9473,85 +9682,169 @@ JNIEXPORT jobject JNICALL Java_org_alljoyn_bus_ProxyBusObject_methodCall(JNIEnv*
     }
 }
 
-JNIEXPORT jobject JNICALL Java_org_alljoyn_bus_ProxyBusObject_getProperty(JNIEnv* env, jobject thiz, jobject jbus,
-                                                                          jstring jinterfaceName, jstring jpropertyName)
+JNIEXPORT void JNICALL Java_org_alljoyn_bus_ProxyBusObject_methodCallAsync(JNIEnv* env,
+                                                                         jobject thiz,
+                                                                         jobject jbus,
+                                                                         jstring jinterfaceName,
+                                                                         jstring jmethodName,
+                                                                         jstring jinputSig,
+                                                                         jobjectArray jargs,
+                                                                         jint replyTimeoutMsecs,
+                                                                         jint flags,
+                                                                         jobject jreply)
 {
-    QCC_DbgPrintf(("ProxyBusObject_getProperty()"));
+    QCC_DbgPrintf(("ProxyBusObject_methodCallAsync()"));
 
     JString interfaceName(jinterfaceName);
     if (env->ExceptionCheck()) {
-        QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getProperty(): Exception"));
-        return NULL;
+        QCC_LogError(ER_FAIL, ("ProxyBusObject_methodCallAsync(): Exception"));
+        return;
     }
 
-    JString propertyName(jpropertyName);
+    JString methodName(jmethodName);
     if (env->ExceptionCheck()) {
-        QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getProperty(): Exception"));
-        return NULL;
+        QCC_LogError(ER_FAIL, ("ProxyBusObject_methodCallAsync(): Exception"));
+        return;
+    }
+
+    JString inputSig(jinputSig);
+    if (env->ExceptionCheck()) {
+        QCC_LogError(ER_FAIL, ("ProxyBusObject_methodCallAsync(): Exception"));
+        return;
     }
 
     JBusAttachment* busPtr = GetHandle<JBusAttachment*>(jbus);
     if (env->ExceptionCheck()) {
-        QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getProperty(): Exception"));
-        return NULL;
+        QCC_LogError(ER_FAIL, ("ProxyBusObject_methodCallAsync(): Exception"));
+        return;
     }
 
-    /*
-     * We don't want to force the user to constantly check for NULL return
-     * codes, so if we have a problem, we throw an exception.
-     */
     if (busPtr == NULL) {
-        QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getProperty(): NULL bus pointer"));
+        QCC_LogError(ER_FAIL, ("ProxyBusObject_methodCallAsync(): NULL bus pointer"));
         env->ThrowNew(CLS_BusException, QCC_StatusText(ER_FAIL));
-        return NULL;
+        return;
     }
 
-    QCC_DbgPrintf(("ProxybusObject_getproperty(): Refcount on busPtr is %d\n", busPtr->GetRef()));
-
-    /*
-     * This part of the binding and on down lower is fundamentally single
-     * threaded.  We want to eventually support multiple overlapping synchronous
-     * calls, but we do not support this now.
-     *
-     * It might sound reasonable for a user of the bindings to get around this
-     * limitation by spinning up a bunch of threads to make overlapping get
-     * property calls.  Since these calls will be coming in here to be
-     * dispatched, We have to actively prevent this from happening for now.
-     *
-     * It's a bit of a blunt instrument, but we acquire a common method call lock
-     * in the underlying bus attachment before allowing any method call on a
-     * proxy bus object to proceed.
-     */
-    busPtr->baProxyLock.Lock();
-
     JProxyBusObject* proxyBusObj = GetHandle<JProxyBusObject*>(thiz);
     if (env->ExceptionCheck()) {
-        busPtr->baProxyLock.Unlock();
-        QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getProperty(): Exception"));
-        return NULL;
+        QCC_LogError(ER_FAIL, ("ProxyBusObject_methodCallAsync(): Exception"));
+        return;
     }
 
     assert(proxyBusObj);
 
-    if (!proxyBusObj->ImplementsInterface(interfaceName.c_str())) {
-        AddInterface(thiz, jbus, jinterfaceName);
+    const InterfaceDescription::Member* member = proxyBusObj->ResolveMember(thiz, jbus, jinterfaceName,
+                                                                            interfaceName.c_str(),
+                                                                            methodName.c_str());
+    if (!member) {
         if (env->ExceptionCheck()) {
-            busPtr->baProxyLock.Unlock();
-            QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getProperty(): Exception"));
-            return NULL;
+            QCC_LogError(ER_FAIL, ("ProxyBusObject_methodCallAsync(): Exception"));
+        } else {
+            env->ThrowNew(CLS_BusException, QCC_StatusText(ER_BUS_INTERFACE_NO_SUCH_MEMBER));
         }
+        return;
     }
 
-    MsgArg value;
-    QStatus status = proxyBusObj->GetProperty(interfaceName.c_str(), propertyName.c_str(), value);
-    if (ER_OK == status) {
-        jobject obj = Unmarshal(&value, CLS_Variant);
-        busPtr->baProxyLock.Unlock();
-        return obj;
-    } else {
-        QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getProperty(): Exception"));
-        busPtr->baProxyLock.Unlock();
-        env->ThrowNew(CLS_BusException, QCC_StatusText(status));
+    MsgArg args;
+    if (!Marshal(inputSig.c_str(), jargs, &args)) {
+        QCC_LogError(ER_FAIL, ("ProxyBusObject_methodCallAsync(): Marshal failure"));
+        return;
+    }
+
+    flags = PropertiesCallFlags(proxyBusObj, interfaceName.c_str(), args, flags);
+
+    QStatus status;
+    if (IsNoReply(member, flags)) {
+        status = proxyBusObj->MethodCallAsync(*member, NULL, NULL, args.v_struct.members,
+                                              args.v_struct.numMembers, NULL, replyTimeoutMsecs, flags);
+        if (ER_OK == status) {
+            env->CallVoidMethod(jreply, MID_MethodCallFuture_replied, (jlong)0);
+        }
+    } else {
+        /*
+         * The global reference is the context of the reply handler.  It is
+         * registered as pending before the call is made since the reply may
+         * arrive before MethodCallAsync returns.
+         */
+        jobject jglobalReply = env->NewGlobalRef(jreply);
+        if (!jglobalReply) {
+            return;
+        }
+        proxyBusObj->AddPendingReply(jglobalReply);
+        status = proxyBusObj->MethodCallAsync(*member, proxyBusObj,
+                                              static_cast<MessageReceiver::ReplyHandler>(&JProxyBusObject::MethodReplyCB),
+                                              args.v_struct.members, args.v_struct.numMembers, jglobalReply,
+                                              replyTimeoutMsecs, flags);
+        if (ER_OK != status) {
+            if (proxyBusObj->RemovePendingReply(jglobalReply)) {
+                env->DeleteGlobalRef(jglobalReply);
+            } else {
+                /* The reply handler has already failed the call. */
+                status = ER_OK;
+            }
+        }
+    }
+    if (ER_OK != status) {
+        env->ThrowNew(CLS_BusException, QCC_StatusText(status));
+    }
+}
+
+JNIEXPORT jobject JNICALL Java_org_alljoyn_bus_ProxyBusObject_getProperty(JNIEnv* env, jobject thiz, jobject jbus,
+                                                                          jstring jinterfaceName, jstring jpropertyName)
+{
+    QCC_DbgPrintf(("ProxyBusObject_getProperty()"));
+
+    JString interfaceName(jinterfaceName);
+    if (env->ExceptionCheck()) {
+        QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getProperty(): Exception"));
+        return NULL;
+    }
+
+    JString propertyName(jpropertyName);
+    if (env->ExceptionCheck()) {
+        QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getProperty(): Exception"));
+        return NULL;
+    }
+
+    JBusAttachment* busPtr = GetHandle<JBusAttachment*>(jbus);
+    if (env->ExceptionCheck()) {
+        QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getProperty(): Exception"));
+        return NULL;
+    }
+
+    /*
+     * We don't want to force the user to constantly check for NULL return
+     * codes, so if we have a problem, we throw an exception.
+     */
+    if (busPtr == NULL) {
+        QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getProperty(): NULL bus pointer"));
+        env->ThrowNew(CLS_BusException, QCC_StatusText(ER_FAIL));
+        return NULL;
+    }
+
+    QCC_DbgPrintf(("ProxybusObject_getproperty(): Refcount on busPtr is %d\n", busPtr->GetRef()));
+
+    JProxyBusObject* proxyBusObj = GetHandle<JProxyBusObject*>(thiz);
+    if (env->ExceptionCheck()) {
+        QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getProperty(): Exception"));
+        return NULL;
+    }
+
+    assert(proxyBusObj);
+
+    if (!proxyBusObj->ResolveInterface(thiz, jbus, jinterfaceName, interfaceName.c_str())) {
+        QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getProperty(): Exception"));
+        return NULL;
+    }
+
+    MsgArg value;
+    QStatus status = proxyBusObj->GetProperty(interfaceName.c_str(), propertyName.c_str(), value);
+    if (ER_OK == status) {
+        jobject obj = Unmarshal(&value, CLS_Variant);
+        return obj;
+    } else {
+        QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getProperty(): Exception"));
+        env->ThrowNew(CLS_BusException, QCC_StatusText(status));
         return NULL;
     }
 }
@@ -9585,49 +9878,26 @@ JNIEXPORT jobject JNICALL Java_org_alljoyn_bus_ProxyBusObject_getAllProperties(J
 
     QCC_DbgPrintf(("ProxybusObject_getproperty(): Refcount on busPtr is %d\n", busPtr->GetRef()));
 
-    /*
-     * This part of the binding and on down lower is fundamentally single
-     * threaded.  We want to eventually support multiple overlapping synchronous
-     * calls, but we do not support this now.
-     *
-     * It might sound reasonable for a user of the bindings to get around this
-     * limitation by spinning up a bunch of threads to make overlapping get
-     * property calls.  Since these calls will be coming in here to be
-     * dispatched, We have to actively prevent this from happening for now.
-     *
-     * It's a bit of a blunt instrument, but we acquire a common method call lock
-     * in the underlying bus attachment before allowing any method call on a
-     * proxy bus object to proceed.
-     */
-    busPtr->baProxyLock.Lock();
-
     JProxyBusObject* proxyBusObj = GetHandle<JProxyBusObject*>(thiz);
     if (env->ExceptionCheck()) {
-        busPtr->baProxyLock.Unlock();
         QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getAllProperties(): Exception"));
         return NULL;
     }
 
     assert(proxyBusObj);
 
-    if (!proxyBusObj->ImplementsInterface(interfaceName.c_str())) {
-        AddInterface(thiz, jbus, jinterfaceName);
-        if (env->ExceptionCheck()) {
-            busPtr->baProxyLock.Unlock();
-            QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getAllProperties(): Exception"));
-            return NULL;
-        }
+    if (!proxyBusObj->ResolveInterface(thiz, jbus, jinterfaceName, interfaceName.c_str())) {
+        QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getAllProperties(): Exception"));
+        return NULL;
     }
 
     MsgArg value;
     QStatus status = proxyBusObj->GetAllProperties(interfaceName.c_str(), value);
     if (ER_OK == status) {
         jobject obj = Unmarshal(&value, joutType);
-        busPtr->baProxyLock.Unlock();
         return obj;
     } else {
         QCC_LogError(ER_FAIL, ("ProxyBusObjexct_getAllProperties(): Exception"));
-        busPtr->baProxyLock.Unlock();
         env->ThrowNew(CLS_BusException, QCC_StatusText(status));
         return NULL;
     }
@@ -9674,38 +9944,17 @@ JNIEXPORT void JNICALL Java_org_alljoyn_bus_ProxyBusObject_setProperty(JNIEnv* e
 
     QCC_DbgPrintf(("ProxybusObject_setproperty(): Refcount on busPtr is %d\n", busPtr->GetRef()));
 
-    /*
-     * This part of the binding and on down lower is fundamentally single
-     * threaded.  We want to eventually support multiple overlapping synchronous
-     * calls, but we do not support this now.
-     *
-     * It might sound reasonable for a user of the bindings to get around this
-     * limitation by spinning up a bunch of threads to make overlapping set
-     * property calls.  Since these calls will be coming in here to be
-     * dispatched, We have to actively prevent this from happening for now.
-     *
-     * It's a bit of a blunt instrument, but we acquire a common method call lock
-     * in the underlying bus attachment before allowing any method call on a
-     * proxy bus object to proceed.
-     */
-    busPtr->baProxyLock.Lock();
-
     JProxyBusObject* proxyBusObj = GetHandle<JProxyBusObject*>(thiz);
     if (env->ExceptionCheck()) {
-        busPtr->baProxyLock.Unlock();
         QCC_LogError(ER_FAIL, ("ProxyBusObjexct_setProperty(): Exception"));
         return;
     }
 
     assert(proxyBusObj);
 
-    if (!proxyBusObj->ImplementsInterface(interfaceName.c_str())) {
-        AddInterface(thiz, jbus, jinterfaceName);
-        if (env->ExceptionCheck()) {
-            busPtr->baProxyLock.Unlock();
-            QCC_LogError(ER_FAIL, ("ProxyBusObjexct_setProperty(): Exception"));
-            return;
-        }
+    if (!proxyBusObj->ResolveInterface(thiz, jbus, jinterfaceName, interfaceName.c_str())) {
+        QCC_LogError(ER_FAIL, ("ProxyBusObjexct_setProperty(): Exception"));
+        return;
     }
 
     MsgArg value;
@@ -9719,7 +9968,6 @@ JNIEXPORT void JNICALL Java_org_alljoyn_bus_ProxyBusObject_setProperty(JNIEnv* e
         QCC_LogError(ER_FAIL, ("ProxyBusObjexct_setProperty(): Exception"));
         env->ThrowNew(CLS_BusException, QCC_StatusText(status));
     }
-    busPtr->baProxyLock.Unlock();
 }
 
 JNIEXPORT jboolean JNICALL Java_org_alljoyn_bus_ProxyBusObject_isProxyBusObjectSecure(JNIEnv* env, jobject thiz)
@@ -9839,66 +10087,132 @@ JNIEXPORT void JNICALL Java_org_alljoyn_bus_SignalEmitter_signal(JNIEnv* env, jo
     }
 }
 
-JNIEXPORT jobject JNICALL Java_org_alljoyn_bus_SignalEmitter_cancelSessionlessSignal(JNIEnv* env, jobject thiz, jobject jbusObject, jint serialNum)
+JNIEXPORT jobjectArray JNICALL Java_org_alljoyn_bus_SignalEmitter_signalFanOut(JNIEnv* env, jobject thiz, jobject jbusObject,
+                                                                                 jobjectArray jdestinations, jintArray jsessionIds,
+                                                                                 jstring jifaceName, jstring jsignalName,
+                                                                                 jstring jinputSig, jobjectArray jargs,
+                                                                                 jint timeToLive, jint flags)
 {
-    QCC_DbgPrintf(("SignalEmitter_cancelSessionlessSignal()"));
+    QCC_DbgPrintf(("SignalEmitter_signalFanOut()"));
 
+    JString ifaceName(jifaceName);
+    if (env->ExceptionCheck()) {
+        QCC_LogError(ER_FAIL, ("SignalEmitter_signalFanOut(): Exception"));
+        return NULL;
+    }
+
+    JString signalName(jsignalName);
+    if (env->ExceptionCheck()) {
+        QCC_LogError(ER_FAIL, ("SignalEmitter_signalFanOut(): Exception"));
+        return NULL;
+    }
+
+    JString inputSig(jinputSig);
+    if (env->ExceptionCheck()) {
+        QCC_LogError(ER_FAIL, ("SignalEmitter_signalFanOut(): Exception"));
+        return NULL;
+    }
+
+    jsize count = env->GetArrayLength(jsessionIds);
+    jint* sessionIds = env->GetIntArrayElements(jsessionIds, NULL);
+    if (!sessionIds) {
+        QCC_LogError(ER_FAIL, ("SignalEmitter_signalFanOut(): Exception"));
+        return NULL;
+    }
+
+    /*
+     * The arguments are marshalled once and the same MsgArgs are sent to
+     * every target.
+     */
+    MsgArg args;
+    if (!Marshal(inputSig.c_str(), jargs, &args)) {
+        QCC_LogError(ER_FAIL, ("SignalEmitter_signalFanOut(): Marshal() error"));
+        env->ReleaseIntArrayElements(jsessionIds, sessionIds, JNI_ABORT);
+        return NULL;
+    }
+
+    /*
+     * See SignalEmitter_signal() for why the global bus object map lock is
+     * held while a signal is sent.  The lock is taken for one target at a
+     * time, so that registering, unregistering and dispatching to other bus
+     * objects is not held up for the whole fan-out.  The backing object is
+     * looked up again for each target since it may be unregistered between
+     * them, in which case the remaining targets are not sent to.
+     */
+    QCC_DbgPrintf(("SignalEmitter_signalFanOut(): Taking global Bus Object map lock"));
     gBusObjectMapLock.Lock();
     JBusObject* busObject = GetBackingObject(jbusObject);
+    QCC_DbgPrintf(("SignalEmitter_signalFanOut(): Releasing global Bus Object map lock"));
+    gBusObjectMapLock.Unlock();
     if (!busObject) {
-        gBusObjectMapLock.Unlock();
-        QCC_LogError(ER_FAIL, ("SignalEmitter_cancelSessionlessSignal(): Exception"));
+        env->ReleaseIntArrayElements(jsessionIds, sessionIds, JNI_ABORT);
+        QCC_LogError(ER_FAIL, ("SignalEmitter_signalFanOut(): Exception"));
         env->ThrowNew(CLS_BusException, QCC_StatusText(ER_BUS_NO_SUCH_OBJECT));
         return NULL;
     }
 
-    QStatus status = busObject->CancelSessionlessMessage(serialNum);
-
-    gBusObjectMapLock.Unlock();
-
-    return JStatus(status);
-}
+    vector<QStatus> statuses(count, ER_BUS_NO_SUCH_OBJECT);
+    for (jsize i = 0; i < count; ++i) {
+        JLocalRef<jstring> jdestination = (jstring)env->GetObjectArrayElement(jdestinations, i);
+        if (env->ExceptionCheck()) {
+            break;
+        }
+        JString destination(jdestination);
+        if (env->ExceptionCheck()) {
+            break;
+        }
 
-JNIEXPORT jobjectArray JNICALL Java_org_alljoyn_bus_Signature_split(JNIEnv* env, jclass clazz, jstring jsignature)
-{
-    // QCC_DbgPrintf(("Signature_split()"));
+        gBusObjectMapLock.Lock();
+        busObject = GetBackingObject(jbusObject);
+        if (!busObject) {
+            gBusObjectMapLock.Unlock();
+            break;
+        }
+        BusAttachment& bus = const_cast<BusAttachment&>(busObject->GetBusAttachment());
+        Message msg(bus);
+        statuses[i] = busObject->Signal(destination.c_str(), sessionIds[i], ifaceName.c_str(), signalName.c_str(),
+                                        args.v_struct.members, args.v_struct.numMembers, timeToLive, flags, msg);
+        gBusObjectMapLock.Unlock();
+    }
 
-    JString signature(jsignature);
+    env->ReleaseIntArrayElements(jsessionIds, sessionIds, JNI_ABORT);
     if (env->ExceptionCheck()) {
-        QCC_LogError(ER_FAIL, ("Signature_split(): Exception"));
+        QCC_LogError(ER_FAIL, ("SignalEmitter_signalFanOut(): Exception"));
+        return NULL;
+    }
+
+    jobjectArray jstatuses = env->NewObjectArray(count, CLS_Status, NULL);
+    if (!jstatuses) {
         return NULL;
     }
-    const char* next = signature.c_str();
-    if (next) {
-        uint8_t count = SignatureUtils::CountCompleteTypes(next);
-        JLocalRef<jobjectArray> jsignatures = env->NewObjectArray(count, CLS_String, NULL);
-        if (!jsignatures) {
+    for (jsize i = 0; i < count; ++i) {
+        JLocalRef<jobject> jstatus = JStatus(statuses[i]);
+        if (env->ExceptionCheck()) {
             return NULL;
         }
-        const char* prev = next;
-        for (jsize i = 0; *next; ++i, prev = next) {
-            QStatus status = SignatureUtils::ParseCompleteType(next);
-            if (ER_OK != status) {
-                return NULL;
-            }
-            assert(i < count);
+        env->SetObjectArrayElement(jstatuses, i, jstatus);
+    }
+    return jstatuses;
+}
 
-            ptrdiff_t len = next - prev;
-            String type(prev, len);
+JNIEXPORT jobject JNICALL Java_org_alljoyn_bus_SignalEmitter_cancelSessionlessSignal(JNIEnv* env, jobject thiz, jobject jbusObject, jint serialNum)
+{
+    QCC_DbgPrintf(("SignalEmitter_cancelSessionlessSignal()"));
 
-            JLocalRef<jstring> jtype = env->NewStringUTF(type.c_str());
-            if (!jtype) {
-                return NULL;
-            }
-            env->SetObjectArrayElement(jsignatures, i, jtype);
-            if (env->ExceptionCheck()) {
-                return NULL;
-            }
-        }
-        return jsignatures.move();
-    } else {
+    gBusObjectMapLock.Lock();
+    JBusObject* busObject = GetBackingObject(jbusObject);
+    if (!busObject) {
+        gBusObjectMapLock.Unlock();
+        QCC_LogError(ER_FAIL, ("SignalEmitter_cancelSessionlessSignal(): Exception"));
+        env->ThrowNew(CLS_BusException, QCC_StatusText(ER_BUS_NO_SUCH_OBJECT));
         return NULL;
     }
+
+    QStatus status = busObject->CancelSessionlessMessage(serialNum);
+
+    gBusObjectMapLock.Unlock();
+
+    return JStatus(status);
 }
 
 JNIEXPORT void JNICALL Java_org_alljoyn_bus_Variant_destroy(JNIEnv* env, jobject thiz)
@@ -9935,6 +10249,31 @@ JNIEXPORT void JNICALL Java_org_alljoyn_bus_Variant_setMsgArg(JNIEnv* env, jobje
     }
 }
 
+JNIEXPORT void JNICALL Java_org_alljoyn_bus_Variant_freeze(JNIEnv* env, jobject thiz, jstring jsignature, jobject jvalue)
+{
+    // QCC_DbgPrintf(("Variant_freeze()"));
+
+    JString signature(jsignature);
+    if (env->ExceptionCheck()) {
+        return;
+    }
+
+    MsgArg* arg = new MsgArg;
+    if (!arg) {
+        Throw("java/lang/OutOfMemoryError", NULL);
+        return;
+    }
+    if (!Marshal(signature.c_str(), jvalue, arg)) {
+        delete arg;
+        return;
+    }
+    arg->Stabilize();
+    SetHandle(thiz, arg);
+    if (env->ExceptionCheck()) {
+        delete arg;
+    }
+}
+
 JNIEXPORT void JNICALL Java_org_alljoyn_bus_BusException_logln(JNIEnv* env, jclass clazz, jstring jline)
 {
     JString line(jline);
@@ -10036,6 +10375,49 @@ JNIEXPORT jbyteArray JNICALL Java_org_alljoyn_bus_MsgArg_getByteArray(JNIEnv* en
     return jarray;
 }
 
+JNIEXPORT jobject JNICALL Java_org_alljoyn_bus_MsgArg_getByteBuffer(JNIEnv* env, jclass clazz, jlong jmsgArg)
+{
+    // QCC_DbgPrintf(("MsgArg_getByteBuffer()"));
+
+    MsgArg* msgArg = (MsgArg*)jmsgArg;
+    assert(ALLJOYN_BYTE_ARRAY == msgArg->typeId);
+    /* An empty array may have no storage, but a direct buffer needs an address. */
+    static uint8_t empty;
+    void* address = msgArg->v_scalarArray.numElements ? (void*)msgArg->v_scalarArray.v_byte : &empty;
+    return env->NewDirectByteBuffer(address, msgArg->v_scalarArray.numElements);
+}
+
+JNIEXPORT jlong JNICALL Java_org_alljoyn_bus_MsgArg_copy(JNIEnv* env, jclass clazz, jlong jmsgArg)
+{
+    // QCC_DbgPrintf(("MsgArg_copy()"));
+
+    MsgArg* argCopy = new MsgArg(*(MsgArg*)jmsgArg);
+    if (!argCopy) {
+        Throw("java/lang/OutOfMemoryError", NULL);
+        return 0;
+    }
+    return (jlong)argCopy;
+}
+
+JNIEXPORT void JNICALL Java_org_alljoyn_bus_MsgArg_destroy(JNIEnv* env, jclass clazz, jlong jmsgArg)
+{
+    // QCC_DbgPrintf(("MsgArg_destroy()"));
+
+    delete (MsgArg*)jmsgArg;
+}
+
+JNIEXPORT jlong JNICALL Java_org_alljoyn_bus_MsgArg_getAddress(JNIEnv* env, jclass clazz, jobject jbuffer)
+{
+    // QCC_DbgPrintf(("MsgArg_getAddress()"));
+
+    void* address = env->GetDirectBufferAddress(jbuffer);
+    if (!address) {
+        Throw("java/lang/IllegalArgumentException", "not a direct buffer");
+        return 0;
+    }
+    return (jlong)address;
+}
+
 JNIEXPORT jshortArray JNICALL Java_org_alljoyn_bus_MsgArg_getInt16Array(JNIEnv* env, jclass clazz, jlong jmsgArg)
 {
     // QCC_DbgPrintf(("MsgArg_getInt16Array()"));
@@ -10382,6 +10764,608 @@ JNIEXPORT jstring JNICALL Java_org_alljoyn_bus_MsgArg_getSignature___3J(JNIEnv*
     return signature;
 }
 
+JNIEXPORT jstring JNICALL Java_org_alljoyn_bus_MsgArg_getArgSignature(JNIEnv* env, jclass clazz, jlong jmsgArg)
+{
+    // QCC_DbgPrintf(("MsgArg_getArgSignature()"));
+
+    MsgArg* msgArg = (MsgArg*)jmsgArg;
+    return env->NewStringUTF(msgArg->Signature().c_str());
+}
+
+/*
+ * The bulk unmarshal encoding of a MsgArg tree, in host byte order:
+ *
+ *   basic types      the value (booleans are one byte)
+ *   strings          int32 length followed by the UTF-8 bytes (no NUL)
+ *   arrays           int32 number of elements followed by the elements
+ *   structs          the members in order
+ *   dict entries     the key followed by the value
+ *   variants         the int64 address of the variant MsgArg itself
+ *
+ * The Java side knows the signature, so no type information is written.
+ */
+
+/**
+ * Computes the size of the bulk unmarshal encoding of a MsgArg.
+ *
+ * @param[in] arg the MsgArg
+ * @return the size in bytes, or (size_t)-1 if the MsgArg contains a type
+ *         that cannot be encoded
+ */
+static size_t EncodedSize(const MsgArg* arg)
+{
+    switch (arg->typeId) {
+    case ALLJOYN_BYTE:
+    case ALLJOYN_BOOLEAN:
+        return 1;
+
+    case ALLJOYN_INT16:
+    case ALLJOYN_UINT16:
+        return 2;
+
+    case ALLJOYN_INT32:
+    case ALLJOYN_UINT32:
+        return 4;
+
+    case ALLJOYN_INT64:
+    case ALLJOYN_UINT64:
+    case ALLJOYN_DOUBLE:
+    case ALLJOYN_VARIANT:
+        return 8;
+
+    case ALLJOYN_STRING:
+        return 4 + arg->v_string.len;
+
+    case ALLJOYN_OBJECT_PATH:
+        return 4 + arg->v_objPath.len;
+
+    case ALLJOYN_SIGNATURE:
+        return 4 + arg->v_signature.len;
+
+    case ALLJOYN_BYTE_ARRAY:
+    case ALLJOYN_BOOLEAN_ARRAY:
+        return 4 + arg->v_scalarArray.numElements;
+
+    case ALLJOYN_INT16_ARRAY:
+    case ALLJOYN_UINT16_ARRAY:
+        return 4 + 2 * arg->v_scalarArray.numElements;
+
+    case ALLJOYN_INT32_ARRAY:
+    case ALLJOYN_UINT32_ARRAY:
+        return 4 + 4 * arg->v_scalarArray.numElements;
+
+    case ALLJOYN_INT64_ARRAY:
+    case ALLJOYN_UINT64_ARRAY:
+    case ALLJOYN_DOUBLE_ARRAY:
+        return 4 + 8 * arg->v_scalarArray.numElements;
+
+    case ALLJOYN_ARRAY: {
+            size_t size = 4;
+            const MsgArg* elements = arg->v_array.GetElements();
+            for (size_t i = 0; i < arg->v_array.GetNumElements(); ++i) {
+                size_t elementSize = EncodedSize(&elements[i]);
+                if (elementSize == (size_t)-1) {
+                    return (size_t)-1;
+                }
+                size += elementSize;
+            }
+            return size;
+        }
+
+    case ALLJOYN_STRUCT: {
+            size_t size = 0;
+            for (size_t i = 0; i < arg->v_struct.numMembers; ++i) {
+                size_t memberSize = EncodedSize(&arg->v_struct.members[i]);
+                if (memberSize == (size_t)-1) {
+                    return (size_t)-1;
+                }
+                size += memberSize;
+            }
+            return size;
+        }
+
+    case ALLJOYN_DICT_ENTRY: {
+            size_t keySize = EncodedSize(arg->v_dictEntry.key);
+            size_t valSize = EncodedSize(arg->v_dictEntry.val);
+            if (keySize == (size_t)-1 || valSize == (size_t)-1) {
+                return (size_t)-1;
+            }
+            return keySize + valSize;
+        }
+
+    default:
+        return (size_t)-1;
+    }
+}
+
+/**
+ * Writes a length or element count of the bulk unmarshal encoding.
+ */
+static uint8_t* EncodeLength(uint8_t* p, size_t len)
+{
+    int32_t n = (int32_t)len;
+    memcpy(p, &n, sizeof(n));
+    return p + sizeof(n);
+}
+
+/**
+ * Writes the bulk unmarshal encoding of a MsgArg.  The destination must be
+ * at least EncodedSize(arg) bytes.
+ *
+ * @param[in] arg the MsgArg
+ * @param[in] p where to write the encoding
+ * @return the first byte after the encoding
+ */
+static uint8_t* Encode(const MsgArg* arg, uint8_t* p)
+{
+    switch (arg->typeId) {
+    case ALLJOYN_BYTE:
+        *p = arg->v_byte;
+        return p + 1;
+
+    case ALLJOYN_BOOLEAN:
+        *p = arg->v_bool ? 1 : 0;
+        return p + 1;
+
+    case ALLJOYN_INT16:
+        memcpy(p, &arg->v_int16, 2);
+        return p + 2;
+
+    case ALLJOYN_UINT16:
+        memcpy(p, &arg->v_uint16, 2);
+        return p + 2;
+
+    case ALLJOYN_INT32:
+        memcpy(p, &arg->v_int32, 4);
+        return p + 4;
+
+    case ALLJOYN_UINT32:
+        memcpy(p, &arg->v_uint32, 4);
+        return p + 4;
+
+    case ALLJOYN_INT64:
+        memcpy(p, &arg->v_int64, 8);
+        return p + 8;
+
+    case ALLJOYN_UINT64:
+        memcpy(p, &arg->v_uint64, 8);
+        return p + 8;
+
+    case ALLJOYN_DOUBLE:
+        memcpy(p, &arg->v_double, 8);
+        return p + 8;
+
+    case ALLJOYN_VARIANT: {
+            jlong address = (jlong)arg;
+            memcpy(p, &address, 8);
+            return p + 8;
+        }
+
+    case ALLJOYN_STRING:
+        p = EncodeLength(p, arg->v_string.len);
+        memcpy(p, arg->v_string.str, arg->v_string.len);
+        return p + arg->v_string.len;
+
+    case ALLJOYN_OBJECT_PATH:
+        p = EncodeLength(p, arg->v_objPath.len);
+        memcpy(p, arg->v_objPath.str, arg->v_objPath.len);
+        return p + arg->v_objPath.len;
+
+    case ALLJOYN_SIGNATURE:
+        p = EncodeLength(p, arg->v_signature.len);
+        memcpy(p, arg->v_signature.sig, arg->v_signature.len);
+        return p + arg->v_signature.len;
+
+    case ALLJOYN_BYTE_ARRAY:
+        p = EncodeLength(p, arg->v_scalarArray.numElements);
+        memcpy(p, arg->v_scalarArray.v_byte, arg->v_scalarArray.numElements);
+        return p + arg->v_scalarArray.numElements;
+
+    case ALLJOYN_BOOLEAN_ARRAY:
+        p = EncodeLength(p, arg->v_scalarArray.numElements);
+        for (size_t i = 0; i < arg->v_scalarArray.numElements; ++i) {
+            *p++ = arg->v_scalarArray.v_bool[i] ? 1 : 0;
+        }
+        return p;
+
+    case ALLJOYN_INT16_ARRAY:
+    case ALLJOYN_UINT16_ARRAY:
+        p = EncodeLength(p, arg->v_scalarArray.numElements);
+        memcpy(p, arg->v_scalarArray.v_int16, 2 * arg->v_scalarArray.numElements);
+        return p + 2 * arg->v_scalarArray.numElements;
+
+    case ALLJOYN_INT32_ARRAY:
+    case ALLJOYN_UINT32_ARRAY:
+        p = EncodeLength(p, arg->v_scalarArray.numElements);
+        memcpy(p, arg->v_scalarArray.v_int32, 4 * arg->v_scalarArray.numElements);
+        return p + 4 * arg->v_scalarArray.numElements;
+
+    case ALLJOYN_INT64_ARRAY:
+    case ALLJOYN_UINT64_ARRAY:
+        p = EncodeLength(p, arg->v_scalarArray.numElements);
+        memcpy(p, arg->v_scalarArray.v_int64, 8 * arg->v_scalarArray.numElements);
+        return p + 8 * arg->v_scalarArray.numElements;
+
+    case ALLJOYN_DOUBLE_ARRAY:
+        p = EncodeLength(p, arg->v_scalarArray.numElements);
+        memcpy(p, arg->v_scalarArray.v_double, 8 * arg->v_scalarArray.numElements);
+        return p + 8 * arg->v_scalarArray.numElements;
+
+    case ALLJOYN_ARRAY: {
+            const MsgArg* elements = arg->v_array.GetElements();
+            p = EncodeLength(p, arg->v_array.GetNumElements());
+            for (size_t i = 0; i < arg->v_array.GetNumElements(); ++i) {
+                p = Encode(&elements[i], p);
+            }
+            return p;
+        }
+
+    case ALLJOYN_STRUCT:
+        for (size_t i = 0; i < arg->v_struct.numMembers; ++i) {
+            p = Encode(&arg->v_struct.members[i], p);
+        }
+        return p;
+
+    case ALLJOYN_DICT_ENTRY:
+        p = Encode(arg->v_dictEntry.key, p);
+        return Encode(arg->v_dictEntry.val, p);
+
+    default:
+        assert(false);
+        return p;
+    }
+}
+
+JNIEXPORT jint JNICALL Java_org_alljoyn_bus_MsgArg_encode(JNIEnv* env, jclass clazz, jlong jmsgArg, jobject jbuffer)
+{
+    // QCC_DbgPrintf(("MsgArg_encode()"));
+
+    MsgArg* msgArg = (MsgArg*)jmsgArg;
+    size_t size = EncodedSize(msgArg);
+    if (size == (size_t)-1 || size > 0x7fffffff) {
+        return -1;
+    }
+
+    uint8_t* buffer = (uint8_t*)env->GetDirectBufferAddress(jbuffer);
+    if (!buffer) {
+        Throw("java/lang/IllegalArgumentException", "not a direct buffer");
+        return -1;
+    }
+    if ((jlong)size <= env->GetDirectBufferCapacity(jbuffer)) {
+        Encode(msgArg, buffer);
+    }
+    return (jint)size;
+}
+
+/*
+ * The bulk marshal encoding of Java arguments, written by Codec.encode() in
+ * host byte order.  It follows the bulk unmarshal encoding above except
+ * that strings are NUL terminated and variants start with a one byte tag:
+ *
+ *   0  followed by the int64 address of a MsgArg to copy
+ *   1  followed by the signature as a string, then the encoded value
+ *
+ * A byte array may also be encoded as an element count of -1 followed by
+ * the int64 address and int32 length of bytes to refer to in place.
+ */
+
+/** A cursor over the bulk marshal encoding. */
+struct EncodedReader {
+    const uint8_t* p;
+    const uint8_t* end;
+
+    bool Read(void* dst, size_t len)
+    {
+        if ((size_t)(end - p) < len) {
+            return false;
+        }
+        memcpy(dst, p, len);
+        p += len;
+        return true;
+    }
+
+    /** Returns a NUL terminated string of len bytes in place, or NULL. */
+    const char* ReadString(size_t len)
+    {
+        if ((size_t)(end - p) <= len || p[len] != 0) {
+            return NULL;
+        }
+        const char* str = (const char*)p;
+        p += len + 1;
+        return str;
+    }
+};
+
+/**
+ * Sets a MsgArg from the bulk marshal encoding.
+ *
+ * @param[in] arg the MsgArg to set
+ * @param[in,out] sig the signature of the complete type to set, advanced past it
+ * @param[in,out] in the encoding, advanced past the encoded value
+ * @return ER_OK if successful, an error otherwise
+ */
+static QStatus SetEncoded(MsgArg* arg, const char*& sig, EncodedReader& in)
+{
+    char typeSig[2] = { *sig, 0 };
+    switch (*sig++) {
+    case 'y': {
+            uint8_t y;
+            return in.Read(&y, 1) ? arg->Set(typeSig, y) : ER_BUS_BAD_VALUE;
+        }
+
+    case 'b': {
+            uint8_t b;
+            return in.Read(&b, 1) ? arg->Set(typeSig, b != 0) : ER_BUS_BAD_VALUE;
+        }
+
+    case 'n':
+    case 'q': {
+            uint16_t n;
+            return in.Read(&n, 2) ? arg->Set(typeSig, n) : ER_BUS_BAD_VALUE;
+        }
+
+    case 'i':
+    case 'u': {
+            uint32_t i;
+            return in.Read(&i, 4) ? arg->Set(typeSig, i) : ER_BUS_BAD_VALUE;
+        }
+
+    case 'x':
+    case 't': {
+            uint64_t x;
+            return in.Read(&x, 8) ? arg->Set(typeSig, x) : ER_BUS_BAD_VALUE;
+        }
+
+    case 'd': {
+            double d;
+            return in.Read(&d, 8) ? arg->Set(typeSig, d) : ER_BUS_BAD_VALUE;
+        }
+
+    case 's':
+    case 'o':
+    case 'g': {
+            int32_t len;
+            const char* str = in.Read(&len, 4) && len >= 0 ? in.ReadString(len) : NULL;
+            if (!str) {
+                return ER_BUS_BAD_VALUE;
+            }
+            QStatus status = arg->Set(typeSig, str);
+            if (ER_OK == status) {
+                arg->Stabilize();
+            }
+            return status;
+        }
+
+    case 'a': {
+            int32_t numElements;
+            if (!in.Read(&numElements, 4) || numElements < -1) {
+                return ER_BUS_BAD_VALUE;
+            }
+            const char* elemSig = sig;
+            QStatus status = SignatureUtils::ParseCompleteType(sig);
+            if (ER_OK != status) {
+                return status;
+            }
+
+            if (-1 == numElements) {
+                /* A byte array referred to in place, the caller keeps it alive. */
+                jlong address;
+                int32_t length;
+                if ('y' != *elemSig || !in.Read(&address, 8) || !in.Read(&length, 4) || length < 0) {
+                    return ER_BUS_BAD_VALUE;
+                }
+                return arg->Set("ay", (size_t)length, (const uint8_t*)address);
+            }
+
+            size_t elemSize = 0;
+            switch (*elemSig) {
+            case 'y':
+            case 'b':
+                elemSize = 1;
+                break;
+
+            case 'n':
+            case 'q':
+                elemSize = 2;
+                break;
+
+            case 'i':
+            case 'u':
+                elemSize = 4;
+                break;
+
+            case 'x':
+            case 't':
+            case 'd':
+                elemSize = 8;
+                break;
+            }
+
+            if (elemSize) {
+                size_t size = elemSize * numElements;
+                if ((size_t)(in.end - in.p) < size) {
+                    return ER_BUS_BAD_VALUE;
+                }
+                char arraySig[3] = { 'a', *elemSig, 0 };
+                if ('b' == *elemSig) {
+                    /* Booleans are one byte in the encoding, so can't just do a straight copy. */
+                    bool* v_bool = new bool[numElements];
+                    if (!v_bool) {
+                        return ER_OUT_OF_MEMORY;
+                    }
+                    for (int32_t i = 0; i < numElements; ++i) {
+                        v_bool[i] = (in.p[i] != 0);
+                    }
+                    status = arg->Set(arraySig, (size_t)numElements, v_bool);
+                    if (ER_OK == status) {
+                        arg->SetOwnershipFlags(MsgArg::OwnsData);
+                    } else {
+                        delete [] v_bool;
+                    }
+                } else {
+                    status = arg->Set(arraySig, (size_t)numElements, in.p);
+                    if (ER_OK == status) {
+                        arg->Stabilize();
+                    }
+                }
+                in.p += size;
+                return status;
+            }
+
+            MsgArg* elements = new MsgArg[numElements];
+            if (!elements) {
+                return ER_OUT_OF_MEMORY;
+            }
+            for (int32_t i = 0; ER_OK == status && i < numElements; ++i) {
+                const char* next = elemSig;
+                status = SetEncoded(&elements[i], next, in);
+            }
+            if (ER_OK == status) {
+                String elemSigStr(elemSig, sig - elemSig);
+                status = arg->v_array.SetElements(elemSigStr.c_str(), numElements, elements);
+            }
+            if (ER_OK != status) {
+                delete [] elements;
+                return status;
+            }
+            arg->SetOwnershipFlags(MsgArg::OwnsArgs);
+            arg->typeId = ALLJOYN_ARRAY;
+            return ER_OK;
+        }
+
+    case '(': {
+            size_t numMembers = 0;
+            const char* memberSig = sig;
+            while (*sig && *sig != ')') {
+                QStatus status = SignatureUtils::ParseCompleteType(sig);
+                if (ER_OK != status) {
+                    return status;
+                }
+                ++numMembers;
+            }
+            if (*sig++ != ')') {
+                return ER_BUS_BAD_SIGNATURE;
+            }
+
+            MsgArg* members = new MsgArg[numMembers];
+            if (!members) {
+                return ER_OUT_OF_MEMORY;
+            }
+            QStatus status = ER_OK;
+            for (size_t i = 0; ER_OK == status && i < numMembers; ++i) {
+                status = SetEncoded(&members[i], memberSig, in);
+            }
+            if (ER_OK != status) {
+                delete [] members;
+                return status;
+            }
+            arg->v_struct.numMembers = numMembers;
+            arg->v_struct.members = members;
+            arg->SetOwnershipFlags(MsgArg::OwnsArgs);
+            arg->typeId = ALLJOYN_STRUCT;
+            return ER_OK;
+        }
+
+    case '{': {
+            MsgArg* key = new MsgArg;
+            MsgArg* val = new MsgArg;
+            if (!key || !val) {
+                delete val;
+                delete key;
+                return ER_OUT_OF_MEMORY;
+            }
+            QStatus status = SetEncoded(key, sig, in);
+            if (ER_OK == status) {
+                status = SetEncoded(val, sig, in);
+            }
+            if (ER_OK == status && *sig++ != '}') {
+                status = ER_BUS_BAD_SIGNATURE;
+            }
+            if (ER_OK != status) {
+                delete val;
+                delete key;
+                return status;
+            }
+            arg->v_dictEntry.key = key;
+            arg->v_dictEntry.val = val;
+            arg->SetOwnershipFlags(MsgArg::OwnsArgs);
+            arg->typeId = ALLJOYN_DICT_ENTRY;
+            return ER_OK;
+        }
+
+    case 'v': {
+            uint8_t tag;
+            if (!in.Read(&tag, 1)) {
+                return ER_BUS_BAD_VALUE;
+            }
+            MsgArg* val;
+            if (0 == tag) {
+                jlong address;
+                if (!in.Read(&address, 8) || !address) {
+                    return ER_BUS_BAD_VALUE;
+                }
+                val = new MsgArg(*(MsgArg*)address);
+                if (!val) {
+                    return ER_OUT_OF_MEMORY;
+                }
+            } else {
+                int32_t len;
+                const char* valSig = in.Read(&len, 4) && len >= 0 ? in.ReadString(len) : NULL;
+                if (!valSig) {
+                    return ER_BUS_BAD_VALUE;
+                }
+                val = new MsgArg;
+                if (!val) {
+                    return ER_OUT_OF_MEMORY;
+                }
+                QStatus status = SetEncoded(val, valSig, in);
+                if (ER_OK == status && *valSig) {
+                    status = ER_BUS_BAD_SIGNATURE;
+                }
+                if (ER_OK != status) {
+                    delete val;
+                    return status;
+                }
+            }
+            arg->v_variant.val = val;
+            arg->SetOwnershipFlags(MsgArg::OwnsArgs);
+            arg->typeId = ALLJOYN_VARIANT;
+            return ER_OK;
+        }
+
+    default:
+        return ER_BUS_BAD_SIGNATURE;
+    }
+}
+
+JNIEXPORT void JNICALL Java_org_alljoyn_bus_MsgArg_setEncoded(JNIEnv* env, jclass clazz, jlong jmsgArg, jstring jsignature, jobject jbuffer, jint length)
+{
+    // QCC_DbgPrintf(("MsgArg_setEncoded()"));
+
+    JString signature(jsignature);
+    if (env->ExceptionCheck()) {
+        return;
+    }
+
+    const uint8_t* buffer = (const uint8_t*)env->GetDirectBufferAddress(jbuffer);
+    if (!buffer || length < 0 || (jlong)length > env->GetDirectBufferCapacity(jbuffer)) {
+        Throw("java/lang/IllegalArgumentException", "not a direct buffer");
+        return;
+    }
+
+    MsgArg* msgArg = (MsgArg*)jmsgArg;
+    EncodedReader in = { buffer, buffer + length };
+    const char* sig = signature.c_str();
+    QStatus status = SetEncoded(msgArg, sig, in);
+    if (ER_OK == status && (*sig || in.p != in.end)) {
+        status = ER_BUS_BAD_VALUE;
+    }
+    if (ER_OK != status) {
+        msgArg->Clear();
+        env->ThrowNew(CLS_BusException, QCC_StatusText(status));
+    }
+}
+
 /**
  * Calls MsgArgUtils::SetV() to set the values of a MsgArg.
  *
@@ -10479,6 +11463,27 @@ JNIEXPORT jlong JNICALL Java_org_alljoyn_bus_MsgArg_set__JLjava_lang_String_2_3B
     return (jlong)arg;
 }
 
+JNIEXPORT jlong JNICALL Java_org_alljoyn_bus_MsgArg_set__JLjava_lang_String_2Ljava_nio_ByteBuffer_2IIZ(JNIEnv* env, jclass clazz, jlong jmsgArg, jstring jsignature, jobject jbuffer, jint offset, jint length, jboolean inPlace)
+{
+    // QCC_DbgPrintf(("MsgArg_set__JLjava_lang_String_2Ljava_nio_ByteBuffer_2IIZ"));
+
+    uint8_t* buffer = (uint8_t*)env->GetDirectBufferAddress(jbuffer);
+    if (!buffer || offset < 0 || length < 0 || (jlong)offset + length > env->GetDirectBufferCapacity(jbuffer)) {
+        Throw("java/lang/IllegalArgumentException", "not a direct buffer");
+        return 0;
+    }
+
+    /*
+     * Unless stabilized the MsgArg refers to the buffer's memory, which the
+     * caller guarantees outlives the MsgArg.
+     */
+    MsgArg* arg = Set(env, (MsgArg*)jmsgArg, jsignature, (size_t)length, buffer + offset);
+    if (arg && !inPlace) {
+        arg->Stabilize();
+    }
+    return (jlong)arg;
+}
+
 JNIEXPORT jlong JNICALL Java_org_alljoyn_bus_MsgArg_set__JLjava_lang_String_2_3Z(JNIEnv* env, jclass clazz, jlong jmsgArg, jstring jsignature, jbooleanArray jarray)
 {
     // QCC_DbgPrintf(("MsgArg_set__JLjava_lang_String_2_3Z"));
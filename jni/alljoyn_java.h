@@ -699,6 +699,14 @@ JNIEXPORT void JNICALL Java_org_alljoyn_bus_ProxyBusObject_destroy
 JNIEXPORT jobject JNICALL Java_org_alljoyn_bus_ProxyBusObject_methodCall
   (JNIEnv *, jobject, jobject, jstring, jstring, jstring, jobject, jobjectArray, jint, jint);
 
+/*
+ * Class:     org_alljoyn_bus_ProxyBusObject
+ * Method:    methodCallAsync
+ * Signature: (Lorg/alljoyn/bus/BusAttachment;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;[Ljava/lang/Object;IILorg/alljoyn/bus/MethodCallFuture;)V
+ */
+JNIEXPORT void JNICALL Java_org_alljoyn_bus_ProxyBusObject_methodCallAsync
+  (JNIEnv *, jobject, jobject, jstring, jstring, jstring, jobjectArray, jint, jint, jobject);
+
 /*
  * Class:     org_alljoyn_bus_ProxyBusObject
  * Method:    getProperty
@@ -760,6 +768,14 @@ extern "C" {
 JNIEXPORT void JNICALL Java_org_alljoyn_bus_SignalEmitter_signal
 (JNIEnv *, jobject, jobject, jstring, jint, jstring, jstring, jstring, jobjectArray, jint, jint, jobject);
 
+/*
+ * Class:     org_alljoyn_bus_SignalEmitter
+ * Method:    signalFanOut
+ * Signature: (Lorg/alljoyn/bus/BusObject;[Ljava/lang/String;[ILjava/lang/String;Ljava/lang/String;Ljava/lang/String;[Ljava/lang/Object;II)[Lorg/alljoyn/bus/Status;
+ */
+JNIEXPORT jobjectArray JNICALL Java_org_alljoyn_bus_SignalEmitter_signalFanOut
+(JNIEnv *, jobject, jobject, jobjectArray, jintArray, jstring, jstring, jstring, jobjectArray, jint, jint);
+
 /*
  * Class:     org_alljoyn_bus_SignalEmitter
  * Method:    cancelSessionlessSignal
@@ -779,25 +795,6 @@ JNIEXPORT jobject JNICALL Java_org_alljoyn_bus_SignalEmitter_cancelSessionlessSi
 #ifdef __cplusplus
 extern "C" {
 #endif
-#ifdef __cplusplus
-}
-#endif
-#endif
-/* Header for class org_alljoyn_bus_Signature */
-
-#ifndef _Included_org_alljoyn_bus_Signature
-#define _Included_org_alljoyn_bus_Signature
-#ifdef __cplusplus
-extern "C" {
-#endif
-/*
- * Class:     org_alljoyn_bus_Signature
- * Method:    split
- * Signature: (Ljava/lang/String;)[Ljava/lang/String;
- */
-JNIEXPORT jobjectArray JNICALL Java_org_alljoyn_bus_Signature_split
-  (JNIEnv *, jclass, jstring);
-
 #ifdef __cplusplus
 }
 #endif
@@ -837,6 +834,14 @@ JNIEXPORT void JNICALL Java_org_alljoyn_bus_Variant_destroy
 JNIEXPORT void JNICALL Java_org_alljoyn_bus_Variant_setMsgArg
   (JNIEnv *, jobject, jlong);
 
+/*
+ * Class:     org_alljoyn_bus_Variant
+ * Method:    freeze
+ * Signature: (Ljava/lang/String;Ljava/lang/Object;)V
+ */
+JNIEXPORT void JNICALL Java_org_alljoyn_bus_Variant_freeze
+  (JNIEnv *, jobject, jstring, jobject);
+
 #ifdef __cplusplus
 }
 #endif
@@ -1164,6 +1169,38 @@ JNIEXPORT jlong JNICALL Java_org_alljoyn_bus_MsgArg_getKey
 JNIEXPORT jbyteArray JNICALL Java_org_alljoyn_bus_MsgArg_getByteArray
   (JNIEnv *, jclass, jlong);
 
+/*
+ * Class:     org_alljoyn_bus_MsgArg
+ * Method:    getByteBuffer
+ * Signature: (J)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_org_alljoyn_bus_MsgArg_getByteBuffer
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_alljoyn_bus_MsgArg
+ * Method:    copy
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_org_alljoyn_bus_MsgArg_copy
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_alljoyn_bus_MsgArg
+ * Method:    destroy
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_alljoyn_bus_MsgArg_destroy
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_alljoyn_bus_MsgArg
+ * Method:    getAddress
+ * Signature: (Ljava/nio/ByteBuffer;)J
+ */
+JNIEXPORT jlong JNICALL Java_org_alljoyn_bus_MsgArg_getAddress
+  (JNIEnv *, jclass, jobject);
+
 /*
  * Class:     org_alljoyn_bus_MsgArg
  * Method:    getInt16Array
@@ -1340,6 +1377,30 @@ JNIEXPORT jstring JNICALL Java_org_alljoyn_bus_MsgArg_getSignature__J
 JNIEXPORT jstring JNICALL Java_org_alljoyn_bus_MsgArg_getSignature___3J
   (JNIEnv *, jclass, jlongArray);
 
+/*
+ * Class:     org_alljoyn_bus_MsgArg
+ * Method:    getArgSignature
+ * Signature: (J)Ljava/lang/String;
+ */
+JNIEXPORT jstring JNICALL Java_org_alljoyn_bus_MsgArg_getArgSignature
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_alljoyn_bus_MsgArg
+ * Method:    encode
+ * Signature: (JLjava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_org_alljoyn_bus_MsgArg_encode
+  (JNIEnv *, jclass, jlong, jobject);
+
+/*
+ * Class:     org_alljoyn_bus_MsgArg
+ * Method:    setEncoded
+ * Signature: (JLjava/lang/String;Ljava/nio/ByteBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_org_alljoyn_bus_MsgArg_setEncoded
+  (JNIEnv *, jclass, jlong, jstring, jobject, jint);
+
 /*
  * Class:     org_alljoyn_bus_MsgArg
  * Method:    set
@@ -1404,6 +1465,14 @@ JNIEXPORT jlong JNICALL Java_org_alljoyn_bus_MsgArg_set__JLjava_lang_String_2Lja
 JNIEXPORT jlong JNICALL Java_org_alljoyn_bus_MsgArg_set__JLjava_lang_String_2_3B
   (JNIEnv *, jclass, jlong, jstring, jbyteArray);
 
+/*
+ * Class:     org_alljoyn_bus_MsgArg
+ * Method:    set
+ * Signature: (JLjava/lang/String;Ljava/nio/ByteBuffer;IIZ)J
+ */
+JNIEXPORT jlong JNICALL Java_org_alljoyn_bus_MsgArg_set__JLjava_lang_String_2Ljava_nio_ByteBuffer_2IIZ
+  (JNIEnv *, jclass, jlong, jstring, jobject, jint, jint, jboolean);
+
 /*
  * Class:     org_alljoyn_bus_MsgArg
  * Method:    set
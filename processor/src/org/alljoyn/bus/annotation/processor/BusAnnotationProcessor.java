@@ -0,0 +1,743 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.alljoyn.bus.annotation.processor;
+
+import org.alljoyn.bus.annotation.BusInterface;
+import org.alljoyn.bus.annotation.BusMethod;
+import org.alljoyn.bus.annotation.BusProperty;
+import org.alljoyn.bus.annotation.BusSignal;
+import org.alljoyn.bus.annotation.Position;
+import org.alljoyn.bus.annotation.Signature;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates the signatures and a proxy class of each {@link BusInterface}
+ * and an accessor for each class with {@link Position} annotated fields, so
+ * that the runtime does not need reflection to find them.  See {@code
+ * org.alljoyn.bus.InterfaceSignatures}, {@code
+ * org.alljoyn.bus.GeneratedProxy} and {@code org.alljoyn.bus.StructAccessor}
+ * for what is generated.
+ *
+ * Signatures are computed by the same rules as the runtime.  A member whose
+ * signature cannot be computed is left out with a note, and a struct
+ * class the runtime could not instantiate or access is skipped, so that the
+ * runtime falls back to reflection and reports the error as it always has.
+ *
+ * The processor is found by javac when {@code alljoyn-processor.jar} is on
+ * the class path or processor path.
+ */
+@SupportedAnnotationTypes({ "org.alljoyn.bus.annotation.BusInterface",
+                            "org.alljoyn.bus.annotation.Position" })
+public class BusAnnotationProcessor extends AbstractProcessor {
+
+    private static final String SIGNATURES_SUFFIX = "_BusSignatures";
+
+    private static final String STRUCT_SUFFIX = "_BusStruct";
+
+    private static final String PROXY_SUFFIX = "_BusProxy";
+
+    /** Bounds the nesting of struct signatures, which would otherwise recurse forever. */
+    private static final int MAX_DEPTH = 32;
+
+    /** Thrown when a signature cannot be computed. */
+    private static final class SignatureException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        SignatureException(String msg) {
+            super(msg);
+        }
+    }
+
+    /** The type elements already generated for, since a type may be seen in several rounds. */
+    private final Set<String> generated = new LinkedHashSet<String>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(BusInterface.class)) {
+            if (element.getKind() == ElementKind.INTERFACE) {
+                generateSignatures((TypeElement) element);
+                generateProxy((TypeElement) element);
+            }
+        }
+        Set<TypeElement> structs = new LinkedHashSet<TypeElement>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(Position.class)) {
+            if (element.getKind() == ElementKind.FIELD
+                && element.getEnclosingElement().getKind() == ElementKind.CLASS) {
+                structs.add((TypeElement) element.getEnclosingElement());
+            }
+        }
+        for (TypeElement struct : structs) {
+            generateStruct(struct);
+        }
+        return false;
+    }
+
+    /*
+     * Interface signatures.
+     */
+
+    private void generateSignatures(TypeElement intf) {
+        Map<String, String> in = new LinkedHashMap<String, String>();
+        Map<String, String> out = new LinkedHashMap<String, String>();
+        Map<String, String> property = new LinkedHashMap<String, String>();
+
+        for (ExecutableElement method : ElementFilter.methodsIn(intf.getEnclosedElements())) {
+            if (method.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            String key = key(method);
+            List<TypeMirror> params = new ArrayList<TypeMirror>();
+            for (VariableElement param : method.getParameters()) {
+                params.add(param.asType());
+            }
+            try {
+                BusProperty busProperty = method.getAnnotation(BusProperty.class);
+                if (busProperty != null) {
+                    TypeMirror type;
+                    String name = method.getSimpleName().toString();
+                    if (name.startsWith("get")) {
+                        type = method.getReturnType();
+                    } else if (name.startsWith("set") && params.size() > 0) {
+                        type = params.get(0);
+                    } else {
+                        continue;
+                    }
+                    property.put(key, typeSig(type, nonEmpty(busProperty.signature()), 0));
+                    continue;
+                }
+                String inputSig = null;
+                String replySig = null;
+                BusMethod busMethod = method.getAnnotation(BusMethod.class);
+                BusSignal busSignal = method.getAnnotation(BusSignal.class);
+                if (busMethod != null) {
+                    inputSig = nonEmpty(busMethod.signature());
+                    replySig = nonEmpty(busMethod.replySignature());
+                }
+                if (busSignal != null) {
+                    inputSig = (inputSig == null) ? nonEmpty(busSignal.signature()) : inputSig;
+                    replySig = (replySig == null) ? nonEmpty(busSignal.replySignature()) : replySig;
+                }
+                in.put(key, typeSig(params, inputSig));
+                out.put(key, typeSig(method.getReturnType(), replySig, 0));
+            } catch (SignatureException ex) {
+                in.remove(key);
+                out.remove(key);
+                property.remove(key);
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "cannot compute the bus signature, it will be computed at runtime: "
+                    + ex.getMessage(), method);
+            }
+        }
+
+        String className = generatedName(intf, SIGNATURES_SUFFIX);
+        if (className == null) {
+            return;
+        }
+        PrintWriter w = open(className, intf);
+        if (w == null) {
+            return;
+        }
+        header(w, className);
+        w.println("public final class " + simpleName(className)
+                  + " implements org.alljoyn.bus.InterfaceSignatures {");
+        w.println();
+        w.println("    private static final java.util.Map<String, String> IN =");
+        w.println("        new java.util.HashMap<String, String>();");
+        w.println("    private static final java.util.Map<String, String> OUT =");
+        w.println("        new java.util.HashMap<String, String>();");
+        w.println("    private static final java.util.Map<String, String> PROPERTY =");
+        w.println("        new java.util.HashMap<String, String>();");
+        w.println();
+        w.println("    static {");
+        puts(w, "IN", in);
+        puts(w, "OUT", out);
+        puts(w, "PROPERTY", property);
+        w.println("    }");
+        w.println();
+        w.println("    public String getInputSig(String member) {");
+        w.println("        return IN.get(member);");
+        w.println("    }");
+        w.println();
+        w.println("    public String getOutSig(String member) {");
+        w.println("        return OUT.get(member);");
+        w.println("    }");
+        w.println();
+        w.println("    public String getPropertySig(String member) {");
+        w.println("        return PROPERTY.get(member);");
+        w.println("    }");
+        w.println("}");
+        w.close();
+    }
+
+    private static void puts(PrintWriter w, String map, Map<String, String> sigs) {
+        for (Map.Entry<String, String> entry : sigs.entrySet()) {
+            w.println("        " + map + ".put(" + literal(entry.getKey()) + ", "
+                      + literal(entry.getValue()) + ");");
+        }
+    }
+
+    /**
+     * Gets the key of a method, the same as {@code Generated.key(Method)}
+     * computes at runtime from the erased parameter types.
+     */
+    private String key(ExecutableElement method) {
+        StringBuilder sb = new StringBuilder(method.getSimpleName()).append('(');
+        List<? extends VariableElement> params = method.getParameters();
+        for (int i = 0; i < params.size(); ++i) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(className(processingEnv.getTypeUtils().erasure(params.get(i).asType())));
+        }
+        return sb.append(')').toString();
+    }
+
+    /** Returns what {@link Class#getName()} returns for an erased type. */
+    private String className(TypeMirror type) {
+        switch (type.getKind()) {
+        case ARRAY:
+            return "[" + descriptor(((ArrayType) type).getComponentType());
+        case DECLARED:
+            return binaryName((TypeElement) ((DeclaredType) type).asElement());
+        default:
+            return type.toString();
+        }
+    }
+
+    private String descriptor(TypeMirror type) {
+        switch (type.getKind()) {
+        case BOOLEAN: return "Z";
+        case BYTE: return "B";
+        case CHAR: return "C";
+        case SHORT: return "S";
+        case INT: return "I";
+        case LONG: return "J";
+        case FLOAT: return "F";
+        case DOUBLE: return "D";
+        case ARRAY: return "[" + descriptor(((ArrayType) type).getComponentType());
+        default: return "L" + className(type) + ";";
+        }
+    }
+
+    private String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    /*
+     * Signature computation, following org.alljoyn.bus.Signature.
+     */
+
+    private static String nonEmpty(String sig) {
+        return (sig.length() > 0) ? sig : null;
+    }
+
+    private String typeSig(List<TypeMirror> types, String signature) throws SignatureException {
+        List<String> signatures = null;
+        if (signature != null) {
+            signatures = split(signature);
+            if (signatures == null || signatures.size() < types.size()) {
+                throw new SignatureException("bad signature '" + signature + "'");
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < types.size(); ++i) {
+            sb.append(typeSig(types.get(i), (signatures == null) ? null : signatures.get(i), 0));
+        }
+        return sb.toString();
+    }
+
+    private String typeSig(TypeMirror type, String signature, int depth) throws SignatureException {
+        if (depth > MAX_DEPTH) {
+            throw new SignatureException("struct nesting too deep at " + type);
+        }
+        switch (type.getKind()) {
+        case VOID:
+            return "";
+        case BYTE:
+            return (signature == null) ? "y" : signature;
+        case BOOLEAN:
+            return (signature == null) ? "b" : signature;
+        case SHORT:
+            return (signature == null) ? "n" : signature;
+        case INT:
+            return (signature == null) ? "i" : signature;
+        case LONG:
+            return (signature == null) ? "x" : signature;
+        case DOUBLE:
+            return (signature == null) ? "d" : signature;
+        case ARRAY: {
+            String sig = (signature == null) ? "a" : signature.substring(0, 1);
+            return sig + typeSig(((ArrayType) type).getComponentType(),
+                                 (signature == null) ? null : signature.substring(1), depth);
+        }
+        case DECLARED:
+            return declaredTypeSig((DeclaredType) type, signature, depth);
+        default:
+            throw new SignatureException("cannot determine signature for " + type);
+        }
+    }
+
+    private String declaredTypeSig(DeclaredType type, String signature, int depth)
+            throws SignatureException {
+        TypeElement element = (TypeElement) type.asElement();
+        String name = element.getQualifiedName().toString();
+
+        if (!type.getTypeArguments().isEmpty()) {
+            List<? extends TypeMirror> actuals = type.getTypeArguments();
+            if (isSubtype(type, "java.util.Map")) {
+                List<String> signatures = null;
+                if (signature != null) {
+                    if (signature.length() < 4) {
+                        throw new SignatureException("bad signature '" + signature + "'");
+                    }
+                    signatures = split(signature.substring(2, signature.length() - 1));
+                    if (signatures == null || signatures.size() < actuals.size()) {
+                        throw new SignatureException("bad signature '" + signature + "'");
+                    }
+                }
+                StringBuilder sb = new StringBuilder("a{");
+                for (int i = 0; i < actuals.size(); ++i) {
+                    sb.append(typeSig(actuals.get(i), (signatures == null) ? null : signatures.get(i), depth));
+                }
+                return sb.append('}').toString();
+            } else if (isSubtype(type, "java.util.Collection")) {
+                return "a" + typeSig(actuals.get(0), (signature == null) ? null : signature.substring(1), depth);
+            }
+            throw new SignatureException("unsupported parameterized type " + type);
+        }
+
+        if ("java.lang.Void".equals(name)) {
+            return "";
+        } else if ("java.lang.Byte".equals(name)) {
+            return (signature == null) ? "y" : signature;
+        } else if ("java.lang.Boolean".equals(name)) {
+            return (signature == null) ? "b" : signature;
+        } else if ("java.lang.Short".equals(name)) {
+            return (signature == null) ? "n" : signature;
+        } else if ("java.lang.Integer".equals(name)) {
+            return (signature == null) ? "i" : signature;
+        } else if ("java.lang.Long".equals(name)) {
+            return (signature == null) ? "x" : signature;
+        } else if ("java.lang.Double".equals(name)) {
+            return (signature == null) ? "d" : signature;
+        } else if ("java.lang.String".equals(name)) {
+            return (signature == null) ? "s" : signature;
+        } else if (isSubtype(type, "org.alljoyn.bus.Variant")) {
+            return (signature == null) ? "v" : signature;
+        } else if (isSubtype(type, "java.nio.ByteBuffer")) {
+            return (signature == null) ? "ay" : signature;
+        } else if (element.getKind() == ElementKind.ENUM && signature == null) {
+            throw new SignatureException("enum type " + type + " is missing annotation");
+        } else if (signature == null || "r".equals(signature)) {
+            return "(" + structSig(element, depth + 1) + ")";
+        } else {
+            return signature;
+        }
+    }
+
+    private String structSig(TypeElement struct, int depth) throws SignatureException {
+        List<VariableElement> fields = publicFields(struct);
+        String[] sigs = new String[fields.size()];
+        for (VariableElement field : fields) {
+            Position position = field.getAnnotation(Position.class);
+            if (position == null) {
+                throw new SignatureException("field " + field + " of " + struct + " does not annotate position");
+            }
+            if (position.value() < 0 || position.value() >= sigs.length || sigs[position.value()] != null) {
+                throw new SignatureException("bad position " + position.value() + " of " + field + " of " + struct);
+            }
+            Signature signature = field.getAnnotation(Signature.class);
+            String sig = (signature == null || "r".equals(signature.value())) ? null : signature.value();
+            sigs[position.value()] = typeSig(field.asType(), sig, depth);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String sig : sigs) {
+            sb.append(sig);
+        }
+        if (sb.length() == 0) {
+            throw new SignatureException("cannot determine signature for " + struct);
+        }
+        return sb.toString();
+    }
+
+    private boolean isSubtype(TypeMirror type, String className) {
+        TypeElement element = processingEnv.getElementUtils().getTypeElement(className);
+        if (element == null) {
+            return false;
+        }
+        return processingEnv.getTypeUtils().isSubtype(processingEnv.getTypeUtils().erasure(type),
+                                                      processingEnv.getTypeUtils().erasure(element.asType()));
+    }
+
+    /** Returns the fields {@link Class#getFields()} returns at runtime. */
+    private List<VariableElement> publicFields(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<VariableElement>();
+        for (VariableElement field : ElementFilter.fieldsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (field.getModifiers().contains(Modifier.PUBLIC)) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Splits a signature into its complete types.
+     *
+     * @return the complete types, or {@code null} if the signature is invalid
+     */
+    static List<String> split(String sig) {
+        List<String> sigs = new ArrayList<String>();
+        int i = 0;
+        while (i < sig.length()) {
+            int end = parseCompleteType(sig, i);
+            if (end < 0) {
+                return null;
+            }
+            sigs.add(sig.substring(i, end));
+            i = end;
+        }
+        return sigs;
+    }
+
+    /** Returns the index after the complete type starting at i, or -1 if invalid. */
+    private static int parseCompleteType(String sig, int i) {
+        if (i >= sig.length()) {
+            return -1;
+        }
+        switch (sig.charAt(i)) {
+        case 'y': case 'b': case 'n': case 'q': case 'i': case 'u': case 'x': case 't':
+        case 'd': case 's': case 'o': case 'g': case 'v': case 'h':
+            return i + 1;
+        case 'a':
+            return parseCompleteType(sig, i + 1);
+        case '(':
+            ++i;
+            while (i < sig.length() && sig.charAt(i) != ')') {
+                i = parseCompleteType(sig, i);
+                if (i < 0) {
+                    return -1;
+                }
+            }
+            return (i < sig.length()) ? i + 1 : -1;
+        case '{':
+            i = parseCompleteType(sig, i + 1);
+            i = (i < 0) ? -1 : parseCompleteType(sig, i);
+            return (i >= 0 && i < sig.length() && sig.charAt(i) == '}') ? i + 1 : -1;
+        default:
+            return -1;
+        }
+    }
+
+    /*
+     * Proxy classes.
+     */
+
+    private void generateProxy(TypeElement intf) {
+        if (!intf.getTypeParameters().isEmpty() || !isVisible(intf)) {
+            return;
+        }
+        TypeMirror busException = processingEnv.getElementUtils()
+            .getTypeElement("org.alljoyn.bus.BusException").asType();
+        List<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+        Set<String> keys = new LinkedHashSet<String>();
+        for (ExecutableElement method
+                 : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(intf))) {
+            if (method.getModifiers().contains(Modifier.STATIC)
+                || !method.getModifiers().contains(Modifier.ABSTRACT)
+                || ((TypeElement) method.getEnclosingElement()).getQualifiedName().contentEquals("java.lang.Object")) {
+                continue;
+            }
+            if (!method.getTypeParameters().isEmpty()) {
+                /* Leave generic methods to the reflection proxy. */
+                return;
+            }
+            if (keys.add(key(method))) {
+                methods.add(method);
+            }
+        }
+
+        String className = generatedName(intf, PROXY_SUFFIX);
+        if (className == null) {
+            return;
+        }
+        PrintWriter w = open(className, intf);
+        if (w == null) {
+            return;
+        }
+        String intfName = intf.getQualifiedName().toString();
+        header(w, className);
+        w.println("@SuppressWarnings(\"unchecked\")");
+        w.println("public final class " + simpleName(className)
+                  + " extends org.alljoyn.bus.GeneratedProxy implements " + intfName + " {");
+        w.println();
+        w.println("    private static final String[] MEMBERS = {");
+        for (String key : keys) {
+            w.println("        " + literal(key) + ",");
+        }
+        w.println("    };");
+        w.println();
+        w.println("    protected Class<?> getBusInterface() {");
+        w.println("        return " + intfName + ".class;");
+        w.println("    }");
+        w.println();
+        w.println("    protected String[] getMembers() {");
+        w.println("        return MEMBERS;");
+        w.println("    }");
+        for (int i = 0; i < methods.size(); ++i) {
+            ExecutableElement method = methods.get(i);
+            StringBuilder params = new StringBuilder();
+            StringBuilder args = new StringBuilder();
+            List<? extends VariableElement> parameters = method.getParameters();
+            for (int j = 0; j < parameters.size(); ++j) {
+                if (j > 0) {
+                    params.append(", ");
+                    args.append(", ");
+                }
+                params.append(parameters.get(j).asType()).append(" arg").append(j);
+                args.append("arg").append(j);
+            }
+            StringBuilder thrown = new StringBuilder();
+            boolean throwsBusException = false;
+            for (TypeMirror type : method.getThrownTypes()) {
+                thrown.append((thrown.length() == 0) ? " throws " : ", ").append(type);
+                throwsBusException |= processingEnv.getTypeUtils().isSubtype(busException, type);
+            }
+            TypeMirror returnType = method.getReturnType();
+            String call = "invoke(" + i + ", "
+                + (parameters.isEmpty() ? "null" : "new Object[] { " + args + " }") + ")";
+            if (returnType.getKind() != TypeKind.VOID) {
+                call = "return (" + castType(returnType, false) + ") " + call;
+            }
+            w.println();
+            w.println("    public " + returnType + " " + method.getSimpleName() + "(" + params + ")"
+                      + thrown + " {");
+            if (throwsBusException) {
+                w.println("        " + call + ";");
+            } else {
+                /* What a java.lang.reflect.Proxy would throw. */
+                w.println("        try {");
+                w.println("            " + call + ";");
+                w.println("        } catch (org.alljoyn.bus.BusException ex) {");
+                w.println("            throw new java.lang.reflect.UndeclaredThrowableException(ex);");
+                w.println("        }");
+            }
+            w.println("    }");
+        }
+        w.println("}");
+        w.close();
+    }
+
+    /*
+     * Struct accessors.
+     */
+
+    private void generateStruct(TypeElement struct) {
+        if (!isAccessible(struct)) {
+            return;
+        }
+        List<VariableElement> fields = publicFields(struct);
+        VariableElement[] byPosition = new VariableElement[fields.size()];
+        for (VariableElement field : fields) {
+            Position position = field.getAnnotation(Position.class);
+            if (position == null || field.getModifiers().contains(Modifier.STATIC)
+                || field.getModifiers().contains(Modifier.FINAL)
+                || position.value() < 0 || position.value() >= byPosition.length
+                || byPosition[position.value()] != null) {
+                /* Leave the runtime to report the error. */
+                return;
+            }
+            byPosition[position.value()] = field;
+        }
+
+        String className = generatedName(struct, STRUCT_SUFFIX);
+        if (className == null) {
+            return;
+        }
+        PrintWriter w = open(className, struct);
+        if (w == null) {
+            return;
+        }
+        String structName = struct.getQualifiedName().toString();
+        header(w, className);
+        w.println("public final class " + simpleName(className)
+                  + " implements org.alljoyn.bus.StructAccessor<" + structName + "> {");
+        w.println();
+        w.println("    public " + structName + " newInstance() {");
+        w.println("        return new " + structName + "();");
+        w.println("    }");
+        w.println();
+        w.println("    public Object get(" + structName + " struct, int position) {");
+        w.println("        switch (position) {");
+        for (int i = 0; i < byPosition.length; ++i) {
+            w.println("        case " + i + ":");
+            w.println("            return struct." + byPosition[i].getSimpleName() + ";");
+        }
+        w.println("        default:");
+        w.println("            throw new IndexOutOfBoundsException(\"position \" + position);");
+        w.println("        }");
+        w.println("    }");
+        w.println();
+        w.println("    @SuppressWarnings(\"unchecked\")");
+        w.println("    public void set(" + structName + " struct, int position, Object value) {");
+        w.println("        switch (position) {");
+        for (int i = 0; i < byPosition.length; ++i) {
+            w.println("        case " + i + ":");
+            w.println("            struct." + byPosition[i].getSimpleName() + " = ("
+                      + castType(byPosition[i].asType()) + ") value;");
+            w.println("            return;");
+        }
+        w.println("        default:");
+        w.println("            throw new IndexOutOfBoundsException(\"position \" + position);");
+        w.println("        }");
+        w.println("    }");
+        w.println("}");
+        w.close();
+    }
+
+    /** Tells if generated code in the same package can create and access the struct. */
+    private boolean isAccessible(TypeElement struct) {
+        if (!struct.getTypeParameters().isEmpty() || struct.getModifiers().contains(Modifier.ABSTRACT)
+            || !isVisible(struct)) {
+            return false;
+        }
+        for (Element e = struct; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            TypeElement type = (TypeElement) e;
+            if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)
+                && type.getEnclosingElement().getKind() == ElementKind.CLASS) {
+                /* An inner class needs an enclosing instance. */
+                return false;
+            }
+        }
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(struct.getEnclosedElements());
+        for (ExecutableElement constructor : constructors) {
+            if (constructor.getParameters().isEmpty()) {
+                return !constructor.getModifiers().contains(Modifier.PRIVATE);
+            }
+        }
+        return false;
+    }
+
+    /** Tells if generated code in the same package can name the type. */
+    private boolean isVisible(TypeElement type) {
+        for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            TypeElement t = (TypeElement) e;
+            if (t.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (t.getNestingKind() == NestingKind.LOCAL || t.getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String castType(TypeMirror type) {
+        return castType(type, true);
+    }
+
+    /**
+     * Gets the type to cast an Object to, the boxed type of a primitive type
+     * and the type itself, or its erasure if {@code erase}, otherwise.
+     */
+    private String castType(TypeMirror type, boolean erase) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((javax.lang.model.type.PrimitiveType) type)
+                .getQualifiedName().toString();
+        }
+        return erase ? processingEnv.getTypeUtils().erasure(type).toString() : type.toString();
+    }
+
+    /*
+     * Source generation.
+     */
+
+    /**
+     * Gets the name of the class generated for a type, the binary name of the
+     * type with a suffix, or {@code null} if already generated.
+     */
+    private String generatedName(TypeElement type, String suffix) {
+        String className = binaryName(type) + suffix;
+        return generated.add(className) ? className : null;
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private PrintWriter open(String className, TypeElement origin) {
+        try {
+            return new PrintWriter(processingEnv.getFiler().createSourceFile(className, origin).openWriter());
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                "cannot generate " + className + ": " + ex.getMessage(), origin);
+            return null;
+        }
+    }
+
+    private static void header(PrintWriter w, String className) {
+        int dot = className.lastIndexOf('.');
+        if (dot > 0) {
+            w.println("package " + className.substring(0, dot) + ";");
+            w.println();
+        }
+        w.println("/** Generated by " + BusAnnotationProcessor.class.getName() + ", do not edit. */");
+    }
+
+    private static String literal(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
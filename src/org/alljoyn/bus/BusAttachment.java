@@ -708,6 +708,9 @@ public class BusAttachment {
     private DBusProxyObj dbus;
     private ProxyBusObject dbusbo;
 
+    /** The shared proxy bus objects of this bus attachment. */
+    private final ProxyBusObjectPool proxyBusObjectPool = new ProxyBusObjectPool(this);
+
     /** Policy for handling messages received from remote devices. */
     public enum RemoteMessage {
 
@@ -836,6 +839,7 @@ public class BusAttachment {
         if (isConnected == true) {
             disconnect();
         }
+        proxyBusObjectPool.clear();
         if (dbusbo != null) {
             dbusbo.release();
             dbusbo = null;
@@ -1086,6 +1090,18 @@ public class BusAttachment {
         return new ProxyBusObject(this, busName, objPath, sessionId, busInterfaces, secure);
     }
 
+    /**
+     * Gets the pool of proxy bus objects shared by the users of this bus
+     * attachment.  Prefer it to {@link #getProxyBusObject(String, String, int,
+     * Class[], boolean)} when the same remote objects are used over and over
+     * by short-lived callers.
+     *
+     * @return the pool of shared proxy bus objects
+     */
+    public ProxyBusObjectPool getProxyBusObjectPool() {
+        return proxyBusObjectPool;
+    }
+
     /**
      * Gets the DBusProxyObj interface of the org.freedesktop.DBus proxy object.
      * The DBusProxyObj interface is provided for backwards compatibility with
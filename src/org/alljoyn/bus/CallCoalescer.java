@@ -0,0 +1,110 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.alljoyn.bus;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Shares one outstanding call between the threads that make identical calls
+ * at the same time.  The first thread makes the call; the others wait for
+ * its reply or error instead of making their own.
+ *
+ * Calls are identical when their keys are equal, as a {@link CallKey}
+ * compares them.
+ */
+final class CallCoalescer {
+
+    /** A call that may be shared. */
+    interface Call {
+        Object call() throws BusException;
+    }
+
+    /** An outstanding call. */
+    private static final class Flight {
+        final CountDownLatch done = new CountDownLatch(1);
+
+        /** Did the call return a reply. */
+        boolean completed;
+        Object reply;
+        BusException error;
+
+        /** The RuntimeException or Error thrown by the call, or null. */
+        Throwable failure;
+    }
+
+    private final ConcurrentMap<CallKey, Flight> flights = new ConcurrentHashMap<CallKey, Flight>();
+
+    /**
+     * Makes a call, or waits for the reply of an identical outstanding call.
+     *
+     * @param parts the parts identifying the call
+     * @param call the call to make if no identical call is outstanding
+     * @return the reply, which is shared between the callers
+     * @throws BusException if the call fails
+     */
+    Object call(Object[] parts, Call call) throws BusException {
+        CallKey key = new CallKey(parts);
+        Flight flight = new Flight();
+        Flight outstanding = flights.putIfAbsent(key, flight);
+        if (outstanding != null) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    outstanding.done.await();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (outstanding.failure instanceof RuntimeException) {
+                throw (RuntimeException) outstanding.failure;
+            }
+            if (outstanding.failure instanceof Error) {
+                throw (Error) outstanding.failure;
+            }
+            if (outstanding.error != null) {
+                throw outstanding.error;
+            }
+            if (!outstanding.completed) {
+                throw new BusException("shared call failed");
+            }
+            return outstanding.reply;
+        }
+
+        try {
+            flight.reply = call.call();
+            flight.completed = true;
+            return flight.reply;
+        } catch (BusException ex) {
+            flight.error = ex;
+            throw ex;
+        } catch (RuntimeException ex) {
+            flight.failure = ex;
+            throw ex;
+        } catch (Error ex) {
+            flight.failure = ex;
+            throw ex;
+        } finally {
+            flights.remove(key, flight);
+            flight.done.countDown();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.alljoyn.bus;
+
+import java.util.Arrays;
+
+/**
+ * The identity of a call, comparing arrays by content.  Arguments without a
+ * value-based equals, such as most bus structs, only compare equal to
+ * themselves.
+ */
+final class CallKey {
+
+    private final Object[] parts;
+
+    private final int hash;
+
+    CallKey(Object[] parts) {
+        this.parts = parts;
+        this.hash = Arrays.deepHashCode(parts);
+    }
+
+    public boolean equals(Object obj) {
+        return (obj instanceof CallKey) && Arrays.deepEquals(parts, ((CallKey) obj).parts);
+    }
+
+    public int hashCode() {
+        return hash;
+    }
+}
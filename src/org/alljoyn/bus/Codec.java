@@ -0,0 +1,1974 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.alljoyn.bus;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Codec is a compiled marshalling plan for a (Java type, DBus signature)
+ * pair.  The plan is built once by walking the signature and reflecting on
+ * the Java type, and is then reused for every message.  Compiled plans are
+ * immutable and are cached concurrently, so they may be shared by any number
+ * of threads.
+ *
+ * When no plan can be compiled for a pair (for example the Java type does
+ * not match the signature) {@link #get(Type, String)} returns {@code null}
+ * and the caller falls back to the recursive code in {@link MsgArg}, which
+ * produces the appropriate error.
+ *
+ * A plan can unmarshal either node by node from the native MsgArg, or from
+ * the bulk encoding of the whole MsgArg tree produced by {@link #encode(long)}
+ * in a single JNI call.  Likewise it can marshal node by node, or write the
+ * bulk marshal encoding with {@link #encode(Codec[], Object[])} for the
+ * native side to build the whole MsgArg tree from in a single JNI call.  The
+ * encodings are described in the native {@code Encode()} and {@code
+ * SetEncoded()} functions.
+ */
+abstract class Codec {
+
+    /** Marks a (type, signature) pair that cannot be compiled. */
+    private static final Codec NONE = new Codec() {
+        void marshal(long msgArg, Object arg) {}
+        Object unmarshal(long msgArg) { return null; }
+        Object decode(ByteBuffer buf) { return null; }
+        void encode(ByteBuffer buf, Object arg) {}
+        int encodedSize(Object arg) { return 0; }
+    };
+
+    /**
+     * Marshals a direct ByteBuffer by pointing the native MsgArg at its
+     * contents, and unmarshals by wrapping the contents of the native MsgArg.
+     * Only usable where the ByteBuffer or MsgArg is known to outlive the
+     * other, that is the top-level arguments of a call, signal or reply and
+     * the top-level parameters of a handler.
+     */
+    static final Codec IN_PLACE_BYTE_BUFFER = new ByteBufferCodec("ay", true);
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The initial size of the per-thread bulk unmarshal buffer. */
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    /** Encodings larger than this use a one-off buffer instead of growing the per-thread one. */
+    private static final int MAX_CACHED_BUFFER_SIZE = 1024 * 1024;
+
+    /** The per-thread buffer that bulk unmarshalled MsgArgs are encoded into. */
+    private static final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE).order(ByteOrder.nativeOrder());
+        }
+    };
+
+    /**
+     * The most plans kept for each Java type or method.  Signatures also come
+     * from remote messages, so once the plans of a type are full further
+     * plans are compiled each time instead of being kept.
+     */
+    private static final int MAX_PLANS = 256;
+
+    /** The compiled plans, keyed first by Java type and then by signature. */
+    private static final ConcurrentMap<Type, ConcurrentMap<String, Codec>> codecs =
+        new ConcurrentHashMap<Type, ConcurrentMap<String, Codec>>();
+
+    /** The compiled method parameter plans, keyed by method and then by signature. */
+    private static final ConcurrentMap<Method, ConcurrentMap<String, Codec[]>> methodCodecs =
+        new ConcurrentHashMap<Method, ConcurrentMap<String, Codec[]>>();
+
+    /**
+     * Marshals a Java object into a native MsgArg.
+     *
+     * @param msgArg the native MsgArg pointer
+     * @param arg the Java object
+     * @throws BusException if the marshalling fails
+     */
+    abstract void marshal(long msgArg, Object arg) throws BusException;
+
+    /**
+     * Unmarshals a native MsgArg into a Java object.
+     *
+     * @param msgArg the native MsgArg pointer
+     * @return the unmarshalled Java object
+     * @throws BusException if the unmarshalling fails
+     */
+    abstract Object unmarshal(long msgArg) throws BusException;
+
+    /**
+     * Unmarshals a Java object from the bulk encoding of a native MsgArg.
+     * On return the buffer is positioned after the encoded MsgArg.
+     *
+     * @param buf the encoded MsgArg, positioned at its start
+     * @return the unmarshalled Java object
+     * @throws BusException if the unmarshalling fails
+     */
+    abstract Object decode(ByteBuffer buf) throws BusException;
+
+    /**
+     * Writes the bulk marshal encoding of a Java object.
+     *
+     * @param buf the buffer to write to
+     * @param arg the Java object
+     * @throws BufferOverflowException if the buffer is too small
+     * @throws BusException if the Java object cannot be encoded
+     */
+    abstract void encode(ByteBuffer buf, Object arg) throws BusException;
+
+    /**
+     * Computes the size of the bulk marshal encoding of a Java object.
+     *
+     * @param arg the Java object
+     * @return the number of bytes {@link #encode(ByteBuffer, Object)} writes
+     * @throws BusException if the Java object cannot be encoded
+     */
+    abstract int encodedSize(Object arg) throws BusException;
+
+    /**
+     * Tells if this plan, or any plan nested in it, refers to the native
+     * MsgArg or Java object in place rather than copying it.  Such plans
+     * cannot be used with the bulk unmarshal encoding, which is a copy.
+     *
+     * @return {@code true} if this plan works in place
+     */
+    boolean isInPlace() {
+        return false;
+    }
+
+    /**
+     * Encodes a native MsgArg tree for bulk unmarshalling.  The returned
+     * buffer is only valid until the next call to this method on the same
+     * thread, and any variants it refers to are only valid as long as the
+     * MsgArg itself.
+     *
+     * @param msgArg the native MsgArg pointer
+     * @return the encoded MsgArg, or {@code null} if the MsgArg contains a
+     *         type that cannot be bulk encoded
+     */
+    static ByteBuffer encode(long msgArg) {
+        ByteBuffer buf = buffers.get();
+        int size = MsgArg.encode(msgArg, buf);
+        if (size < 0) {
+            return null;
+        }
+        if (size > buf.capacity()) {
+            int capacity = buf.capacity();
+            while (capacity < size) {
+                capacity *= 2;
+            }
+            buf = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+            if (capacity <= MAX_CACHED_BUFFER_SIZE) {
+                buffers.set(buf);
+            }
+            size = MsgArg.encode(msgArg, buf);
+        }
+        buf.clear();
+        buf.limit(size);
+        return buf;
+    }
+
+    /**
+     * Writes the bulk marshal encoding of Java objects.  The returned buffer
+     * is positioned after the encoding and is only valid until the next call
+     * to an encode method on the same thread.
+     *
+     * @param codecs the plan of each Java object
+     * @param args the Java objects
+     * @return the encoded Java objects
+     * @throws BusException if a Java object cannot be encoded
+     */
+    static ByteBuffer encode(Codec[] codecs, Object[] args) throws BusException {
+        ByteBuffer buf = buffers.get();
+        buf.clear();
+        try {
+            for (int i = 0; i < codecs.length; ++i) {
+                codecs[i].encode(buf, args[i]);
+            }
+            return buf;
+        } catch (BufferOverflowException ex) {
+            /* Size the encoding exactly and write it once more */
+        }
+        int size = 0;
+        for (int i = 0; i < codecs.length; ++i) {
+            size += codecs[i].encodedSize(args[i]);
+        }
+        if (size <= MAX_CACHED_BUFFER_SIZE) {
+            int capacity = buf.capacity();
+            while (capacity < size) {
+                capacity *= 2;
+            }
+            buf = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+            buffers.set(buf);
+        } else {
+            buf = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+        }
+        for (int i = 0; i < codecs.length; ++i) {
+            codecs[i].encode(buf, args[i]);
+        }
+        return buf;
+    }
+
+    /** Computes the size of the bulk marshal encoding of a Java object whose type is only known at runtime. */
+    private static int encodedSizeDynamic(String sig, Object arg) throws BusException {
+        Codec codec = (arg == null) ? null : get(arg.getClass(), sig);
+        if (codec == null) {
+            throw new MarshalBusException("cannot encode " + ((arg == null) ? "null" : arg.getClass())
+                                          + " into '" + sig + "'");
+        }
+        return codec.encodedSize(arg);
+    }
+
+    /** Computes the size of a string, object path or signature in the bulk marshal encoding. */
+    private static int encodedStringSize(String str) {
+        int len = str.length();
+        for (int i = 0; i < len; ++i) {
+            if (str.charAt(i) >= 0x80) {
+                return 4 + str.getBytes(UTF8).length + 1;
+            }
+        }
+        return 4 + len + 1;
+    }
+
+    /**
+     * Writes the bulk marshal encoding of a Java object whose type is only
+     * known at runtime.
+     */
+    private static void encodeDynamic(ByteBuffer buf, String sig, Object arg) throws BusException {
+        Codec codec = (arg == null) ? null : get(arg.getClass(), sig);
+        if (codec == null) {
+            throw new MarshalBusException("cannot encode " + ((arg == null) ? "null" : arg.getClass())
+                                          + " into '" + sig + "'");
+        }
+        codec.encode(buf, arg);
+    }
+
+    /** Writes a string, object path or signature in the bulk marshal encoding. */
+    private static void encodeString(ByteBuffer buf, String str) {
+        int start = buf.position();
+        int len = str.length();
+        buf.putInt(len);
+        for (int i = 0; i < len; ++i) {
+            char c = str.charAt(i);
+            if (c >= 0x80) {
+                byte[] bytes = str.getBytes(UTF8);
+                buf.position(start);
+                buf.putInt(bytes.length);
+                buf.put(bytes);
+                break;
+            }
+            buf.put((byte) c);
+        }
+        buf.put((byte) 0);
+    }
+
+    /** Decodes a string, object path or signature from the bulk encoding. */
+    private static String decodeString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Gets the compiled plan for a (Java type, DBus signature) pair.
+     *
+     * @param type the Java type
+     * @param sig the DBus signature of a single complete type
+     * @return the plan or {@code null} if a plan cannot be compiled
+     */
+    static Codec get(Type type, String sig) {
+        ConcurrentMap<String, Codec> bySig = codecs.get(type);
+        if (bySig == null) {
+            bySig = new ConcurrentHashMap<String, Codec>();
+            ConcurrentMap<String, Codec> prev = codecs.putIfAbsent(type, bySig);
+            if (prev != null) {
+                bySig = prev;
+            }
+        }
+        Codec codec = bySig.get(sig);
+        if (codec == null) {
+            codec = compile(type, sig);
+            if (codec == null) {
+                codec = NONE;
+            }
+            if (bySig.size() < MAX_PLANS) {
+                Codec prev = bySig.putIfAbsent(sig, codec);
+                if (prev != null) {
+                    codec = prev;
+                }
+            }
+        }
+        return (codec == NONE) ? null : codec;
+    }
+
+    /**
+     * Gets the compiled plans for the parameters of a method.
+     *
+     * @param method the method receiving the unmarshalled arguments
+     * @param sig the DBus signature of the arguments, as an ALLJOYN_STRUCT
+     * @return one plan per parameter or {@code null} if a plan cannot be
+     *         compiled
+     */
+    static Codec[] get(Method method, String sig) {
+        ConcurrentMap<String, Codec[]> bySig = methodCodecs.get(method);
+        if (bySig == null) {
+            bySig = new ConcurrentHashMap<String, Codec[]>();
+            ConcurrentMap<String, Codec[]> prev = methodCodecs.putIfAbsent(method, bySig);
+            if (prev != null) {
+                bySig = prev;
+            }
+        }
+        Codec[] plan = bySig.get(sig);
+        if (plan == null) {
+            plan = compile(method.getGenericParameterTypes(), sig);
+            if (plan == null) {
+                plan = new Codec[] { NONE };
+            }
+            if (bySig.size() < MAX_PLANS) {
+                Codec[] prev = bySig.putIfAbsent(sig, plan);
+                if (prev != null) {
+                    plan = prev;
+                }
+            }
+        }
+        return (plan.length == 1 && plan[0] == NONE) ? null : plan;
+    }
+
+    /**
+     * Splits a signature into its complete types.  The returned array is
+     * shared and must not be modified.
+     *
+     * @param sig the signature
+     * @return the complete types or {@code null} if the signature is invalid
+     */
+    static String[] split(String sig) {
+        ParsedSignature parsed = ParsedSignature.parse(sig);
+        return (parsed == null) ? null : parsed.getTypeSigs();
+    }
+
+    private static Codec[] compile(Type[] types, String sig) {
+        if (sig.length() < 2 || sig.charAt(0) != '(') {
+            return null;
+        }
+        String[] sigs = split(sig.substring(1, sig.length() - 1));
+        if (sigs == null || sigs.length != types.length) {
+            return null;
+        }
+        Codec[] plan = new Codec[types.length];
+        for (int i = 0; i < types.length; ++i) {
+            if (types[i] == ByteBuffer.class && "ay".equals(sigs[i])) {
+                /* Handler parameters only need to be valid for the duration of the callback. */
+                plan[i] = IN_PLACE_BYTE_BUFFER;
+                continue;
+            }
+            plan[i] = get(types[i], sigs[i]);
+            if (plan[i] == null) {
+                return null;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Compiles the plan for a (Java type, DBus signature) pair.
+     *
+     * @return the plan or {@code null} if a plan cannot be compiled
+     */
+    private static Codec compile(Type type, String sig) {
+        if (sig == null || sig.length() == 0) {
+            return null;
+        }
+        try {
+            switch (sig.charAt(0)) {
+            case 'y':
+            case 'b':
+            case 'n':
+            case 'q':
+            case 'i':
+            case 'u':
+            case 'x':
+            case 't':
+            case 'd':
+                return new ScalarCodec(sig, type);
+            case 's':
+            case 'o':
+            case 'g':
+                return new StringCodec(sig);
+            case 'v':
+                return new VariantCodec(sig);
+            case 'a':
+                return compileArray(type, sig);
+            case '(':
+                return compileStruct(type, sig);
+            default:
+                return null;
+            }
+        } catch (BusException ex) {
+            return null;
+        }
+    }
+
+    private static Codec compileArray(Type type, String sig) throws BusException {
+        String elemSig = sig.substring(1);
+        if (type instanceof ParameterizedType) {
+            Type rawType = ((ParameterizedType) type).getRawType();
+            if (rawType != LazyList.class && rawType instanceof Class
+                && Collection.class.isAssignableFrom((Class<?>) rawType)) {
+                return compileCollection((Class<?>) rawType,
+                                         ((ParameterizedType) type).getActualTypeArguments()[0], sig);
+            }
+        } else if (type instanceof Class && Collection.class.isAssignableFrom((Class<?>) type)) {
+            /*
+             * A runtime Collection class (marshalling only) does not carry
+             * the element type, so resolve that as for a runtime Map class.
+             */
+            PrimitiveArrayCodec primitiveCodec = isPrimitive(elemSig) ? new PrimitiveArrayCodec(sig) : null;
+            return new CollectionCodec(sig, null, compileDynamic(elemSig), primitiveCodec, false);
+        }
+        switch (elemSig.charAt(0)) {
+        case '{':
+            return compileDict(type, sig);
+        case 'y':
+            if (type instanceof Class && ByteBuffer.class.isAssignableFrom((Class<?>) type)) {
+                return new ByteBufferCodec(sig, false);
+            }
+            return new PrimitiveArrayCodec(sig);
+        case 'b':
+        case 'n':
+        case 'q':
+        case 'i':
+        case 'u':
+        case 'x':
+        case 't':
+        case 'd':
+            return new PrimitiveArrayCodec(sig);
+        default:
+            break;
+        }
+
+        if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == LazyList.class) {
+            Codec elemCodec = get(((ParameterizedType) type).getActualTypeArguments()[0], elemSig);
+            if (elemCodec == null) {
+                return null;
+            }
+            return new LazyListCodec(elemSig, elemCodec);
+        }
+
+        Type componentType;
+        if (type instanceof GenericArrayType) {
+            componentType = ((GenericArrayType) type).getGenericComponentType();
+        } else if (type instanceof Class && ((Class<?>) type).isArray()) {
+            componentType = ((Class<?>) type).getComponentType();
+        } else {
+            return null;
+        }
+        Class<?> componentClass;
+        if (componentType instanceof ParameterizedType) {
+            Type rawType = ((ParameterizedType) componentType).getRawType();
+            componentClass = (Class<?>) ((rawType == Map.class) ? HashMap.class : rawType);
+        } else if (componentType instanceof Class) {
+            componentClass = (Class<?>) componentType;
+        } else {
+            return null;
+        }
+        Codec elemCodec = get(componentType, elemSig);
+        if (elemCodec == null) {
+            return null;
+        }
+        return new ArrayCodec(elemSig, componentClass, elemCodec);
+    }
+
+    /**
+     * Compiles the plan for an array declared as a Collection.  Arrays of a
+     * basic numeric or boolean type are marshalled as Java primitive arrays,
+     * so their elements must be the matching boxed class or an enum.
+     */
+    private static Codec compileCollection(Class<?> rawType, Type elemType, String sig) {
+        String elemSig = sig.substring(1);
+        Class<?> collectionClass;
+        if (rawType.isAssignableFrom(ArrayList.class)) {
+            collectionClass = ArrayList.class;
+        } else if (rawType.isAssignableFrom(LinkedHashSet.class)) {
+            collectionClass = LinkedHashSet.class;
+        } else if (!rawType.isInterface() && !Modifier.isAbstract(rawType.getModifiers())) {
+            collectionClass = rawType;
+        } else {
+            return null;
+        }
+        Codec elemCodec = get(elemType, elemSig);
+        if (elemCodec == null) {
+            return null;
+        }
+        if (!isPrimitive(elemSig)) {
+            return new CollectionCodec(sig, collectionClass, elemCodec, null, false);
+        }
+        if (!(elemType instanceof Class)) {
+            return null;
+        }
+        Class<?> elemClass = (Class<?>) elemType;
+        char elemTypeId = elemSig.charAt(0);
+        Class<?> boxClass;
+        switch (elemTypeId) {
+        case 'y':
+            boxClass = Byte.class;
+            break;
+        case 'b':
+            boxClass = Boolean.class;
+            break;
+        case 'n':
+        case 'q':
+            boxClass = Short.class;
+            break;
+        case 'i':
+        case 'u':
+            boxClass = Integer.class;
+            break;
+        case 'x':
+        case 't':
+            boxClass = Long.class;
+            break;
+        default:
+            boxClass = Double.class;
+            break;
+        }
+        if (elemClass != boxClass && !(elemClass.isEnum() && elemTypeId != 'b' && elemTypeId != 'd')) {
+            return null;
+        }
+        /*
+         * Where the declared type allows it, int, long and double elements
+         * are unmarshalled into a fixed-size list over the primitive array.
+         */
+        boolean compact = (rawType == List.class || rawType == Collection.class)
+            && "iuxtd".indexOf(elemTypeId) >= 0 && elemClass == boxClass;
+        return new CollectionCodec(sig, collectionClass, elemCodec, new PrimitiveArrayCodec(sig), compact);
+    }
+
+    /** Tells if a signature is a basic numeric or boolean type. */
+    private static boolean isPrimitive(String sig) {
+        return sig.length() == 1 && "ybnqiuxtd".indexOf(sig.charAt(0)) >= 0;
+    }
+
+    private static Codec compileDict(Type type, String sig) {
+        String[] sigs = split(sig.substring(2, sig.length() - 1));
+        if (sigs == null || sigs.length != 2) {
+            return null;
+        }
+        if (type instanceof ParameterizedType) {
+            ParameterizedType pt = (ParameterizedType) type;
+            Type rawType = pt.getRawType();
+            if (!(rawType instanceof Class) || !Map.class.isAssignableFrom((Class<?>) rawType)) {
+                return null;
+            }
+            Type[] typeArgs = pt.getActualTypeArguments();
+            Codec keyCodec = get(typeArgs[0], sigs[0]);
+            Codec valCodec = get(typeArgs[1], sigs[1]);
+            if (keyCodec == null || valCodec == null) {
+                return null;
+            }
+            if (rawType == LazyMap.class) {
+                return new LazyMapCodec(sig, keyCodec, valCodec);
+            }
+            Class<?> mapClass = (Class<?>) ((rawType == Map.class) ? HashMap.class : rawType);
+            return new DictCodec(sig, mapClass, keyCodec, valCodec);
+        } else if (type instanceof Class && Map.class.isAssignableFrom((Class<?>) type)) {
+            /*
+             * A runtime Map class (marshalling only) does not carry the key
+             * and value types.  Resolve those from the signature where the
+             * Java type does not matter, and otherwise per object.
+             */
+            return new DictCodec(sig, null, compileDynamic(sigs[0]), compileDynamic(sigs[1]));
+        }
+        return null;
+    }
+
+    /**
+     * Compiles the plan for objects whose Java type is only known at
+     * runtime.  Numbers, strings and variants are marshalled the same
+     * whatever their Java class, so their plans are resolved once.
+     */
+    private static Codec compileDynamic(String sig) {
+        switch (sig.charAt(0)) {
+        case 'y':
+        case 'b':
+        case 'n':
+        case 'q':
+        case 'i':
+        case 'u':
+        case 'x':
+        case 't':
+        case 'd':
+            return new ScalarCodec(sig, null);
+        case 's':
+        case 'o':
+        case 'g':
+            return new StringCodec(sig);
+        case 'v':
+            return new VariantCodec(sig);
+        default:
+            return new DynamicCodec(sig);
+        }
+    }
+
+    private static Codec compileStruct(Type type, String sig) throws BusException {
+        if (!(type instanceof Class)) {
+            return null;
+        }
+        Class<?> cls = (Class<?>) type;
+        if (cls.isPrimitive() || cls.isArray() || cls.isInterface() || cls == Object.class
+            || cls == Variant.class) {
+            return null;
+        }
+        String[] memberSigs = split(sig.substring(1, sig.length() - 1));
+        if (memberSigs == null) {
+            return null;
+        }
+        Field[] fields = Signature.structFields(cls);
+        if (fields.length != memberSigs.length) {
+            return null;
+        }
+        Codec[] memberCodecs = new Codec[fields.length];
+        for (int i = 0; i < fields.length; ++i) {
+            if (fields[i] == null) {
+                return null;
+            }
+            memberCodecs[i] = get(fields[i].getGenericType(), memberSigs[i]);
+            if (memberCodecs[i] == null) {
+                return null;
+            }
+        }
+        return new StructCodec(sig, cls, fields, memberCodecs, Generated.struct(cls));
+    }
+
+    /** Marshals or unmarshals a basic numeric or boolean type, or an enum. */
+    private static final class ScalarCodec extends Codec {
+        private final String sig;
+        private final char typeId;
+        /** The constants of an enum type by ordinal value, or {@code null}. */
+        final Enum<?>[] enums;
+
+        ScalarCodec(String sig, Type type) {
+            this.sig = sig;
+            this.typeId = sig.charAt(0);
+            this.enums = (type instanceof Class && ((Class<?>) type).isEnum())
+                ? MsgArg.getEnumConstants((Class<?>) type) : null;
+        }
+
+        void marshal(long msgArg, Object arg) throws BusException {
+            int value = MsgArg.getEnumValue(arg);
+            switch (typeId) {
+            case 'y':
+                MsgArg.set(msgArg, sig, (value != -1) ? (byte) value : ((Number) arg).byteValue());
+                break;
+            case 'b':
+                MsgArg.set(msgArg, sig, ((Boolean) arg).booleanValue());
+                break;
+            case 'n':
+            case 'q':
+                MsgArg.set(msgArg, sig, (value != -1) ? (short) value : ((Number) arg).shortValue());
+                break;
+            case 'i':
+            case 'u':
+                MsgArg.set(msgArg, sig, (value != -1) ? value : ((Number) arg).intValue());
+                break;
+            case 'x':
+            case 't':
+                MsgArg.set(msgArg, sig, (value != -1) ? (long) value : ((Number) arg).longValue());
+                break;
+            case 'd':
+                MsgArg.set(msgArg, sig, ((Number) arg).doubleValue());
+                break;
+            default:
+                throw new MarshalBusException("unimplemented '" + sig + "'");
+            }
+        }
+
+        Object unmarshal(long msgArg) throws BusException {
+            switch (typeId) {
+            case 'y':
+                return (enums != null) ? MsgArg.getEnumObject(enums, (int) MsgArg.getByte(msgArg))
+                    : (Object) MsgArg.getByte(msgArg);
+            case 'b':
+                return MsgArg.getBool(msgArg);
+            case 'n':
+                return (enums != null) ? MsgArg.getEnumObject(enums, (int) MsgArg.getInt16(msgArg))
+                    : (Object) MsgArg.getInt16(msgArg);
+            case 'q':
+                return (enums != null) ? MsgArg.getEnumObject(enums, (int) MsgArg.getUint16(msgArg))
+                    : (Object) MsgArg.getUint16(msgArg);
+            case 'i':
+                return (enums != null) ? MsgArg.getEnumObject(enums, MsgArg.getInt32(msgArg))
+                    : (Object) MsgArg.getInt32(msgArg);
+            case 'u':
+                return (enums != null) ? MsgArg.getEnumObject(enums, MsgArg.getUint32(msgArg))
+                    : (Object) MsgArg.getUint32(msgArg);
+            case 'x':
+                return (enums != null) ? MsgArg.getEnumObject(enums, (int) MsgArg.getInt64(msgArg))
+                    : (Object) MsgArg.getInt64(msgArg);
+            case 't':
+                return (enums != null) ? MsgArg.getEnumObject(enums, (int) MsgArg.getUint64(msgArg))
+                    : (Object) MsgArg.getUint64(msgArg);
+            case 'd':
+                return MsgArg.getDouble(msgArg);
+            default:
+                throw new MarshalBusException("unimplemented '" + sig + "'");
+            }
+        }
+
+        void encode(ByteBuffer buf, Object arg) throws BusException {
+            int value = MsgArg.getEnumValue(arg);
+            switch (typeId) {
+            case 'y':
+                buf.put((value != -1) ? (byte) value : ((Number) arg).byteValue());
+                break;
+            case 'b':
+                buf.put(((Boolean) arg).booleanValue() ? (byte) 1 : (byte) 0);
+                break;
+            case 'n':
+            case 'q':
+                buf.putShort((value != -1) ? (short) value : ((Number) arg).shortValue());
+                break;
+            case 'i':
+            case 'u':
+                buf.putInt((value != -1) ? value : ((Number) arg).intValue());
+                break;
+            case 'x':
+            case 't':
+                buf.putLong((value != -1) ? (long) value : ((Number) arg).longValue());
+                break;
+            case 'd':
+                buf.putDouble(((Number) arg).doubleValue());
+                break;
+            default:
+                throw new MarshalBusException("unimplemented '" + sig + "'");
+            }
+        }
+
+        int encodedSize(Object arg) throws BusException {
+            switch (typeId) {
+            case 'y':
+            case 'b':
+                return 1;
+            case 'n':
+            case 'q':
+                return 2;
+            case 'i':
+            case 'u':
+                return 4;
+            case 'x':
+            case 't':
+            case 'd':
+                return 8;
+            default:
+                throw new MarshalBusException("unimplemented '" + sig + "'");
+            }
+        }
+
+        Object decode(ByteBuffer buf) throws BusException {
+            switch (typeId) {
+            case 'y':
+                byte b = buf.get();
+                return (enums != null) ? MsgArg.getEnumObject(enums, (int) b) : (Object) b;
+            case 'b':
+                return buf.get() != 0;
+            case 'n':
+            case 'q':
+                short s = buf.getShort();
+                return (enums != null) ? MsgArg.getEnumObject(enums, (int) s) : (Object) s;
+            case 'i':
+            case 'u':
+                int i = buf.getInt();
+                return (enums != null) ? MsgArg.getEnumObject(enums, i) : (Object) i;
+            case 'x':
+            case 't':
+                long x = buf.getLong();
+                return (enums != null) ? MsgArg.getEnumObject(enums, (int) x) : (Object) x;
+            case 'd':
+                return buf.getDouble();
+            default:
+                throw new MarshalBusException("unimplemented '" + sig + "'");
+            }
+        }
+    }
+
+    /** Marshals or unmarshals a string, object path or signature. */
+    private static final class StringCodec extends Codec {
+        private final String sig;
+        private final char typeId;
+
+        StringCodec(String sig) {
+            this.sig = sig;
+            this.typeId = sig.charAt(0);
+        }
+
+        void marshal(long msgArg, Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            MsgArg.set(msgArg, sig, (String) arg);
+        }
+
+        Object unmarshal(long msgArg) throws BusException {
+            switch (typeId) {
+            case 's':
+                return MsgArg.getString(msgArg);
+            case 'o':
+                return MsgArg.getObjPath(msgArg);
+            default:
+                return MsgArg.getSignature(msgArg);
+            }
+        }
+
+        void encode(ByteBuffer buf, Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            encodeString(buf, (String) arg);
+        }
+
+        int encodedSize(Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            return encodedStringSize((String) arg);
+        }
+
+        Object decode(ByteBuffer buf) {
+            return decodeString(buf);
+        }
+    }
+
+    /** Marshals or unmarshals an array of a basic type into a primitive Java array. */
+    private static final class PrimitiveArrayCodec extends Codec {
+        private final String sig;
+        private final char elemTypeId;
+
+        PrimitiveArrayCodec(String sig) {
+            this.sig = sig;
+            this.elemTypeId = sig.charAt(1);
+        }
+
+        /** Gets the class of the primitive arrays this plan marshals. */
+        Class<?> arrayClass() {
+            switch (elemTypeId) {
+            case 'y':
+                return byte[].class;
+            case 'b':
+                return boolean[].class;
+            case 'n':
+            case 'q':
+                return short[].class;
+            case 'i':
+            case 'u':
+                return int[].class;
+            case 'x':
+            case 't':
+                return long[].class;
+            default:
+                return double[].class;
+            }
+        }
+
+        void marshal(long msgArg, Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            switch (elemTypeId) {
+            case 'y':
+                MsgArg.set(msgArg, sig, (byte[]) arg);
+                break;
+            case 'b':
+                MsgArg.set(msgArg, sig, (boolean[]) arg);
+                break;
+            case 'n':
+            case 'q':
+                MsgArg.set(msgArg, sig, (short[]) arg);
+                break;
+            case 'i':
+            case 'u':
+                MsgArg.set(msgArg, sig, (int[]) arg);
+                break;
+            case 'x':
+            case 't':
+                MsgArg.set(msgArg, sig, (long[]) arg);
+                break;
+            default:
+                MsgArg.set(msgArg, sig, (double[]) arg);
+                break;
+            }
+        }
+
+        Object unmarshal(long msgArg) throws BusException {
+            switch (elemTypeId) {
+            case 'y':
+                return MsgArg.getByteArray(msgArg);
+            case 'b':
+                return MsgArg.getBoolArray(msgArg);
+            case 'n':
+                return MsgArg.getInt16Array(msgArg);
+            case 'q':
+                return MsgArg.getUint16Array(msgArg);
+            case 'i':
+                return MsgArg.getInt32Array(msgArg);
+            case 'u':
+                return MsgArg.getUint32Array(msgArg);
+            case 'x':
+                return MsgArg.getInt64Array(msgArg);
+            case 't':
+                return MsgArg.getUint64Array(msgArg);
+            default:
+                return MsgArg.getDoubleArray(msgArg);
+            }
+        }
+
+        void encode(ByteBuffer buf, Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            int position;
+            switch (elemTypeId) {
+            case 'y': {
+                byte[] array = (byte[]) arg;
+                buf.putInt(array.length);
+                buf.put(array);
+                break;
+            }
+            case 'b': {
+                boolean[] array = (boolean[]) arg;
+                buf.putInt(array.length);
+                for (int i = 0; i < array.length; ++i) {
+                    buf.put(array[i] ? (byte) 1 : (byte) 0);
+                }
+                break;
+            }
+            case 'n':
+            case 'q': {
+                short[] array = (short[]) arg;
+                buf.putInt(array.length);
+                position = buf.position();
+                buf.asShortBuffer().put(array);
+                buf.position(position + 2 * array.length);
+                break;
+            }
+            case 'i':
+            case 'u': {
+                int[] array = (int[]) arg;
+                buf.putInt(array.length);
+                position = buf.position();
+                buf.asIntBuffer().put(array);
+                buf.position(position + 4 * array.length);
+                break;
+            }
+            case 'x':
+            case 't': {
+                long[] array = (long[]) arg;
+                buf.putInt(array.length);
+                position = buf.position();
+                buf.asLongBuffer().put(array);
+                buf.position(position + 8 * array.length);
+                break;
+            }
+            default: {
+                double[] array = (double[]) arg;
+                buf.putInt(array.length);
+                position = buf.position();
+                buf.asDoubleBuffer().put(array);
+                buf.position(position + 8 * array.length);
+                break;
+            }
+            }
+        }
+
+        int encodedSize(Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            int length = Array.getLength(arg);
+            switch (elemTypeId) {
+            case 'y':
+            case 'b':
+                return 4 + length;
+            case 'n':
+            case 'q':
+                return 4 + 2 * length;
+            case 'i':
+            case 'u':
+                return 4 + 4 * length;
+            default:
+                return 4 + 8 * length;
+            }
+        }
+
+        Object decode(ByteBuffer buf) {
+            int numElements = buf.getInt();
+            int position = buf.position();
+            switch (elemTypeId) {
+            case 'y': {
+                byte[] array = new byte[numElements];
+                buf.get(array);
+                return array;
+            }
+            case 'b': {
+                boolean[] array = new boolean[numElements];
+                for (int i = 0; i < numElements; ++i) {
+                    array[i] = buf.get() != 0;
+                }
+                return array;
+            }
+            case 'n':
+            case 'q': {
+                short[] array = new short[numElements];
+                buf.asShortBuffer().get(array);
+                buf.position(position + 2 * numElements);
+                return array;
+            }
+            case 'i':
+            case 'u': {
+                int[] array = new int[numElements];
+                buf.asIntBuffer().get(array);
+                buf.position(position + 4 * numElements);
+                return array;
+            }
+            case 'x':
+            case 't': {
+                long[] array = new long[numElements];
+                buf.asLongBuffer().get(array);
+                buf.position(position + 8 * numElements);
+                return array;
+            }
+            default: {
+                double[] array = new double[numElements];
+                buf.asDoubleBuffer().get(array);
+                buf.position(position + 8 * numElements);
+                return array;
+            }
+            }
+        }
+    }
+
+    /**
+     * Marshals or unmarshals an array of bytes into a ByteBuffer.  The
+     * contents of a ByteBuffer from position to limit are marshalled, and the
+     * ByteBuffer itself is not modified.
+     */
+    private static final class ByteBufferCodec extends Codec {
+        private final String sig;
+        private final boolean inPlace;
+
+        ByteBufferCodec(String sig, boolean inPlace) {
+            this.sig = sig;
+            this.inPlace = inPlace;
+        }
+
+        boolean isInPlace() {
+            return inPlace;
+        }
+
+        void marshal(long msgArg, Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            MsgArg.set(msgArg, sig, (ByteBuffer) arg, inPlace);
+        }
+
+        Object unmarshal(long msgArg) throws BusException {
+            if (inPlace) {
+                return MsgArg.getByteBuffer(msgArg).asReadOnlyBuffer();
+            }
+            return ByteBuffer.wrap(MsgArg.getByteArray(msgArg));
+        }
+
+        void encode(ByteBuffer buf, Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            ByteBuffer bytes = (ByteBuffer) arg;
+            if (inPlace && bytes.isDirect()) {
+                /* A length of -1 marks the address of the contents instead of the contents. */
+                buf.putInt(-1);
+                buf.putLong(MsgArg.getAddress(bytes) + bytes.position());
+                buf.putInt(bytes.remaining());
+            } else {
+                buf.putInt(bytes.remaining());
+                buf.put(bytes.duplicate());
+            }
+        }
+
+        int encodedSize(Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            ByteBuffer bytes = (ByteBuffer) arg;
+            return (inPlace && bytes.isDirect()) ? 16 : 4 + bytes.remaining();
+        }
+
+        Object decode(ByteBuffer buf) throws BusException {
+            if (inPlace) {
+                throw new MarshalBusException("cannot unmarshal '" + sig + "' in place from a copy");
+            }
+            byte[] array = new byte[buf.getInt()];
+            buf.get(array);
+            return ByteBuffer.wrap(array);
+        }
+    }
+
+    /** Marshals or unmarshals an array of a container type into a Java array. */
+    private static final class ArrayCodec extends Codec {
+        private final String elemSig;
+        private final Class<?> componentClass;
+        private final Codec elemCodec;
+
+        ArrayCodec(String elemSig, Class<?> componentClass, Codec elemCodec) {
+            this.elemSig = elemSig;
+            this.componentClass = componentClass;
+            this.elemCodec = elemCodec;
+        }
+
+        boolean isInPlace() {
+            return elemCodec.isInPlace();
+        }
+
+        void marshal(long msgArg, Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into 'a" + elemSig + "'");
+            }
+            Object[] args = (Object[]) arg;
+            MsgArg.setArray(msgArg, elemSig, args.length);
+            for (int i = 0; i < args.length; ++i) {
+                elemCodec.marshal(MsgArg.getElement(msgArg, i), args[i]);
+            }
+        }
+
+        Object unmarshal(long msgArg) throws BusException {
+            int numElements = MsgArg.getNumElements(msgArg);
+            Object object = Array.newInstance(componentClass, numElements);
+            for (int i = 0; i < numElements; ++i) {
+                /*
+                 * Under Sun the Array.set() is sufficient to check the
+                 * type.  Under Android that is not the case.
+                 */
+                Object component = elemCodec.unmarshal(MsgArg.getElement(msgArg, i));
+                if (!componentClass.isInstance(component)) {
+                    throw new IllegalArgumentException("argument type mismatch");
+                }
+                Array.set(object, i, component);
+            }
+            return object;
+        }
+
+        void encode(ByteBuffer buf, Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into 'a" + elemSig + "'");
+            }
+            Object[] args = (Object[]) arg;
+            buf.putInt(args.length);
+            for (int i = 0; i < args.length; ++i) {
+                elemCodec.encode(buf, args[i]);
+            }
+        }
+
+        int encodedSize(Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into 'a" + elemSig + "'");
+            }
+            int size = 4;
+            for (Object element : (Object[]) arg) {
+                size += elemCodec.encodedSize(element);
+            }
+            return size;
+        }
+
+        Object decode(ByteBuffer buf) throws BusException {
+            int numElements = buf.getInt();
+            Object object = Array.newInstance(componentClass, numElements);
+            for (int i = 0; i < numElements; ++i) {
+                Object component = elemCodec.decode(buf);
+                if (!componentClass.isInstance(component)) {
+                    throw new IllegalArgumentException("argument type mismatch");
+                }
+                Array.set(object, i, component);
+            }
+            return object;
+        }
+    }
+
+    /** Marshals or unmarshals an array of dictionary entries into a Java Map. */
+    private static final class DictCodec extends Codec {
+        private final String sig;
+        private final String elemSig;
+        private final Class<?> mapClass;
+        private final Codec keyCodec;
+        private final Codec valCodec;
+
+        DictCodec(String sig, Class<?> mapClass, Codec keyCodec, Codec valCodec) {
+            this.sig = sig;
+            this.elemSig = sig.substring(1);
+            this.mapClass = mapClass;
+            this.keyCodec = keyCodec;
+            this.valCodec = valCodec;
+        }
+
+        boolean isInPlace() {
+            return keyCodec.isInPlace() || valCodec.isInPlace();
+        }
+
+        void marshal(long msgArg, Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            Map<?, ?> map = (Map<?, ?>) arg;
+            MsgArg.setArray(msgArg, elemSig, map.size());
+            int i = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                long element = MsgArg.getElement(msgArg, i++);
+                MsgArg.setDictEntry(element);
+                keyCodec.marshal(MsgArg.getKey(element), entry.getKey());
+                valCodec.marshal(MsgArg.getVal(element), entry.getValue());
+            }
+        }
+
+        Object unmarshal(long msgArg) throws BusException {
+            Map<Object, Object> map = newMap();
+            int numElements = MsgArg.getNumElements(msgArg);
+            for (int i = 0; i < numElements; ++i) {
+                long element = MsgArg.getElement(msgArg, i);
+                map.put(keyCodec.unmarshal(MsgArg.getKey(element)),
+                        valCodec.unmarshal(MsgArg.getVal(element)));
+            }
+            return map;
+        }
+
+        void encode(ByteBuffer buf, Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            Map<?, ?> map = (Map<?, ?>) arg;
+            buf.putInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                keyCodec.encode(buf, entry.getKey());
+                valCodec.encode(buf, entry.getValue());
+            }
+        }
+
+        int encodedSize(Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            int size = 4;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) arg).entrySet()) {
+                size += keyCodec.encodedSize(entry.getKey()) + valCodec.encodedSize(entry.getValue());
+            }
+            return size;
+        }
+
+        Object decode(ByteBuffer buf) throws BusException {
+            Map<Object, Object> map = newMap();
+            int numElements = buf.getInt();
+            for (int i = 0; i < numElements; ++i) {
+                Object key = keyCodec.decode(buf);
+                map.put(key, valCodec.decode(buf));
+            }
+            return map;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<Object, Object> newMap() throws BusException {
+            if (mapClass == null) {
+                throw new MarshalBusException("cannot unmarshal '" + sig + "' into a raw Map");
+            }
+            try {
+                return (Map<Object, Object>) mapClass.newInstance();
+            } catch (InstantiationException ex) {
+                throw new MarshalBusException("cannot create " + mapClass, ex);
+            } catch (IllegalAccessException ex) {
+                throw new MarshalBusException("cannot create " + mapClass, ex);
+            }
+        }
+    }
+
+    /**
+     * Unmarshals an array of dictionary entries into a LazyMap over a copy of
+     * the native MsgArg.  A LazyMap is marshalled like any other Map.
+     */
+    private static final class LazyMapCodec extends Codec {
+        private final String sig;
+        private final Codec keyCodec;
+        private final Codec valCodec;
+        private final DictCodec dictCodec;
+
+        LazyMapCodec(String sig, Codec keyCodec, Codec valCodec) {
+            this.sig = sig;
+            this.keyCodec = keyCodec;
+            this.valCodec = valCodec;
+            this.dictCodec = new DictCodec(sig, null, keyCodec, valCodec);
+        }
+
+        boolean isInPlace() {
+            return true;
+        }
+
+        void marshal(long msgArg, Object arg) throws BusException {
+            dictCodec.marshal(msgArg, arg);
+        }
+
+        Object unmarshal(long msgArg) throws BusException {
+            return new LazyMap<Object, Object>(msgArg, keyCodec, valCodec);
+        }
+
+        void encode(ByteBuffer buf, Object arg) throws BusException {
+            dictCodec.encode(buf, arg);
+        }
+
+        int encodedSize(Object arg) throws BusException {
+            return dictCodec.encodedSize(arg);
+        }
+
+        Object decode(ByteBuffer buf) throws BusException {
+            throw new MarshalBusException("cannot unmarshal '" + sig + "' lazily from a copy");
+        }
+    }
+
+    /**
+     * Marshals or unmarshals an array into a Java Collection.  Collections
+     * are created with room for all the elements.  Arrays of basic numeric
+     * and boolean types go through the primitive array plan and are boxed
+     * or unboxed on the Java side, or not at all for a compact list.
+     */
+    private static final class CollectionCodec extends Codec {
+        private final String sig;
+        private final String elemSig;
+        private final Class<?> collectionClass;
+        private final Codec elemCodec;
+        private final PrimitiveArrayCodec primitiveCodec;
+        private final boolean compact;
+
+        /**
+         * @param collectionClass the class to unmarshal into, or {@code null}
+         *                        to marshal only
+         * @param primitiveCodec the plan of the primitive array, or
+         *                       {@code null} if the elements are not basic
+         *                       numeric or boolean types
+         * @param compact unmarshal into a list backed by the primitive array
+         */
+        CollectionCodec(String sig, Class<?> collectionClass, Codec elemCodec,
+                        PrimitiveArrayCodec primitiveCodec, boolean compact) {
+            this.sig = sig;
+            this.elemSig = sig.substring(1);
+            this.collectionClass = collectionClass;
+            this.elemCodec = elemCodec;
+            this.primitiveCodec = primitiveCodec;
+            this.compact = compact;
+        }
+
+        boolean isInPlace() {
+            return elemCodec.isInPlace();
+        }
+
+        void marshal(long msgArg, Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            Collection<?> collection = (Collection<?>) arg;
+            if (primitiveCodec != null) {
+                primitiveCodec.marshal(msgArg, toArray(collection));
+                return;
+            }
+            MsgArg.setArray(msgArg, elemSig, collection.size());
+            int i = 0;
+            for (Object element : collection) {
+                elemCodec.marshal(MsgArg.getElement(msgArg, i++), element);
+            }
+        }
+
+        Object unmarshal(long msgArg) throws BusException {
+            if (primitiveCodec != null) {
+                return fromArray(primitiveCodec.unmarshal(msgArg));
+            }
+            int numElements = MsgArg.getNumElements(msgArg);
+            Collection<Object> collection = newCollection(numElements);
+            for (int i = 0; i < numElements; ++i) {
+                collection.add(elemCodec.unmarshal(MsgArg.getElement(msgArg, i)));
+            }
+            return collection;
+        }
+
+        void encode(ByteBuffer buf, Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            Collection<?> collection = (Collection<?>) arg;
+            if (collection instanceof PrimitiveList && primitiveCodec != null) {
+                Object array = ((PrimitiveList<?>) collection).array();
+                if (array.getClass() == primitiveCodec.arrayClass()) {
+                    primitiveCodec.encode(buf, array);
+                    return;
+                }
+            }
+            buf.putInt(collection.size());
+            for (Object element : collection) {
+                elemCodec.encode(buf, element);
+            }
+        }
+
+        int encodedSize(Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            Collection<?> collection = (Collection<?>) arg;
+            if (collection instanceof PrimitiveList && primitiveCodec != null) {
+                Object array = ((PrimitiveList<?>) collection).array();
+                if (array.getClass() == primitiveCodec.arrayClass()) {
+                    return primitiveCodec.encodedSize(array);
+                }
+            }
+            int size = 4;
+            for (Object element : collection) {
+                size += elemCodec.encodedSize(element);
+            }
+            return size;
+        }
+
+        Object decode(ByteBuffer buf) throws BusException {
+            if (primitiveCodec != null) {
+                return fromArray(primitiveCodec.decode(buf));
+            }
+            int numElements = buf.getInt();
+            Collection<Object> collection = newCollection(numElements);
+            for (int i = 0; i < numElements; ++i) {
+                collection.add(elemCodec.decode(buf));
+            }
+            return collection;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Collection<Object> newCollection(int numElements) throws BusException {
+            if (collectionClass == null) {
+                throw new MarshalBusException("cannot unmarshal '" + sig + "' into a raw Collection");
+            }
+            if (collectionClass == ArrayList.class) {
+                return new ArrayList<Object>(numElements);
+            } else if (collectionClass == LinkedHashSet.class) {
+                return new LinkedHashSet<Object>(numElements * 4 / 3 + 1);
+            }
+            try {
+                return (Collection<Object>) collectionClass.newInstance();
+            } catch (InstantiationException ex) {
+                throw new MarshalBusException("cannot create " + collectionClass, ex);
+            } catch (IllegalAccessException ex) {
+                throw new MarshalBusException("cannot create " + collectionClass, ex);
+            }
+        }
+
+        /** Copies the elements of a collection into a primitive array. */
+        private Object toArray(Collection<?> collection) {
+            if (collection instanceof PrimitiveList) {
+                Object array = ((PrimitiveList<?>) collection).array();
+                if (array.getClass() == primitiveCodec.arrayClass()) {
+                    return array;
+                }
+            }
+            int n = collection.size();
+            Iterator<?> it = collection.iterator();
+            switch (elemSig.charAt(0)) {
+            case 'y': {
+                byte[] array = new byte[n];
+                for (int i = 0; i < n; ++i) {
+                    array[i] = (byte) longValue(it.next());
+                }
+                return array;
+            }
+            case 'b': {
+                boolean[] array = new boolean[n];
+                for (int i = 0; i < n; ++i) {
+                    array[i] = ((Boolean) it.next()).booleanValue();
+                }
+                return array;
+            }
+            case 'n':
+            case 'q': {
+                short[] array = new short[n];
+                for (int i = 0; i < n; ++i) {
+                    array[i] = (short) longValue(it.next());
+                }
+                return array;
+            }
+            case 'i':
+            case 'u': {
+                int[] array = new int[n];
+                for (int i = 0; i < n; ++i) {
+                    array[i] = (int) longValue(it.next());
+                }
+                return array;
+            }
+            case 'x':
+            case 't': {
+                long[] array = new long[n];
+                for (int i = 0; i < n; ++i) {
+                    array[i] = longValue(it.next());
+                }
+                return array;
+            }
+            default: {
+                double[] array = new double[n];
+                for (int i = 0; i < n; ++i) {
+                    array[i] = ((Number) it.next()).doubleValue();
+                }
+                return array;
+            }
+            }
+        }
+
+        /** Converts an unmarshalled primitive array into the collection. */
+        private Object fromArray(Object array) throws BusException {
+            if (compact) {
+                switch (elemSig.charAt(0)) {
+                case 'i':
+                case 'u':
+                    return new IntList((int[]) array);
+                case 'x':
+                case 't':
+                    return new LongList((long[]) array);
+                default:
+                    return new DoubleList((double[]) array);
+                }
+            }
+            int numElements = Array.getLength(array);
+            Collection<Object> collection = newCollection(numElements);
+            Enum<?>[] enums = ((ScalarCodec) elemCodec).enums;
+            for (int i = 0; i < numElements; ++i) {
+                Object element = Array.get(array, i);
+                collection.add((enums != null)
+                               ? MsgArg.getEnumObject(enums, ((Number) element).intValue()) : element);
+            }
+            return collection;
+        }
+
+        private static long longValue(Object element) {
+            int value = MsgArg.getEnumValue(element);
+            return (value != -1) ? value : ((Number) element).longValue();
+        }
+    }
+
+    /**
+     * A fixed-size list backed by a primitive array, which is unmarshalled
+     * and marshalled without boxing every element.
+     */
+    private abstract static class PrimitiveList<E> extends AbstractList<E> implements RandomAccess {
+        /** Gets the backing primitive array. */
+        abstract Object array();
+    }
+
+    private static final class IntList extends PrimitiveList<Integer> {
+        private final int[] array;
+
+        IntList(int[] array) {
+            this.array = array;
+        }
+
+        Object array() {
+            return array;
+        }
+
+        public int size() {
+            return array.length;
+        }
+
+        public Integer get(int index) {
+            return array[index];
+        }
+
+        public Integer set(int index, Integer element) {
+            int prev = array[index];
+            array[index] = element;
+            return prev;
+        }
+    }
+
+    private static final class LongList extends PrimitiveList<Long> {
+        private final long[] array;
+
+        LongList(long[] array) {
+            this.array = array;
+        }
+
+        Object array() {
+            return array;
+        }
+
+        public int size() {
+            return array.length;
+        }
+
+        public Long get(int index) {
+            return array[index];
+        }
+
+        public Long set(int index, Long element) {
+            long prev = array[index];
+            array[index] = element;
+            return prev;
+        }
+    }
+
+    private static final class DoubleList extends PrimitiveList<Double> {
+        private final double[] array;
+
+        DoubleList(double[] array) {
+            this.array = array;
+        }
+
+        Object array() {
+            return array;
+        }
+
+        public int size() {
+            return array.length;
+        }
+
+        public Double get(int index) {
+            return array[index];
+        }
+
+        public Double set(int index, Double element) {
+            double prev = array[index];
+            array[index] = element;
+            return prev;
+        }
+    }
+
+    /**
+     * Unmarshals an array into a LazyList over a copy of the native MsgArg.
+     * A LazyList is marshalled element by element.
+     */
+    private static final class LazyListCodec extends Codec {
+        private final String elemSig;
+        private final Codec elemCodec;
+
+        LazyListCodec(String elemSig, Codec elemCodec) {
+            this.elemSig = elemSig;
+            this.elemCodec = elemCodec;
+        }
+
+        boolean isInPlace() {
+            return true;
+        }
+
+        void marshal(long msgArg, Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into 'a" + elemSig + "'");
+            }
+            List<?> list = (List<?>) arg;
+            MsgArg.setArray(msgArg, elemSig, list.size());
+            for (int i = 0; i < list.size(); ++i) {
+                elemCodec.marshal(MsgArg.getElement(msgArg, i), list.get(i));
+            }
+        }
+
+        Object unmarshal(long msgArg) throws BusException {
+            return new LazyList<Object>(msgArg, elemCodec);
+        }
+
+        void encode(ByteBuffer buf, Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into 'a" + elemSig + "'");
+            }
+            List<?> list = (List<?>) arg;
+            buf.putInt(list.size());
+            for (int i = 0; i < list.size(); ++i) {
+                elemCodec.encode(buf, list.get(i));
+            }
+        }
+
+        int encodedSize(Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into 'a" + elemSig + "'");
+            }
+            List<?> list = (List<?>) arg;
+            int size = 4;
+            for (int i = 0; i < list.size(); ++i) {
+                size += elemCodec.encodedSize(list.get(i));
+            }
+            return size;
+        }
+
+        Object decode(ByteBuffer buf) throws BusException {
+            throw new MarshalBusException("cannot unmarshal 'a" + elemSig + "' lazily from a copy");
+        }
+    }
+
+    /**
+     * Marshals or unmarshals a struct into a Java class annotated with
+     * Position.  The fields are accessed through the accessor generated by
+     * the annotation processor if there is one, otherwise by reflection.
+     */
+    private static final class StructCodec extends Codec {
+        private final String sig;
+        private final Class<?> cls;
+        private final Field[] fields;
+        private final Codec[] memberCodecs;
+        private final StructAccessor<Object> accessor;
+
+        StructCodec(String sig, Class<?> cls, Field[] fields, Codec[] memberCodecs,
+                    StructAccessor<Object> accessor) {
+            this.sig = sig;
+            this.cls = cls;
+            this.fields = fields;
+            this.memberCodecs = memberCodecs;
+            this.accessor = accessor;
+        }
+
+        boolean isInPlace() {
+            for (Codec memberCodec : memberCodecs) {
+                if (memberCodec.isInPlace()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private Object newInstance() throws InstantiationException, IllegalAccessException {
+            return (accessor != null) ? accessor.newInstance() : cls.newInstance();
+        }
+
+        private Object get(Object struct, int i) throws IllegalAccessException {
+            return (accessor != null) ? accessor.get(struct, i) : fields[i].get(struct);
+        }
+
+        private void set(Object struct, int i, Object value) throws IllegalAccessException {
+            if (accessor != null) {
+                accessor.set(struct, i, value);
+            } else {
+                fields[i].set(struct, value);
+            }
+        }
+
+        void marshal(long msgArg, Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            if (arg.getClass() != cls) {
+                /* A subclass may add fields, so use the plan of its own class. */
+                MsgArg.marshal(msgArg, sig, arg);
+                return;
+            }
+            MsgArg.setStruct(msgArg, fields.length);
+            try {
+                for (int i = 0; i < fields.length; ++i) {
+                    memberCodecs[i].marshal(MsgArg.getMember(msgArg, i), get(arg, i));
+                }
+            } catch (IllegalAccessException ex) {
+                throw new MarshalBusException("cannot marshal " + cls + " into '" + sig + "'", ex);
+            }
+        }
+
+        Object unmarshal(long msgArg) throws BusException {
+            try {
+                Object object = newInstance();
+                for (int i = 0; i < fields.length; ++i) {
+                    set(object, i, memberCodecs[i].unmarshal(MsgArg.getMember(msgArg, i)));
+                }
+                return object;
+            } catch (InstantiationException ex) {
+                throw new MarshalBusException("cannot marshal '" + sig + "' into " + cls, ex);
+            } catch (IllegalAccessException ex) {
+                throw new MarshalBusException("cannot marshal '" + sig + "' into " + cls, ex);
+            }
+        }
+
+        void encode(ByteBuffer buf, Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            if (arg.getClass() != cls) {
+                encodeDynamic(buf, sig, arg);
+                return;
+            }
+            try {
+                for (int i = 0; i < fields.length; ++i) {
+                    memberCodecs[i].encode(buf, get(arg, i));
+                }
+            } catch (IllegalAccessException ex) {
+                throw new MarshalBusException("cannot marshal " + cls + " into '" + sig + "'", ex);
+            }
+        }
+
+        int encodedSize(Object arg) throws BusException {
+            if (arg == null) {
+                throw new MarshalBusException("cannot marshal null into '" + sig + "'");
+            }
+            if (arg.getClass() != cls) {
+                return encodedSizeDynamic(sig, arg);
+            }
+            int size = 0;
+            try {
+                for (int i = 0; i < fields.length; ++i) {
+                    size += memberCodecs[i].encodedSize(get(arg, i));
+                }
+            } catch (IllegalAccessException ex) {
+                throw new MarshalBusException("cannot marshal " + cls + " into '" + sig + "'", ex);
+            }
+            return size;
+        }
+
+        Object decode(ByteBuffer buf) throws BusException {
+            try {
+                Object object = newInstance();
+                for (int i = 0; i < fields.length; ++i) {
+                    set(object, i, memberCodecs[i].decode(buf));
+                }
+                return object;
+            } catch (InstantiationException ex) {
+                throw new MarshalBusException("cannot marshal '" + sig + "' into " + cls, ex);
+            } catch (IllegalAccessException ex) {
+                throw new MarshalBusException("cannot marshal '" + sig + "' into " + cls, ex);
+            }
+        }
+    }
+
+    /** Marshals or unmarshals a variant. */
+    private static final class VariantCodec extends Codec {
+        private final String sig;
+
+        VariantCodec(String sig) {
+            this.sig = sig;
+        }
+
+        void marshal(long msgArg, Object arg) throws BusException {
+            Variant variant = (Variant) arg;
+            if (variant.getMsgArg() != 0) {
+                MsgArg.setVariant(msgArg, sig, variant.getMsgArg());
+            } else {
+                MsgArg.setVariant(msgArg);
+                MsgArg.marshal(MsgArg.getVal(msgArg), variant.getSignature(), variant.getValue());
+            }
+        }
+
+        Object unmarshal(long msgArg) throws BusException {
+            Variant variant = new Variant();
+            variant.setMsgArg(msgArg);
+            return variant;
+        }
+
+        void encode(ByteBuffer buf, Object arg) throws BusException {
+            Variant variant = (Variant) arg;
+            long handle = variant.getMsgArg();
+            if (handle != 0) {
+                buf.put((byte) 0);
+                buf.putLong(handle);
+            } else {
+                String valSig = variant.getSignature();
+                buf.put((byte) 1);
+                encodeString(buf, valSig);
+                encodeDynamic(buf, valSig, variant.getValue());
+            }
+        }
+
+        int encodedSize(Object arg) throws BusException {
+            Variant variant = (Variant) arg;
+            if (variant.getMsgArg() != 0) {
+                return 1 + 8;
+            }
+            String valSig = variant.getSignature();
+            return 1 + encodedStringSize(valSig) + encodedSizeDynamic(valSig, variant.getValue());
+        }
+
+        Object decode(ByteBuffer buf) throws BusException {
+            return unmarshal(buf.getLong());
+        }
+    }
+
+    /**
+     * Marshals an object whose Java type is only known at runtime, such as
+     * the keys and values of a Map.
+     */
+    private static final class DynamicCodec extends Codec {
+        private final String sig;
+
+        /**
+         * The plan of the last Java class encoded.  The objects of a
+         * container are usually of one class, so this saves looking up the
+         * plan for each.
+         */
+        private volatile ResolvedCodec last;
+
+        DynamicCodec(String sig) {
+            this.sig = sig;
+        }
+
+        void marshal(long msgArg, Object arg) throws BusException {
+            MsgArg.marshal(msgArg, sig, arg);
+        }
+
+        Object unmarshal(long msgArg) throws BusException {
+            throw new MarshalBusException("cannot unmarshal '" + sig + "' without a type");
+        }
+
+        void encode(ByteBuffer buf, Object arg) throws BusException {
+            ResolvedCodec resolved = last;
+            if (arg != null && resolved != null && resolved.cls == arg.getClass()) {
+                resolved.codec.encode(buf, arg);
+                return;
+            }
+            Codec codec = (arg == null) ? null : get(arg.getClass(), sig);
+            if (codec == null) {
+                encodeDynamic(buf, sig, arg);
+                return;
+            }
+            last = new ResolvedCodec(arg.getClass(), codec);
+            codec.encode(buf, arg);
+        }
+
+        int encodedSize(Object arg) throws BusException {
+            ResolvedCodec resolved = last;
+            if (arg != null && resolved != null && resolved.cls == arg.getClass()) {
+                return resolved.codec.encodedSize(arg);
+            }
+            return encodedSizeDynamic(sig, arg);
+        }
+
+        Object decode(ByteBuffer buf) throws BusException {
+            throw new MarshalBusException("cannot unmarshal '" + sig + "' without a type");
+        }
+    }
+
+    /** A plan resolved for a Java class at runtime. */
+    private static final class ResolvedCodec {
+        final Class<?> cls;
+        final Codec codec;
+
+        ResolvedCodec(Class<?> cls, Codec codec) {
+            this.cls = cls;
+            this.codec = codec;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.alljoyn.bus;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Finds the classes generated by the AllJoyn annotation processor.  The
+ * lookup is done once per class, and classes without generated code are
+ * remembered so the runtime falls back to reflection without looking again.
+ */
+final class Generated {
+
+    static final String SIGNATURES_SUFFIX = "_BusSignatures";
+
+    static final String STRUCT_SUFFIX = "_BusStruct";
+
+    static final String PROXY_SUFFIX = "_BusProxy";
+
+    /**
+     * Set the system property {@code org.alljoyn.bus.generated} to {@code
+     * false} to ignore generated classes.
+     */
+    static volatile boolean enabled =
+        Boolean.valueOf(System.getProperty("org.alljoyn.bus.generated", "true"));
+
+    /** Marks a class without generated code. */
+    private static final Object NONE = new Object();
+
+    private static final ConcurrentMap<Class<?>, Object> signatures =
+        new ConcurrentHashMap<Class<?>, Object>();
+
+    private static final ConcurrentMap<Class<?>, Object> structs =
+        new ConcurrentHashMap<Class<?>, Object>();
+
+    private static final ConcurrentMap<Class<?>, Object> proxies =
+        new ConcurrentHashMap<Class<?>, Object>();
+
+    private Generated() {}
+
+    /**
+     * Gets the generated signatures of a bus interface.
+     *
+     * @param busInterface the bus interface
+     * @return the signatures or {@code null} if none were generated
+     */
+    static InterfaceSignatures signatures(Class<?> busInterface) {
+        return (InterfaceSignatures) find(signatures, busInterface, SIGNATURES_SUFFIX,
+                                          InterfaceSignatures.class, true);
+    }
+
+    /**
+     * Gets the generated accessor of a struct class.
+     *
+     * @param cls the struct class
+     * @return the accessor or {@code null} if none was generated
+     */
+    @SuppressWarnings("unchecked")
+    static StructAccessor<Object> struct(Class<?> cls) {
+        return (StructAccessor<Object>) find(structs, cls, STRUCT_SUFFIX, StructAccessor.class, true);
+    }
+
+    /**
+     * Creates an instance of the generated proxy class of a bus interface.
+     *
+     * @param busInterface the bus interface
+     * @return a new proxy or {@code null} if none was generated
+     */
+    static GeneratedProxy proxy(Class<?> busInterface) {
+        Class<?> c = (Class<?>) find(proxies, busInterface, PROXY_SUFFIX, GeneratedProxy.class, false);
+        if (c == null) {
+            return null;
+        }
+        try {
+            return (GeneratedProxy) c.newInstance();
+        } catch (InstantiationException ex) {
+            BusException.log(ex);
+        } catch (IllegalAccessException ex) {
+            BusException.log(ex);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the generated input signature of a bus method or signal.
+     *
+     * @return the signature or {@code null} if none was generated
+     */
+    static String getInputSig(Method method) {
+        InterfaceSignatures sigs = signatures(method.getDeclaringClass());
+        return (sigs == null) ? null : sigs.getInputSig(key(method));
+    }
+
+    /**
+     * Gets the generated output signature of a bus method or signal.
+     *
+     * @return the signature or {@code null} if none was generated
+     */
+    static String getOutSig(Method method) {
+        InterfaceSignatures sigs = signatures(method.getDeclaringClass());
+        return (sigs == null) ? null : sigs.getOutSig(key(method));
+    }
+
+    /**
+     * Gets the generated signature of a property get or set method.
+     *
+     * @return the signature or {@code null} if none was generated
+     */
+    static String getPropertySig(Method method) {
+        InterfaceSignatures sigs = signatures(method.getDeclaringClass());
+        return (sigs == null) ? null : sigs.getPropertySig(key(method));
+    }
+
+    /**
+     * Gets the key of a method in the generated signatures.
+     *
+     * @see InterfaceSignatures
+     */
+    static String key(Method method) {
+        StringBuilder sb = new StringBuilder(method.getName()).append('(');
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; ++i) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(types[i].getName());
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * Finds the generated class of a class.
+     *
+     * @param instantiate {@code true} to cache and return a shared instance
+     *                    of the generated class, {@code false} for the class
+     */
+    private static Object find(ConcurrentMap<Class<?>, Object> cache, Class<?> cls, String suffix,
+                               Class<?> type, boolean instantiate) {
+        if (!enabled) {
+            return null;
+        }
+        Object generated = cache.get(cls);
+        if (generated == null) {
+            generated = NONE;
+            ClassLoader loader = cls.getClassLoader();
+            if (loader != null) {
+                try {
+                    Class<?> c = Class.forName(cls.getName() + suffix, true, loader);
+                    if (type.isAssignableFrom(c)) {
+                        generated = instantiate ? c.newInstance() : c;
+                    }
+                } catch (ClassNotFoundException ex) {
+                    /* Nothing was generated, use reflection. */
+                } catch (InstantiationException ex) {
+                    BusException.log(ex);
+                } catch (IllegalAccessException ex) {
+                    BusException.log(ex);
+                } catch (LinkageError err) {
+                    BusException.log(new BusException("cannot load generated code for " + cls, err));
+                }
+            }
+            cache.putIfAbsent(cls, generated);
+        }
+        return (generated == NONE) ? null : generated;
+    }
+}
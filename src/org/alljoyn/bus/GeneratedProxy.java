@@ -0,0 +1,112 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.alljoyn.bus;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The base class of the proxy classes generated by the AllJoyn annotation
+ * processor ({@code alljoyn-processor.jar}).  A proxy class is generated for
+ * each {@link org.alljoyn.bus.annotation.BusInterface} as a class named
+ * after the binary name of the interface with the suffix {@code _BusProxy}.
+ * {@link ProxyBusObject#getInterface(Class)} returns an instance of it in
+ * preference to a {@link java.lang.reflect.Proxy}, so a call does not go
+ * through an invocation handler, a method lookup or the checks of the return
+ * value against the return type of the method.
+ *
+ * Each proxy method calls {@link #invoke(int, Object[])} with the index of
+ * the method in {@link #getMembers()}.
+ */
+public abstract class GeneratedProxy {
+
+    /** The invocations of each generated class, indexed like its members. */
+    private static final ConcurrentMap<Class<?>, ProxyBusObject.Invocation[]> tables =
+        new ConcurrentHashMap<Class<?>, ProxyBusObject.Invocation[]>();
+
+    private ProxyBusObject proxyBusObject;
+
+    private volatile ProxyBusObject.Invocation[] invocations;
+
+    protected GeneratedProxy() {}
+
+    /** Called by the proxy bus object that created this proxy. */
+    final void init(ProxyBusObject proxyBusObject) {
+        this.proxyBusObject = proxyBusObject;
+    }
+
+    /**
+     * Gets the bus interface implemented by this proxy.
+     *
+     * @return the bus interface
+     */
+    protected abstract Class<?> getBusInterface();
+
+    /**
+     * Gets the members of the bus interface called by the proxy methods,
+     * identified as in {@link InterfaceSignatures}.
+     *
+     * @return the members, by index
+     */
+    protected abstract String[] getMembers();
+
+    /**
+     * Performs a method call or property access on the remote object.
+     *
+     * @param member the index of the member in {@link #getMembers()}
+     * @param args the arguments of the proxy method
+     * @return the reply, of the return type of the proxy method
+     * @throws BusException if the call fails
+     */
+    protected final Object invoke(int member, Object[] args) throws BusException {
+        ProxyBusObject.Invocation[] table = invocations;
+        if (table == null) {
+            table = table();
+            invocations = table;
+        }
+        return proxyBusObject.invoke(table[member], args);
+    }
+
+    /**
+     * Computes the invocations of this class the first time any proxy of it
+     * is invoked.  Signature errors are thrown then, as they are by the
+     * reflection proxy.
+     */
+    private ProxyBusObject.Invocation[] table() throws BusException {
+        ProxyBusObject.Invocation[] table = tables.get(getClass());
+        if (table == null) {
+            String[] members = getMembers();
+            table = new ProxyBusObject.Invocation[members.length];
+            for (Method method : getBusInterface().getMethods()) {
+                String key = Generated.key(method);
+                for (int i = 0; i < members.length; ++i) {
+                    if (table[i] == null && members[i].equals(key)) {
+                        table[i] = new ProxyBusObject.Invocation(method);
+                    }
+                }
+            }
+            for (int i = 0; i < members.length; ++i) {
+                if (table[i] == null) {
+                    throw new BusException("No such method: " + members[i]);
+                }
+            }
+            tables.putIfAbsent(getClass(), table);
+        }
+        return table;
+    }
+}
@@ -24,6 +24,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.alljoyn.bus.annotation.AccessPermission;
 import org.alljoyn.bus.annotation.BusAnnotation;
@@ -52,6 +54,18 @@ class InterfaceDescription {
     private static final int AJ_IFC_SECURITY_REQUIRED  = 1; /**< Security is required for an interface */
     private static final int AJ_IFC_SECURITY_OFF       = 2; /**< Security does not apply to this interface */
 
+    /** The parsed member input signatures, keyed by method. */
+    private static final ConcurrentMap<Method, ParsedSignature> inputSignatures =
+        new ConcurrentHashMap<Method, ParsedSignature>();
+
+    /** The parsed member output signatures, keyed by method. */
+    private static final ConcurrentMap<Method, ParsedSignature> outSignatures =
+        new ConcurrentHashMap<Method, ParsedSignature>();
+
+    /** The parsed property signatures, keyed by method. */
+    private static final ConcurrentMap<Method, ParsedSignature> propertySignatures =
+        new ConcurrentHashMap<Method, ParsedSignature>();
+
     private class Property {
 
         public String name;
@@ -383,6 +397,10 @@ class InterfaceDescription {
      * @param method The method.
      */
     public static String getInputSig(Method method) throws AnnotationBusException {
+        String sig = Generated.getInputSig(method);
+        if (sig != null) {
+            return sig;
+        }
         BusMethod busMethod = method.getAnnotation(BusMethod.class);
         if (busMethod != null && busMethod.signature().length() > 0) {
             return Signature.typeSig(method.getGenericParameterTypes(), busMethod.signature());
@@ -400,6 +418,10 @@ class InterfaceDescription {
      * @param method the method
      */
     public static String getOutSig(Method method) throws AnnotationBusException {
+        String sig = Generated.getOutSig(method);
+        if (sig != null) {
+            return sig;
+        }
         BusMethod busMethod = method.getAnnotation(BusMethod.class);
         if (busMethod != null && busMethod.replySignature().length() > 0) {
             return Signature.typeSig(method.getGenericReturnType(), busMethod.replySignature());
@@ -417,6 +439,10 @@ class InterfaceDescription {
      * @param method the method
      */
     public static String getPropertySig(Method method) throws AnnotationBusException {
+        String sig = Generated.getPropertySig(method);
+        if (sig != null) {
+            return sig;
+        }
         Type type = null;
         if (method.getName().startsWith("get")) {
             type = method.getGenericReturnType();
@@ -429,4 +455,60 @@ class InterfaceDescription {
         }
         return Signature.typeSig(type, null);
     }
+
+    /**
+     * Get the parsed DBus member input signature.  The signature is computed
+     * and parsed once per method.
+     *
+     * @param method the method
+     * @throws AnnotationBusException if the signature is invalid
+     */
+    static ParsedSignature getInputSignature(Method method) throws AnnotationBusException {
+        ParsedSignature parsed = inputSignatures.get(method);
+        if (parsed == null) {
+            parsed = parse(method, getInputSig(method));
+            inputSignatures.putIfAbsent(method, parsed);
+        }
+        return parsed;
+    }
+
+    /**
+     * Get the parsed DBus member output signature.  The signature is computed
+     * and parsed once per method.
+     *
+     * @param method the method
+     * @throws AnnotationBusException if the signature is invalid
+     */
+    static ParsedSignature getOutSignature(Method method) throws AnnotationBusException {
+        ParsedSignature parsed = outSignatures.get(method);
+        if (parsed == null) {
+            parsed = parse(method, getOutSig(method));
+            outSignatures.putIfAbsent(method, parsed);
+        }
+        return parsed;
+    }
+
+    /**
+     * Get the parsed DBus property signature.  The signature is computed and
+     * parsed once per method.
+     *
+     * @param method the method
+     * @throws AnnotationBusException if the signature is invalid
+     */
+    static ParsedSignature getPropertySignature(Method method) throws AnnotationBusException {
+        ParsedSignature parsed = propertySignatures.get(method);
+        if (parsed == null) {
+            parsed = parse(method, getPropertySig(method));
+            propertySignatures.putIfAbsent(method, parsed);
+        }
+        return parsed;
+    }
+
+    private static ParsedSignature parse(Method method, String sig) throws AnnotationBusException {
+        ParsedSignature parsed = ParsedSignature.parse(sig);
+        if (parsed == null) {
+            throw new AnnotationBusException("bad signature '" + sig + "' of " + method);
+        }
+        return parsed;
+    }
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.alljoyn.bus;
+
+/**
+ * The DBus signatures of the members of a bus interface, computed at compile
+ * time.  Implementations are generated by the AllJoyn annotation processor
+ * ({@code alljoyn-processor.jar}) for each {@link
+ * org.alljoyn.bus.annotation.BusInterface} as a class named after the binary
+ * name of the interface with the suffix {@code _BusSignatures}, and are
+ * preferred to computing the signatures by reflection at runtime.
+ *
+ * Members are identified by the Java method name followed by the {@link
+ * Class#getName()} of each parameter type, comma separated, in parentheses.
+ * For example {@code "Ping(java.lang.String)"}.
+ */
+public interface InterfaceSignatures {
+
+    /**
+     * Gets the input signature of a bus method or signal.
+     *
+     * @param member the Java method
+     * @return the signature, or {@code null} if not known
+     */
+    String getInputSig(String member);
+
+    /**
+     * Gets the output signature of a bus method or signal.
+     *
+     * @param member the Java method
+     * @return the signature, or {@code null} if not known
+     */
+    String getOutSig(String member);
+
+    /**
+     * Gets the signature of the property accessed by a get or set method.
+     *
+     * @param member the Java method
+     * @return the signature, or {@code null} if not known
+     */
+    String getPropertySig(String member);
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.alljoyn.bus;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A read-only List view of a DBus array that unmarshals each element only
+ * when it is first accessed.  Declare a bus method or signal handler
+ * parameter, a return type, or the type passed to {@link
+ * Variant#getObject(VariantTypeReference)} as {@code LazyList<E>} instead of
+ * {@code E[]} to receive one.  Arrays of basic numeric types are already
+ * unmarshalled in a single copy and are not supported.
+ *
+ * Unmarshalled elements are kept, so each is unmarshalled at most once.  The
+ * view holds a native copy of the array until {@link #release()} is called
+ * or it is garbage collected.  Elements that have not been unmarshalled
+ * before release cannot be accessed afterwards.
+ *
+ * @param <E> the element type
+ */
+public final class LazyList<E> extends AbstractList<E> implements RandomAccess {
+
+    /** The native copy of the array, or 0 once released. */
+    private long msgArg;
+
+    private final Codec elemCodec;
+
+    private final int size;
+
+    /** The unmarshalled elements, by index. */
+    private final Object[] elements;
+
+    private final boolean[] unmarshalled;
+
+    /**
+     * Constructs a LazyList over a native array.
+     *
+     * @param msgArg the native ALLJOYN_ARRAY, which is copied
+     * @param elemCodec the plan of the elements
+     */
+    LazyList(long msgArg, Codec elemCodec) {
+        this.msgArg = MsgArg.copy(msgArg);
+        this.elemCodec = elemCodec;
+        this.size = MsgArg.getNumElements(this.msgArg);
+        this.elements = new Object[size];
+        this.unmarshalled = new boolean[size];
+    }
+
+    /**
+     * Releases the native copy of the array immediately.  Elements already
+     * accessed remain accessible.
+     */
+    public synchronized void release() {
+        if (msgArg != 0) {
+            MsgArg.destroy(msgArg);
+            msgArg = 0;
+        }
+    }
+
+    /** Releases native resources. */
+    protected void finalize() throws Throwable {
+        try {
+            release();
+        } finally {
+            super.finalize();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        if (!unmarshalled[index]) {
+            if (msgArg == 0) {
+                throw new IllegalStateException("LazyList has been released");
+            }
+            long element = MsgArg.getElement(msgArg, index);
+            try {
+                elements[index] = elemCodec.unmarshal(element);
+            } catch (BusException ex) {
+                throw new IllegalStateException("cannot unmarshal '" + MsgArg.getArgSignature(element) + "'",
+                                                ex);
+            }
+            unmarshalled[index] = true;
+        }
+        return (E) elements[index];
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.alljoyn.bus;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only Map view of a DBus dictionary that unmarshals its entries only
+ * when they are first accessed.  Declare a bus method or signal handler
+ * parameter, a return type, or the type passed to {@link
+ * Variant#getObject(VariantTypeReference)} as {@code LazyMap<K, V>} instead
+ * of {@code Map<K, V>} to receive one.
+ *
+ * The keys are unmarshalled together the first time any key is needed, and
+ * each value is unmarshalled the first time it is accessed.  Unmarshalled
+ * keys and values are kept, so each is unmarshalled at most once.
+ *
+ * The view holds a native copy of the dictionary until {@link #release()} is
+ * called or it is garbage collected.  Entries that have not been
+ * unmarshalled before release cannot be accessed afterwards.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class LazyMap<K, V> extends AbstractMap<K, V> {
+
+    /** The native copy of the dictionary, or 0 once released. */
+    private long msgArg;
+
+    private final Codec keyCodec;
+
+    private final Codec valCodec;
+
+    private final int size;
+
+    /** The unmarshalled keys, or {@code null} until the first key is needed. */
+    private Object[] keys;
+
+    /** The index of each entry, keyed by unmarshalled key. */
+    private Map<Object, Integer> index;
+
+    /** The unmarshalled values, by index. */
+    private final Object[] values;
+
+    private final boolean[] unmarshalled;
+
+    private Set<Map.Entry<K, V>> entrySet;
+
+    /**
+     * Constructs a LazyMap over a native dictionary.
+     *
+     * @param msgArg the native ALLJOYN_ARRAY of ALLJOYN_DICT_ENTRY, which is
+     *               copied
+     * @param keyCodec the plan of the keys
+     * @param valCodec the plan of the values
+     */
+    LazyMap(long msgArg, Codec keyCodec, Codec valCodec) {
+        this.msgArg = MsgArg.copy(msgArg);
+        this.keyCodec = keyCodec;
+        this.valCodec = valCodec;
+        this.size = MsgArg.getNumElements(this.msgArg);
+        this.values = new Object[size];
+        this.unmarshalled = new boolean[size];
+    }
+
+    /**
+     * Releases the native copy of the dictionary immediately.  Keys and
+     * values already accessed remain accessible.
+     */
+    public synchronized void release() {
+        if (msgArg != 0) {
+            MsgArg.destroy(msgArg);
+            msgArg = 0;
+        }
+    }
+
+    /** Releases native resources. */
+    protected void finalize() throws Throwable {
+        try {
+            release();
+        } finally {
+            super.finalize();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(Object key) {
+        return index().containsKey(key);
+    }
+
+    public V get(Object key) {
+        Integer i = index().get(key);
+        return (i == null) ? null : value(i);
+    }
+
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<K, V>>() {
+                public int size() {
+                    return size;
+                }
+
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new Iterator<Map.Entry<K, V>>() {
+                        private int next = 0;
+
+                        public boolean hasNext() {
+                            return next < size;
+                        }
+
+                        public Map.Entry<K, V> next() {
+                            if (next >= size) {
+                                throw new NoSuchElementException();
+                            }
+                            return new Entry(next++);
+                        }
+
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /** An entry whose value is unmarshalled when first accessed. */
+    private final class Entry implements Map.Entry<K, V> {
+        private final int i;
+
+        Entry(int i) {
+            this.i = i;
+        }
+
+        @SuppressWarnings("unchecked")
+        public K getKey() {
+            return (K) keys()[i];
+        }
+
+        public V getValue() {
+            return value(i);
+        }
+
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> that = (Map.Entry<?, ?>) obj;
+            return eq(getKey(), that.getKey()) && eq(getValue(), that.getValue());
+        }
+
+        public int hashCode() {
+            K key = getKey();
+            V value = getValue();
+            return ((key == null) ? 0 : key.hashCode()) ^ ((value == null) ? 0 : value.hashCode());
+        }
+
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    private static boolean eq(Object a, Object b) {
+        return (a == null) ? (b == null) : a.equals(b);
+    }
+
+    /** Unmarshals all the keys the first time any key is needed. */
+    private synchronized Object[] keys() {
+        if (keys == null) {
+            Object[] k = new Object[size];
+            for (int i = 0; i < size; ++i) {
+                k[i] = unmarshal(keyCodec, MsgArg.getKey(element(i)));
+            }
+            keys = k;
+        }
+        return keys;
+    }
+
+    private synchronized Map<Object, Integer> index() {
+        if (index == null) {
+            Object[] k = keys();
+            Map<Object, Integer> map = new HashMap<Object, Integer>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; ++i) {
+                map.put(k[i], i);
+            }
+            index = map;
+        }
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized V value(int i) {
+        if (!unmarshalled[i]) {
+            values[i] = unmarshal(valCodec, MsgArg.getVal(element(i)));
+            unmarshalled[i] = true;
+        }
+        return (V) values[i];
+    }
+
+    private long element(int i) {
+        if (msgArg == 0) {
+            throw new IllegalStateException("LazyMap has been released");
+        }
+        return MsgArg.getElement(msgArg, i);
+    }
+
+    private Object unmarshal(Codec codec, long arg) {
+        try {
+            return codec.unmarshal(arg);
+        } catch (BusException ex) {
+            throw new IllegalStateException("cannot unmarshal '" + MsgArg.getArgSignature(arg) + "'", ex);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.alljoyn.bus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * A batch of method calls to one remote object.  Calls are recorded with
+ * {@link #add(Class, String, Object...)} and sent back-to-back, each with its
+ * own serial number, by {@link #execute()}, which then waits for all the
+ * replies.  A batch of N calls therefore costs about one round trip instead
+ * of N.
+ *
+ * Each call succeeds or fails on its own: the failure of one call does not
+ * prevent the others from being sent.  The reply timeout of the proxy bus
+ * object applies to each call.
+ *
+ * <pre>
+ * MethodCallBatch batch = proxyObj.batch();
+ * Future&lt;String&gt; name = batch.add(Config.class, "SetName", "kitchen");
+ * Future&lt;Integer&gt; level = batch.add(Config.class, "SetLevel", 3);
+ * batch.execute();
+ * </pre>
+ */
+public final class MethodCallBatch {
+
+    /** A recorded call. */
+    private static final class Call {
+        final ProxyBusObject.Invocation invocation;
+        final Object[] args;
+        final MethodCallFuture<?> reply;
+
+        Call(ProxyBusObject.Invocation invocation, Object[] args, MethodCallFuture<?> reply) {
+            this.invocation = invocation;
+            this.args = args;
+            this.reply = reply;
+        }
+    }
+
+    private final ProxyBusObject proxy;
+
+    /** Guarded by this. */
+    private final List<Call> calls = new ArrayList<Call>();
+
+    private boolean executed;
+
+    MethodCallBatch(ProxyBusObject proxy) {
+        this.proxy = proxy;
+    }
+
+    /**
+     * Records a method call.  The call is not sent until the batch is
+     * executed.
+     *
+     * @param iface the interface that the method exists on
+     * @param methodName the bus name of the method
+     * @param args the arguments of the method
+     * @return the reply of the call, which completes once the batch is
+     *         executed
+     * @throws BusException if the named method doesn't exist or is overloaded
+     * @throws IllegalStateException if the batch has already been executed
+     */
+    public synchronized <T> Future<T> add(Class<?> iface, String methodName, Object... args) throws BusException {
+        if (executed) {
+            throw new IllegalStateException("batch has already been executed");
+        }
+        ProxyBusObject.Invocation invocation = proxy.getInvocation(iface, methodName);
+        MethodCallFuture<T> reply = new MethodCallFuture<T>(invocation.genericReturnType,
+                                                            proxy.getReplyExecutor(), null, null);
+        calls.add(new Call(invocation, args, reply));
+        return reply;
+    }
+
+    /**
+     * Gets the number of calls in the batch.
+     *
+     * @return the number of calls
+     */
+    public synchronized int size() {
+        return calls.size();
+    }
+
+    /**
+     * Sends all the calls of the batch without waiting between them, and then
+     * waits for all of their replies.  A batch can be executed only once.
+     *
+     * @return the replies of the calls, in the order they were added, all of
+     *         which are done; the reply of a failed call throws an
+     *         ExecutionException whose cause is the BusException, and a
+     *         call whose reply was cancelled before the batch was executed
+     *         is not sent
+     * @throws InterruptedException if the calling thread is interrupted while
+     *         waiting for the replies; the calls already sent still complete
+     * @throws IllegalStateException if the batch has already been executed
+     */
+    public List<Future<?>> execute() throws InterruptedException {
+        List<Call> sent;
+        synchronized (this) {
+            if (executed) {
+                throw new IllegalStateException("batch has already been executed");
+            }
+            executed = true;
+            sent = new ArrayList<Call>(calls);
+        }
+
+        List<Future<?>> replies = new ArrayList<Future<?>>(sent.size());
+        for (Call call : sent) {
+            if (!call.reply.isCancelled()) {
+                try {
+                    proxy.send(call.invocation, call.args, call.reply);
+                } catch (BusException ex) {
+                    call.reply.failed(ex);
+                }
+            }
+            replies.add(call.reply);
+        }
+        for (Future<?> reply : replies) {
+            try {
+                reply.get();
+            } catch (ExecutionException ex) {
+                /* Reported through the reply */
+            } catch (CancellationException ex) {
+                /* Cancelled by the caller */
+            }
+        }
+        return Collections.unmodifiableList(replies);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.alljoyn.bus;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The pending reply of an asynchronous method call.  The native code calls
+ * {@link #replied(long)} or {@link #failed(String, String)} exactly once when
+ * the reply arrives, the call times out, or the proxy bus object is released.
+ *
+ * @param <T> the reply type of the method
+ */
+final class MethodCallFuture<T> implements Future<T> {
+
+    private final Type replyType;
+
+    private final Executor executor;
+
+    private final OnMethodReplyListener<T> listener;
+
+    private final Object context;
+
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    /** Guarded by this. */
+    private boolean completed;
+
+    private boolean cancelled;
+
+    private T reply;
+
+    private BusException error;
+
+    /**
+     * Constructs a pending reply.
+     *
+     * @param replyType the type to unmarshal the reply into
+     * @param executor the executor to unmarshal the reply on, or {@code null}
+     *                 to unmarshal it on the thread that received it
+     * @param listener the listener to notify, or {@code null}
+     * @param context the context object passed to the listener
+     */
+    MethodCallFuture(Type replyType, Executor executor, OnMethodReplyListener<T> listener, Object context) {
+        this.replyType = replyType;
+        this.executor = executor;
+        this.listener = listener;
+        this.context = context;
+    }
+
+    /**
+     * Called by native code when the method reply arrives.
+     *
+     * @param msgArg the native reply arguments, owned by this object from
+     *               now on, or 0 if the method has no reply arguments
+     */
+    void replied(final long msgArg) {
+        dispatch(new Runnable() {
+                public void run() {
+                    T value = null;
+                    BusException ex = null;
+                    try {
+                        if (msgArg != 0) {
+                            @SuppressWarnings(value = "unchecked")
+                            T v = (T) MsgArg.unmarshal(msgArg, replyType);
+                            value = v;
+                        }
+                    } catch (BusException e) {
+                        ex = e;
+                    } finally {
+                        if (msgArg != 0) {
+                            MsgArg.destroy(msgArg);
+                        }
+                    }
+                    complete(value, ex);
+                }
+            }, msgArg);
+    }
+
+    /**
+     * Called by native code when the method fails.
+     *
+     * @param errorName the name of the error reply, or {@code null} if the
+     *                  call failed locally
+     * @param errorMessage the error message
+     */
+    void failed(String errorName, String errorMessage) {
+        final BusException ex;
+        if (errorName == null || "org.alljoyn.bus.BusException".equals(errorName)) {
+            ex = new BusException(errorMessage);
+        } else {
+            ex = new ErrorReplyBusException(errorName, errorMessage);
+        }
+        dispatch(new Runnable() {
+                public void run() {
+                    complete(null, ex);
+                }
+            }, 0);
+    }
+
+    /**
+     * Fails a call that could not be sent.
+     *
+     * @param ex the reason the call was not sent
+     */
+    void failed(BusException ex) {
+        complete(null, ex);
+    }
+
+    private void dispatch(Runnable task, long msgArg) {
+        if (executor == null) {
+            task.run();
+            return;
+        }
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            if (msgArg != 0) {
+                MsgArg.destroy(msgArg);
+            }
+            complete(null, new BusException("reply executor rejected the reply"));
+        }
+    }
+
+    private void complete(T value, BusException ex) {
+        synchronized (this) {
+            if (completed) {
+                return;
+            }
+            completed = true;
+            reply = value;
+            error = ex;
+        }
+        done.countDown();
+        if (listener != null) {
+            listener.onMethodReply(value, ex, context);
+        }
+    }
+
+    /**
+     * Marks the call as cancelled.  The remote method still runs, but its
+     * reply is discarded and the listener is not called.
+     */
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            if (completed) {
+                return false;
+            }
+            completed = true;
+            cancelled = true;
+        }
+        done.countDown();
+        return true;
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    public synchronized boolean isDone() {
+        return completed;
+    }
+
+    public T get() throws InterruptedException, ExecutionException {
+        done.await();
+        return result();
+    }
+
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return result();
+    }
+
+    private synchronized T result() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        if (error != null) {
+            throw new ExecutionException(error);
+        }
+        return reply;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.alljoyn.bus;
+
+import org.alljoyn.bus.annotation.ReplyCache;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The cached replies of the methods of a proxy bus object annotated with
+ * {@link ReplyCache}, keyed by method and arguments.  The cache is cleared
+ * when the owner of the bus name of the proxy bus object changes.
+ */
+final class MethodReplyCache {
+
+    /** Returned by {@link #get(Method, Object[])} when no reply is cached. */
+    static final Object MISS = new Object();
+
+    /** A cached reply. */
+    private static final class CachedReply {
+        final Object reply;
+        final long expires;
+
+        CachedReply(Object reply, long expires) {
+            this.reply = reply;
+            this.expires = expires;
+        }
+    }
+
+    /** The least recently used replies of one method. */
+    private static final class Replies extends LinkedHashMap<CallKey, CachedReply> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        Replies(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        protected boolean removeEldestEntry(Map.Entry<CallKey, CachedReply> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+    private final BusAttachment bus;
+
+    private final BusListener nameOwnerListener;
+
+    /** The cached replies, by method.  Guarded by this. */
+    private final Map<Method, Replies> methods = new HashMap<Method, Replies>();
+
+    /**
+     * Incremented each time the cache is cleared, so that replies to calls
+     * made before are not cached.  Guarded by this.
+     */
+    private long generation;
+
+    MethodReplyCache(BusAttachment bus, final String busName) {
+        this.bus = bus;
+        this.nameOwnerListener = new BusListener() {
+                public void nameOwnerChanged(String name, String previousOwner, String newOwner) {
+                    if (busName.equals(name)) {
+                        clear();
+                    }
+                }
+            };
+        bus.registerBusListener(nameOwnerListener);
+    }
+
+    /** Stops following the owner of the bus name and drops the cached replies. */
+    void stop() {
+        bus.unregisterBusListener(nameOwnerListener);
+        clear();
+    }
+
+    /**
+     * Gets the cached reply of a call.
+     *
+     * @return the reply, or {@link #MISS} if no unexpired reply is cached
+     */
+    synchronized Object get(Method method, Object[] args) {
+        Replies replies = methods.get(method);
+        if (replies == null) {
+            return MISS;
+        }
+        CallKey key = new CallKey(args);
+        CachedReply cached = replies.get(key);
+        if (cached == null) {
+            return MISS;
+        }
+        if (System.nanoTime() - cached.expires >= 0) {
+            replies.remove(key);
+            return MISS;
+        }
+        return cached.reply;
+    }
+
+    /** Gets the generation to pass to {@link #put}. */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Caches the reply of a call, unless the cache was cleared since the call
+     * was made.
+     *
+     * @param generation the generation of the cache when the call was made
+     */
+    synchronized void put(Method method, ReplyCache config, Object[] args, Object reply, long generation) {
+        if (this.generation != generation) {
+            return;
+        }
+        Replies replies = methods.get(method);
+        if (replies == null) {
+            replies = new Replies(Math.max(config.maxSize(), 1));
+            methods.put(method, replies);
+        }
+        Object[] parts = (args == null) ? null : args.clone();
+        replies.put(new CallKey(parts), new CachedReply(reply, System.nanoTime() + config.timeToLive() * 1000000L));
+    }
+
+    /** Drops all the cached replies. */
+    synchronized void clear() {
+        ++generation;
+        methods.clear();
+    }
+}
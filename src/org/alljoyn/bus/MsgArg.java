@@ -19,12 +19,14 @@ package org.alljoyn.bus;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * MsgArg provides methods for marshalling from Java types to native types and
@@ -70,72 +72,91 @@ final class MsgArg {
     private static final int ALLJOYN_INT64_ARRAY      = ('x' << 8) | 'a';
     private static final int ALLJOYN_BYTE_ARRAY       = ('y' << 8) | 'a';
 
+    /**
+     * When set, MsgArgs with a compiled plan are unmarshalled from a bulk
+     * encoding of the whole MsgArg tree produced in a single JNI call, instead
+     * of walking the tree one JNI call per node.  Set the system property
+     * {@code org.alljoyn.bus.bulkUnmarshal} to {@code false} to disable.
+     */
+    static volatile boolean bulkUnmarshal =
+        Boolean.valueOf(System.getProperty("org.alljoyn.bus.bulkUnmarshal", "true"));
+
+    /**
+     * When set, Java objects with a compiled plan are marshalled by writing
+     * them into a buffer that native code builds the whole MsgArg tree from in
+     * a single JNI call, instead of building the tree one JNI call per node.
+     * Set the system property {@code org.alljoyn.bus.bulkMarshal} to {@code
+     * false} to disable.
+     */
+    static volatile boolean bulkMarshal =
+        Boolean.valueOf(System.getProperty("org.alljoyn.bus.bulkMarshal", "true"));
+
+    /** The constants of each {@code Enum} class, indexed by ordinal value. */
+    private static final ConcurrentMap<Class<?>, Enum<?>[]> enumConstants =
+        new ConcurrentHashMap<Class<?>, Enum<?>[]>();
+
     private MsgArg() {}
 
+    /**
+     * Gets the constants of an {@code Enum} class, indexed by ordinal value.
+     * The constants are looked up once per class and the returned array is
+     * shared and must not be modified.
+     *
+     * @param c the {@code Enum} class
+     * @return the constants
+     */
+    static Enum<?>[] getEnumConstants(Class<?> c) {
+        Enum<?>[] values = enumConstants.get(c);
+        if (values == null) {
+            values = (Enum<?>[]) c.getEnumConstants();
+            enumConstants.putIfAbsent(c, values);
+        }
+        return values;
+    }
+
     /**
      * Marshals an {@code int} value into a Java {@code Enum}.  
      *
      * @param type the type of the {@code Enum}
-     * @param int the ordinal value of the enum
+     * @param value the ordinal value of the enum
      * @return an {@code Enum} object of type {@code type} if the marshalling
      *         succeeds.  Otherwise {@code null} is returned.
      * @throws BusException if {@code type} is an {@code Enum}, but the enum
      *                      object corresponding to the ordinal value cannot be
      *                      determined
      */
-    @SuppressWarnings("unchecked")
-    private static Enum getEnumObject(Type type, int value) throws BusException {
-        if (type instanceof Class) {
-            Class c = (Class) type;
-            if (c.isEnum()) {
-                try {
-                    Object[] values = (Object[]) c.getMethod("values").invoke(null);
-                    return (Enum) values[value];
-                } catch (ArrayIndexOutOfBoundsException ex) {
-                    throw new BusException("failed to get " + c + " for value " + value, ex);
-                } catch (NoSuchMethodException ex) {
-                    throw new BusException("failed to get " + c + " for value " + value, ex);
-                } catch (IllegalAccessException ex) {
-                    throw new BusException("failed to get " + c + " for value " + value, ex);
-                } catch (InvocationTargetException ex) {
-                    throw new BusException("failed to get " + c + " for value " + value, ex);
-                }
-            }
+    static Enum<?> getEnumObject(Type type, int value) throws BusException {
+        if (type instanceof Class && ((Class<?>) type).isEnum()) {
+            return getEnumObject(getEnumConstants((Class<?>) type), value);
         }
         return null;
     }
 
+    /**
+     * Marshals an {@code int} value into one of the constants of an {@code Enum}.
+     *
+     * @param values the constants, as returned by {@link #getEnumConstants(Class)}
+     * @param value the ordinal value of the enum
+     * @return the {@code Enum} object
+     * @throws BusException if the ordinal value is out of range
+     */
+    static Enum<?> getEnumObject(Enum<?>[] values, int value) throws BusException {
+        if (value < 0 || value >= values.length) {
+            throw new BusException("failed to get " + values.getClass().getComponentType()
+                                   + " for value " + value);
+        }
+        return values[value];
+    }
+
     /**
      * Gets the ordinal value of the {@code Enum} object.
      *
      * @param obj the {@code Enum} object
-     * @return the ordinal value as an {@code int}
-     * @throws BusException if {@code obj} is an {@code Enum}, but the ordinal
-     *                      value cannot be determined
+     * @return the ordinal value as an {@code int}, or -1 if {@code obj} is
+     *         not an {@code Enum}
      */
-    @SuppressWarnings("unchecked")
-    private static int getEnumValue(Object obj) throws BusException {
-        if (obj != null) {
-            Class c = obj.getClass();
-            if (c.isEnum()) {
-                try {
-                    Object[] values = (Object[]) c.getMethod("values").invoke(null);
-                    for (int i = 0; i < values.length; ++i) {
-                        if (values[i].equals(obj)) {
-                            return i;
-                        }
-                    }
-                    throw new BusException("failed to get ordinal value for " + obj);
-                } catch (NoSuchMethodException ex) {
-                    throw new BusException("failed to get ordinal value for " + obj, ex);
-                } catch (IllegalAccessException ex) {
-                    throw new BusException("failed to get ordinal value for " + obj, ex);
-                } catch (InvocationTargetException ex) {
-                    throw new BusException("failed to get ordinal value for " + obj, ex);
-                }
-            }
-        }
-        return -1;
+    static int getEnumValue(Object obj) {
+        return (obj instanceof Enum) ? ((Enum<?>) obj).ordinal() : -1;
     }
     
     /*
@@ -172,6 +193,38 @@ final class MsgArg {
     public static native int getNumMembers(long msgArg);
     public static native long getMember(long msgArg, int index);
 
+    /**
+     * Wraps the contents of an ALLJOYN_BYTE_ARRAY in a direct buffer without
+     * copying them.  The buffer is only valid as long as the MsgArg itself.
+     *
+     * @param msgArg the native MsgArg pointer
+     * @return a direct buffer over the bytes of the message arg
+     */
+    static native ByteBuffer getByteBuffer(long msgArg);
+
+    /**
+     * Makes a copy of a MsgArg that is owned by the caller.
+     *
+     * @param msgArg the native MsgArg pointer
+     * @return the native pointer of the copy, to be freed with {@link #destroy(long)}
+     */
+    static native long copy(long msgArg);
+
+    /**
+     * Frees a MsgArg made by {@link #copy(long)}.
+     *
+     * @param msgArg the native MsgArg pointer
+     */
+    static native void destroy(long msgArg);
+
+    /**
+     * Gets the address of the contents of a direct buffer.
+     *
+     * @param buffer a direct buffer
+     * @return the address of the first byte of the buffer's capacity
+     */
+    static native long getAddress(ByteBuffer buffer);
+
     /*
      * Accessor functions for setting native MsgArgs.  The msgArg
      * parameter is a native (MsgArg *).
@@ -189,12 +242,43 @@ final class MsgArg {
     public static native long set(long msgArg, String signature, int[] arg) throws BusException;
     public static native long set(long msgArg, String signature, long[] arg) throws BusException;
     public static native long set(long msgArg, String signature, double[] arg) throws BusException;
+    public static native long set(long msgArg, String signature, ByteBuffer arg, int offset, int length,
+                                  boolean inPlace) throws BusException;
     public static native long setArray(long msgArg, String elemSig, int numElements) throws BusException;
     public static native long setStruct(long msgArg, int numMembers) throws BusException;
     public static native long setDictEntry(long msgArg) throws BusException;
     public static native long setVariant(long msgArg, String signature, long val) throws BusException;
     public static native long setVariant(long msgArg) throws BusException;
 
+    /**
+     * Sets an ALLJOYN_BYTE_ARRAY from the bytes between the position and limit
+     * of a ByteBuffer.
+     *
+     * @param msgArg the native MsgArg pointer
+     * @param signature the signature of the message arg, {@code "ay"}
+     * @param arg the ByteBuffer
+     * @param inPlace if {@code true} and the ByteBuffer is direct the MsgArg
+     *                refers to the contents of the ByteBuffer instead of
+     *                copying them, so the ByteBuffer must not be modified or
+     *                collected until the MsgArg is no longer used
+     * @return the native MsgArg pointer
+     * @throws BusException if the message arg cannot be set
+     */
+    static long set(long msgArg, String signature, ByteBuffer arg, boolean inPlace) throws BusException {
+        if (arg.isDirect()) {
+            return set(msgArg, signature, arg, arg.position(), arg.remaining(), inPlace);
+        }
+        byte[] array;
+        if (arg.hasArray() && arg.arrayOffset() == 0 && arg.position() == 0
+            && arg.remaining() == arg.array().length) {
+            array = arg.array();
+        } else {
+            array = new byte[arg.remaining()];
+            arg.duplicate().get(array);
+        }
+        return set(msgArg, signature, array);
+    }
+
     /**
      * Returns a string representation of the signature of an array of message
      * args.
@@ -204,6 +288,39 @@ final class MsgArg {
      */
     public static native String getSignature(long[] msgArgs);
 
+    /**
+     * Returns a string representation of the signature of a message arg.
+     * Unlike {@link #getSignature(long[])} this does not copy the message arg.
+     *
+     * @param msgArg the native MsgArg pointer
+     * @return the signature string for the message arg
+     */
+    public static native String getArgSignature(long msgArg);
+
+    /**
+     * Writes the bulk unmarshal encoding of a message arg into a direct
+     * buffer, starting at the beginning of the buffer.  Nothing is written if
+     * the buffer is too small.
+     *
+     * @param msgArg the native MsgArg pointer
+     * @param buffer a direct buffer in native byte order
+     * @return the size of the encoding, or -1 if the message arg contains a
+     *         type that cannot be encoded
+     */
+    static native int encode(long msgArg, ByteBuffer buffer);
+
+    /**
+     * Sets a message arg from the bulk marshal encoding of Java objects.
+     *
+     * @param msgArg the native MsgArg pointer
+     * @param sig the signature of the message arg
+     * @param buffer a direct buffer in native byte order holding the encoding
+     * @param length the length of the encoding
+     * @throws BusException if the encoding does not match the signature
+     */
+    static native void setEncoded(long msgArg, String sig, ByteBuffer buffer, int length)
+        throws BusException;
+
     /**
      * Unmarshals a native MsgArg into a Java object.
      *
@@ -212,8 +329,31 @@ final class MsgArg {
      * @return the unmarshalled Java object
      * @throws MarshalBusException if the unmarshalling fails
      */
-    @SuppressWarnings("unchecked")
     public static Object unmarshal(long msgArg, Type type) throws MarshalBusException {
+        Codec codec = Codec.get(type, getArgSignature(msgArg));
+        if (codec == null) {
+            return unmarshalRecursive(msgArg, type);
+        }
+        try {
+            ByteBuffer buf = (bulkUnmarshal && !codec.isInPlace()) ? Codec.encode(msgArg) : null;
+            return (buf != null) ? codec.decode(buf) : codec.unmarshal(msgArg);
+        } catch (Throwable th) {
+            throw new MarshalBusException("cannot marshal '" + getSignature(new long[] { msgArg })
+                                          + "' into " + type, th);
+        }
+    }
+
+    /**
+     * Unmarshals a native MsgArg into a Java object by walking the MsgArg.
+     * This is the fallback when no compiled plan exists for the Java type.
+     *
+     * @param msgArg the native MsgArg pointer
+     * @param type the Java type to unmarshal into
+     * @return the unmarshalled Java object
+     * @throws MarshalBusException if the unmarshalling fails
+     */
+    @SuppressWarnings("unchecked")
+    private static Object unmarshalRecursive(long msgArg, Type type) throws MarshalBusException {
         try {
             Object object;
             switch (getTypeId(msgArg)) {
@@ -226,8 +366,8 @@ final class MsgArg {
                         long element  = getElement(msgArg, i);
                         Type[] typeArgs = ((ParameterizedType) type).getActualTypeArguments();
                         // TODO Can't seem to get it to suppress the warning here...
-                        ((Map<Object, Object>) object).put(unmarshal(getKey(element), typeArgs[0]),
-                                                           unmarshal(getVal(element), typeArgs[1]));
+                        ((Map<Object, Object>) object).put(unmarshalRecursive(getKey(element), typeArgs[0]),
+                                                           unmarshalRecursive(getVal(element), typeArgs[1]));
                     }
                     return object;
                 } else {
@@ -248,7 +388,7 @@ final class MsgArg {
                          * Under Sun the Array.set() is sufficient to check the
                          * type.  Under Android that is not the case.
                          */
-                        Object component = unmarshal(getElement(msgArg, i), componentType);
+                        Object component = unmarshalRecursive(getElement(msgArg, i), componentType);
                         if (!componentClass.isInstance(component)) {
                             throw new IllegalArgumentException("argument type mismatch");
                         }
@@ -267,6 +407,9 @@ final class MsgArg {
                 } 
                 return object;
             case ALLJOYN_BYTE_ARRAY:
+                if (type == ByteBuffer.class) {
+                    return ByteBuffer.wrap(getByteArray(msgArg));
+                }
                 return getByteArray(msgArg);
             case ALLJOYN_DOUBLE:
                 return getDouble(msgArg);
@@ -313,7 +456,7 @@ final class MsgArg {
                 object = ((Class) type).newInstance();
                 Field[] fields = Signature.structFields((Class) type);
                 for (int i = 0; i < getNumMembers(msgArg); ++i) {
-                    Object value = unmarshal(getMember(msgArg, i), types[i]);
+                    Object value = unmarshalRecursive(getMember(msgArg, i), types[i]);
                     fields[i].set(object, value);
                 }
                 return object;
@@ -366,6 +509,38 @@ final class MsgArg {
      * @throws MarshalBusException if the unmarshalling fails
      */
     public static Object[] unmarshal(Method method, long msgArgs) throws MarshalBusException {
+        Codec[] codecs = Codec.get(method, getArgSignature(msgArgs));
+        if (codecs != null) {
+            Object[] objects = new Object[codecs.length];
+            boolean inPlace = false;
+            for (int i = 0; i < codecs.length; ++i) {
+                inPlace |= codecs[i].isInPlace();
+            }
+            /*
+             * Parameters unmarshalled in place cannot come from the encoding,
+             * so then encode the other parameters one by one.
+             */
+            ByteBuffer buf = (bulkUnmarshal && !inPlace) ? Codec.encode(msgArgs) : null;
+            for (int i = 0; i < codecs.length; ++i) {
+                try {
+                    if (buf != null) {
+                        objects[i] = codecs[i].decode(buf);
+                    } else if (bulkUnmarshal && !codecs[i].isInPlace()) {
+                        ByteBuffer memberBuf = Codec.encode(getMember(msgArgs, i));
+                        objects[i] = (memberBuf != null) ? codecs[i].decode(memberBuf)
+                            : codecs[i].unmarshal(getMember(msgArgs, i));
+                    } else {
+                        objects[i] = codecs[i].unmarshal(getMember(msgArgs, i));
+                    }
+                } catch (Throwable th) {
+                    long msgArg = getMember(msgArgs, i);
+                    throw new MarshalBusException("cannot marshal '" + getSignature(new long[] { msgArg })
+                                                  + "' into " + method.getGenericParameterTypes()[i], th);
+                }
+            }
+            return objects;
+        }
+
         Type[] types = method.getGenericParameterTypes();
         int numArgs = getNumMembers(msgArgs);
         if (types.length != numArgs) {
@@ -388,6 +563,31 @@ final class MsgArg {
      * @throws MarshalBusException if the marshalling fails
      */
     public static void marshal(long msgArg, String sig, Object arg) throws BusException {
+        Codec codec = (arg == null) ? null : Codec.get(arg.getClass(), sig);
+        if (codec == null) {
+            marshalRecursive(msgArg, sig, arg);
+            return;
+        }
+        if (bulkMarshal && marshalEncoded(msgArg, sig, new Codec[] { codec }, new Object[] { arg })) {
+            return;
+        }
+        try {
+            codec.marshal(msgArg, arg);
+        } catch (Throwable th) {
+            throw new MarshalBusException("cannot marshal " + arg.getClass() + " into '" + sig + "'", th);
+        }
+    }
+
+    /**
+     * Marshals a Java object into a native MsgArg by walking the signature.
+     * This is the fallback when no compiled plan exists for the Java object.
+     *
+     * @param msgArg the MsgArg to marshal the Java object into.
+     * @param sig the desired signature of the marshalled MsgArg
+     * @param arg the Java object
+     * @throws MarshalBusException if the marshalling fails
+     */
+    private static void marshalRecursive(long msgArg, String sig, Object arg) throws BusException {
         try {
             int value = getEnumValue(arg);
             switch (sig.charAt(0)) {
@@ -442,11 +642,16 @@ final class MsgArg {
                 }
                 char elementTypeId = sig.charAt(1);
                 if (ALLJOYN_DICT_ENTRY_OPEN == elementTypeId) {
-                    arg = ((Map) arg).entrySet().toArray();
+                    marshalDict(msgArg, sig, (Map<?, ?>) arg);
+                    break;
                 }
                 switch (elementTypeId) {
                 case ALLJOYN_BYTE:
-                    set(msgArg, sig, (byte[]) arg);
+                    if (arg instanceof ByteBuffer) {
+                        set(msgArg, sig, (ByteBuffer) arg, false);
+                    } else {
+                        set(msgArg, sig, (byte[]) arg);
+                    }
                     break;
                 case ALLJOYN_BOOLEAN:
                     set(msgArg, sig, (boolean[]) arg);
@@ -478,7 +683,7 @@ final class MsgArg {
                 break;
             case ALLJOYN_STRUCT_OPEN:
                 Object[] args = Signature.structArgs(arg);
-                String[] memberSigs = Signature.split(sig.substring(1, sig.length() - 1));
+                String[] memberSigs = Codec.split(sig.substring(1, sig.length() - 1));
                 if (memberSigs == null) {
                     throw new MarshalBusException("cannot marshal " + arg.getClass() + " into '" 
                                                   + sig + "'");
@@ -499,7 +704,7 @@ final class MsgArg {
                 break;
             case ALLJOYN_DICT_ENTRY_OPEN:
                 Map.Entry<?, ?> entry = (Map.Entry<?, ?>) arg;
-                String[] sigs = Signature.split(sig.substring(1, sig.length() - 1));
+                String[] sigs = Codec.split(sig.substring(1, sig.length() - 1));
                 if (sigs == null) {
                     throw new MarshalBusException("cannot marshal " + arg.getClass() + " into '" 
                                                   + sig + "'");
@@ -518,6 +723,31 @@ final class MsgArg {
         }
     }
 
+    /**
+     * Marshals a Map into an ALLJOYN_ARRAY of ALLJOYN_DICT_ENTRY.  The entry
+     * signature is split once and the entries are iterated once, without
+     * copying them into an intermediate array.
+     *
+     * @param msgArg the MsgArg to marshal the Map into
+     * @param sig the signature of the dictionary
+     * @param map the Map
+     * @throws MarshalBusException if the marshalling fails
+     */
+    private static void marshalDict(long msgArg, String sig, Map<?, ?> map) throws BusException {
+        String[] sigs = Codec.split(sig.substring(2, sig.length() - 1));
+        if (sigs == null || sigs.length != 2) {
+            throw new MarshalBusException("cannot marshal " + map.getClass() + " into '" + sig + "'");
+        }
+        setArray(msgArg, sig.substring(1), map.size());
+        int i = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            long element = getElement(msgArg, i++);
+            setDictEntry(element);
+            marshal(getKey(element), sigs[0], entry.getKey());
+            marshal(getVal(element), sigs[1], entry.getValue());
+        }
+    }
+
     /**
      * Marshals an array of Java objects into a ALLJOYN_STRUCT containing the Java
      * objects as members.
@@ -528,13 +758,59 @@ final class MsgArg {
      * @throws MarshalBusException if the marshalling fails
      */
     public static void marshal(long msgArg, String sig, Object[] args) throws BusException {
-        String[] sigs = Signature.split(sig);
+        String[] sigs = Codec.split(sig);
         if (sigs == null) {
             throw new MarshalBusException("cannot marshal args into '" + sig + "', bad signature");
         }
+        if (bulkMarshal && args != null && args.length == sigs.length) {
+            Codec[] codecs = new Codec[args.length];
+            for (int i = 0; i < args.length; ++i) {
+                if (args[i] instanceof ByteBuffer && "ay".equals(sigs[i])) {
+                    /* The args are referenced until the message is built, so read them in place. */
+                    codecs[i] = Codec.IN_PLACE_BYTE_BUFFER;
+                    continue;
+                }
+                codecs[i] = (args[i] == null) ? null : Codec.get(args[i].getClass(), sigs[i]);
+                if (codecs[i] == null) {
+                    codecs = null;
+                    break;
+                }
+            }
+            if (codecs != null && marshalEncoded(msgArg, "(" + sig + ")", codecs, args)) {
+                return;
+            }
+        }
         setStruct(msgArg, (args == null) ? 0 : args.length);
         for (int i = 0; i < getNumMembers(msgArg); ++i) {
-            marshal(getMember(msgArg, i), sigs[i], args[i]);
+            if (args[i] instanceof ByteBuffer && "ay".equals(sigs[i])) {
+                set(getMember(msgArg, i), sigs[i], (ByteBuffer) args[i], true);
+            } else {
+                marshal(getMember(msgArg, i), sigs[i], args[i]);
+            }
+        }
+    }
+
+    /**
+     * Marshals Java objects with a single JNI call using their bulk marshal
+     * encoding.
+     *
+     * @param msgArg the MsgArg to marshal the Java objects into
+     * @param sig the signature of the MsgArg
+     * @param codecs the plan of each Java object
+     * @param args the Java objects
+     * @return {@code true} if the Java objects were marshalled, {@code false}
+     *         if they must be marshalled node by node instead, which also
+     *         produces the appropriate error
+     */
+    private static boolean marshalEncoded(long msgArg, String sig, Codec[] codecs, Object[] args) {
+        try {
+            ByteBuffer buf = Codec.encode(codecs, args);
+            setEncoded(msgArg, sig, buf, buf.position());
+            return true;
+        } catch (BusException ex) {
+            return false;
+        } catch (RuntimeException ex) {
+            return false;
         }
     }
 }
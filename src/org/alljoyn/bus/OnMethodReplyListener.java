@@ -0,0 +1,50 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.alljoyn.bus;
+
+/**
+ * An OnMethodReplyListener receives the completion of an asynchronous method
+ * call made with {@link ProxyBusObject#methodCallAsync(Class, String,
+ * Object[], OnMethodReplyListener, Object)}.  It is expected that a client
+ * will specialize this class in order to handle the callback.
+ *
+ * The listener is called on the reply executor of the proxy bus object or,
+ * if none is set, on the AllJoyn thread that received the reply.  In the
+ * latter case it must not make blocking AllJoyn calls, since the receive
+ * thread would then deadlock with itself until the bus timeout expires.
+ *
+ * @param <T> the reply type of the method
+ * @see ProxyBusObject#setReplyExecutor(java.util.concurrent.Executor)
+ */
+public class OnMethodReplyListener<T> {
+
+    /**
+     * Notification that an asynchronous method call has completed.
+     *
+     * Any implementation of this function must be multithread safe.  See the
+     * class documentation for details.
+     *
+     * @param reply the reply of the method, or {@code null} if the method
+     *              failed or has no reply arguments
+     * @param error {@code null} if the method succeeded, otherwise the
+     *              error, an {@link ErrorReplyBusException} if the remote
+     *              object replied with an error
+     * @param context the user-defined context object supplied in the call
+     *                to {@code methodCallAsync}
+     */
+    public void onMethodReply(T reply, BusException error, Object context) {}
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.alljoyn.bus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable, parsed DBus signature.  A parsed signature is either a list
+ * of complete types, as returned by {@link #parse(String)}, or one complete
+ * type, as returned by {@link #getType(int)}.  Valid signatures are
+ * interned, up to a limit, so that each distinct signature is usually parsed
+ * only once.
+ *
+ * This class is used internally.
+ */
+final class ParsedSignature {
+
+    /** The maximum length of a signature. */
+    private static final int MAX_LENGTH = 255;
+
+    /** The maximum nesting of arrays, and separately of structs. */
+    private static final int MAX_DEPTH = 32;
+
+    /** The type id of a list of complete types. */
+    static final char LIST = '\0';
+
+    /**
+     * The most signatures interned in each table.  Signatures also come from
+     * remote messages, so once a table is full further signatures are parsed
+     * each time instead of growing it.
+     */
+    private static final int MAX_INTERNED = 4096;
+
+    /** The interned lists of complete types, keyed by signature string. */
+    private static final ConcurrentMap<String, ParsedSignature> lists =
+        new ConcurrentHashMap<String, ParsedSignature>();
+
+    /** The interned complete types, keyed by signature string. */
+    private static final ConcurrentMap<String, ParsedSignature> completeTypes =
+        new ConcurrentHashMap<String, ParsedSignature>();
+
+    private final String signature;
+
+    private final char typeId;
+
+    /**
+     * The complete types of a list, the members of a struct, the key and
+     * value of a dictionary entry, or the element of an array.
+     */
+    private final ParsedSignature[] types;
+
+    /** The signatures of the types, shared with callers. */
+    private final String[] typeSigs;
+
+    private final int alignment;
+
+    private final int fixedSize;
+
+    private ParsedSignature(String signature, char typeId, ParsedSignature[] types) {
+        this.signature = signature;
+        this.typeId = typeId;
+        this.types = types;
+        this.typeSigs = new String[types.length];
+        for (int i = 0; i < types.length; ++i) {
+            typeSigs[i] = types[i].signature;
+        }
+        this.alignment = alignment(typeId);
+        this.fixedSize = fixedSize(typeId, types);
+    }
+
+    /**
+     * Gets the parsed list of complete types of a signature.
+     *
+     * @param sig the signature
+     * @return the parsed signature, or {@code null} if the signature is invalid
+     */
+    static ParsedSignature parse(String sig) {
+        ParsedSignature parsed = lists.get(sig);
+        if (parsed == null) {
+            List<ParsedSignature> types = new ArrayList<ParsedSignature>();
+            if (sig.length() <= MAX_LENGTH) {
+                int[] pos = new int[1];
+                while (pos[0] < sig.length()) {
+                    ParsedSignature type = parseCompleteType(sig, pos, 0, 0);
+                    if (type == null) {
+                        types = null;
+                        break;
+                    }
+                    types.add(type);
+                }
+            } else {
+                types = null;
+            }
+            if (types == null) {
+                return null;
+            }
+            parsed = new ParsedSignature(sig, LIST, types.toArray(new ParsedSignature[types.size()]));
+            if (lists.size() < MAX_INTERNED) {
+                ParsedSignature prev = lists.putIfAbsent(sig, parsed);
+                if (prev != null) {
+                    parsed = prev;
+                }
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Parses the complete type starting at pos[0], leaving pos[0] after it.
+     *
+     * @return the interned complete type, or {@code null} if invalid
+     */
+    private static ParsedSignature parseCompleteType(String sig, int[] pos, int arrayDepth,
+                                                     int structDepth) {
+        int start = pos[0];
+        if (start >= sig.length()) {
+            return null;
+        }
+        char typeId = sig.charAt(pos[0]++);
+        ParsedSignature[] types;
+        switch (typeId) {
+        case 'y': case 'b': case 'n': case 'q': case 'i': case 'u': case 'x': case 't':
+        case 'd': case 's': case 'o': case 'g': case 'v': case 'h':
+            types = new ParsedSignature[0];
+            break;
+        case 'a': {
+            if (arrayDepth >= MAX_DEPTH) {
+                return null;
+            }
+            ParsedSignature elem;
+            if (pos[0] < sig.length() && sig.charAt(pos[0]) == '{') {
+                elem = parseDictEntry(sig, pos, arrayDepth + 1, structDepth);
+            } else {
+                elem = parseCompleteType(sig, pos, arrayDepth + 1, structDepth);
+            }
+            if (elem == null) {
+                return null;
+            }
+            types = new ParsedSignature[] { elem };
+            break;
+        }
+        case '(': {
+            if (structDepth >= MAX_DEPTH) {
+                return null;
+            }
+            List<ParsedSignature> members = new ArrayList<ParsedSignature>();
+            while (pos[0] < sig.length() && sig.charAt(pos[0]) != ')') {
+                ParsedSignature member = parseCompleteType(sig, pos, arrayDepth, structDepth + 1);
+                if (member == null) {
+                    return null;
+                }
+                members.add(member);
+            }
+            if (pos[0] >= sig.length() || members.isEmpty()) {
+                return null;
+            }
+            ++pos[0];
+            types = members.toArray(new ParsedSignature[members.size()]);
+            break;
+        }
+        default:
+            return null;
+        }
+        return intern(sig.substring(start, pos[0]), typeId, types);
+    }
+
+    /** Parses a dictionary entry, which is only valid as an array element. */
+    private static ParsedSignature parseDictEntry(String sig, int[] pos, int arrayDepth,
+                                                  int structDepth) {
+        int start = pos[0]++;
+        ParsedSignature key = parseCompleteType(sig, pos, arrayDepth, structDepth + 1);
+        if (key == null || !key.isBasic()) {
+            return null;
+        }
+        ParsedSignature val = parseCompleteType(sig, pos, arrayDepth, structDepth + 1);
+        if (val == null || pos[0] >= sig.length() || sig.charAt(pos[0]) != '}') {
+            return null;
+        }
+        ++pos[0];
+        return intern(sig.substring(start, pos[0]), '{', new ParsedSignature[] { key, val });
+    }
+
+    private static ParsedSignature intern(String sig, char typeId, ParsedSignature[] types) {
+        ParsedSignature parsed = completeTypes.get(sig);
+        if (parsed == null) {
+            parsed = new ParsedSignature(sig, typeId, types);
+            if (completeTypes.size() < MAX_INTERNED) {
+                ParsedSignature prev = completeTypes.putIfAbsent(sig, parsed);
+                if (prev != null) {
+                    parsed = prev;
+                }
+            }
+        }
+        return parsed;
+    }
+
+    private static int alignment(char typeId) {
+        switch (typeId) {
+        case 'y': case 'g': case 'v':
+            return 1;
+        case 'n': case 'q':
+            return 2;
+        case 'b': case 'i': case 'u': case 'h': case 's': case 'o': case 'a':
+            return 4;
+        case 'x': case 't': case 'd': case '(': case '{':
+            return 8;
+        default:
+            return 1;
+        }
+    }
+
+    /** Computes the marshalled size of a fixed size type, or -1. */
+    private static int fixedSize(char typeId, ParsedSignature[] types) {
+        switch (typeId) {
+        case 'y':
+            return 1;
+        case 'n': case 'q':
+            return 2;
+        case 'b': case 'i': case 'u': case 'h':
+            return 4;
+        case 'x': case 't': case 'd':
+            return 8;
+        case '(': {
+            int size = 0;
+            for (ParsedSignature member : types) {
+                if (member.fixedSize < 0) {
+                    return -1;
+                }
+                size = (size + member.alignment - 1) & -member.alignment;
+                size += member.fixedSize;
+            }
+            return size;
+        }
+        default:
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the type id, the first character of a complete type or {@link
+     * #LIST}.
+     */
+    char getTypeId() {
+        return typeId;
+    }
+
+    /** Gets the number of complete types in a list, or nested in a container. */
+    int size() {
+        return types.length;
+    }
+
+    /**
+     * Gets one of the complete types in a list, the members of a struct, the
+     * key (0) and value (1) of a dictionary entry, or the element (0) of an
+     * array.
+     */
+    ParsedSignature getType(int index) {
+        return types[index];
+    }
+
+    /**
+     * Gets the signatures of the complete types, as {@link #getType(int)}.
+     * The returned array is shared and must not be modified.
+     */
+    String[] getTypeSigs() {
+        return typeSigs;
+    }
+
+    /** Gets the alignment of the marshalled type in bytes. */
+    int getAlignment() {
+        return alignment;
+    }
+
+    /**
+     * Gets the marshalled size of a type made only of fixed size basic types
+     * and structs of them, or -1 if the size varies.
+     */
+    int getFixedSize() {
+        return fixedSize;
+    }
+
+    /** Tells if this is a basic (non-container) type. */
+    boolean isBasic() {
+        return typeId != LIST && typeId != 'a' && typeId != '(' && typeId != '{' && typeId != 'v';
+    }
+
+    /**
+     * Tells if this is an array of a fixed size basic type, which is
+     * marshalled to and from a Java primitive array in a single copy.
+     */
+    boolean isPrimitiveArray() {
+        return typeId == 'a' && types[0].isBasic() && types[0].fixedSize > 0 && types[0].typeId != 'h';
+    }
+
+    public String toString() {
+        return signature;
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.alljoyn.bus;
+
+import org.alljoyn.bus.annotation.BusAnnotation;
+import org.alljoyn.bus.annotation.BusAnnotations;
+import org.alljoyn.bus.annotation.BusProperty;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The cached properties of a proxy bus object.  Each interface is loaded with
+ * a single GetAll the first time one of its cacheable properties is read,
+ * and kept current by the PropertiesChanged signals of the remote object.
+ *
+ * Only properties that the remote object reports changes of are cacheable;
+ * see {@link #isCacheable(Class, String)}.
+ *
+ * Only the signals of the owner of the bus name of the proxy bus object are
+ * received.  When the bus name is a well-known name its owner is followed,
+ * and the cache is cleared when the owner changes.
+ */
+final class PropertyCache {
+
+    /** The DBus annotation declaring how changes of a property are reported. */
+    static final String EMITS_CHANGED_SIGNAL = "org.freedesktop.DBus.Property.EmitsChangedSignal";
+
+    private static final String PROPERTIES = "org.freedesktop.DBus.Properties";
+
+    /** The cached properties of one interface. */
+    private static final class Values {
+        final Map<String, Variant> values = new HashMap<String, Variant>();
+
+        /** Has the interface been loaded with GetAll. */
+        boolean loaded;
+
+        /**
+         * Incremented on each PropertiesChanged signal, so that replies
+         * overtaken by a signal are not cached.
+         */
+        int generation;
+    }
+
+    private final ProxyBusObject proxy;
+
+    private final BusAttachment bus;
+
+    private final String busName;
+
+    /** Follows the owner of a well-known bus name, or null for a unique name. */
+    private final BusListener ownerListener;
+
+    /**
+     * The unique name of the owner of the bus name, or null if it has none.
+     * Guarded by this.
+     */
+    private String sender;
+
+    /** Guards the match rule. */
+    private final Object matchLock = new Object();
+
+    /** The rule matching the signals of the sender, or null.  Guarded by matchLock. */
+    private String matchRule;
+
+    /** Has the listener reported an owner.  Guarded by matchLock. */
+    private boolean ownerChanged;
+
+    private final Method propertiesChanged;
+
+    /** The cached properties, by interface name.  Guarded by this. */
+    private final Map<String, Values> interfaces = new HashMap<String, Values>();
+
+    /**
+     * Whether each property read by interface and name may be cached,
+     * computed when it is first read.
+     */
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, Boolean>> cacheable =
+        new ConcurrentHashMap<Class<?>, ConcurrentMap<String, Boolean>>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    PropertyCache(ProxyBusObject proxy, BusAttachment bus) {
+        this.proxy = proxy;
+        this.bus = bus;
+        this.busName = proxy.getBusName();
+        if (busName.startsWith(":")) {
+            this.ownerListener = null;
+        } else {
+            this.ownerListener = new BusListener() {
+                    public void nameOwnerChanged(String name, String previousOwner, String newOwner) {
+                        if (busName.equals(name)) {
+                            /* Changing the match rule is a blocking call */
+                            PropertyCache.this.bus.enableConcurrentCallbacks();
+                            synchronized (matchLock) {
+                                ownerChanged = true;
+                                Status status = follow(newOwner);
+                                if (status != Status.OK) {
+                                    BusException.log(new BusException("cannot add match rule: " + status));
+                                }
+                            }
+                        }
+                    }
+                };
+        }
+        Method m = null;
+        try {
+            m = getClass().getDeclaredMethod("propertiesChanged", String.class, Map.class, String[].class);
+            m.setAccessible(true);
+        } catch (NoSuchMethodException ex) {
+            /* This will not happen */
+        }
+        this.propertiesChanged = m;
+    }
+
+    /**
+     * Starts receiving the PropertiesChanged signals of the remote object.
+     *
+     * @return OK if successful
+     */
+    Status start() {
+        Status status = bus.registerSignalHandler(PROPERTIES, "PropertiesChanged", this, propertiesChanged,
+                                                  proxy.getObjPath());
+        if (status != Status.OK) {
+            return status;
+        }
+        String owner = busName;
+        if (ownerListener != null) {
+            bus.registerBusListener(ownerListener);
+            try {
+                owner = bus.getDBusProxyObj().GetNameOwner(busName);
+            } catch (BusException ex) {
+                /* The name has no owner yet */
+                owner = null;
+            }
+        }
+        synchronized (matchLock) {
+            if (!ownerChanged) {
+                status = follow(owner);
+            }
+        }
+        if (status != Status.OK) {
+            stop();
+        }
+        return status;
+    }
+
+    /** Stops receiving the PropertiesChanged signals of the remote object. */
+    void stop() {
+        if (ownerListener != null) {
+            bus.unregisterBusListener(ownerListener);
+        }
+        synchronized (matchLock) {
+            if (matchRule != null) {
+                bus.removeMatch(matchRule);
+                matchRule = null;
+            }
+        }
+        bus.unregisterSignalHandler(this, propertiesChanged);
+        synchronized (this) {
+            sender = null;
+            interfaces.clear();
+        }
+    }
+
+    /**
+     * Receives the signals of a new owner of the bus name, dropping the
+     * values cached from the previous owner.  Must be called with matchLock
+     * held.
+     *
+     * @param owner the unique name of the owner, or null or empty if the
+     *              name has no owner
+     * @return OK if the signals of the owner are received
+     */
+    private Status follow(String owner) {
+        if (owner != null && owner.length() == 0) {
+            owner = null;
+        }
+        synchronized (this) {
+            sender = owner;
+            interfaces.clear();
+        }
+        String rule = null;
+        if (owner != null) {
+            rule = "type='signal',interface='" + PROPERTIES + "',member='PropertiesChanged',path='"
+                + proxy.getObjPath() + "',sender='" + owner + "'";
+            Status status = bus.addMatch(rule);
+            if (status != Status.OK) {
+                return status;
+            }
+        }
+        if (matchRule != null) {
+            bus.removeMatch(matchRule);
+        }
+        matchRule = rule;
+        return Status.OK;
+    }
+
+    /**
+     * Gets a cacheable property, from the cache if present.
+     *
+     * @param interfaceName the interface of the property
+     * @param propertyName the name of the property
+     * @return the value of the property
+     * @throws BusException if the property cannot be read from the remote
+     *                      object
+     */
+    Variant get(String interfaceName, String propertyName) throws BusException {
+        Values cached;
+        boolean loaded;
+        int generation;
+        synchronized (this) {
+            cached = interfaces.get(interfaceName);
+            if (cached == null) {
+                cached = new Values();
+                interfaces.put(interfaceName, cached);
+            }
+            if (cached.loaded) {
+                Variant value = cached.values.get(propertyName);
+                if (value != null) {
+                    hits.incrementAndGet();
+                    return value;
+                }
+            }
+            loaded = cached.loaded;
+            generation = cached.generation;
+        }
+        misses.incrementAndGet();
+
+        if (!loaded) {
+            Map<String, Variant> all = proxy.getAllProperties(interfaceName);
+            synchronized (this) {
+                if (cached.generation == generation && !cached.loaded) {
+                    cached.values.putAll(all);
+                    cached.loaded = true;
+                }
+            }
+            Variant value = all.get(propertyName);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        Variant value = proxy.getProperty(interfaceName, propertyName);
+        synchronized (this) {
+            if (cached.generation == generation && cached.loaded) {
+                cached.values.put(propertyName, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Drops a property from the cache, so that it is next read from the
+     * remote object.
+     */
+    synchronized void invalidate(String interfaceName, String propertyName) {
+        Values cached = interfaces.get(interfaceName);
+        if (cached != null) {
+            ++cached.generation;
+            cached.values.remove(propertyName);
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    /** Handles the org.freedesktop.DBus.Properties.PropertiesChanged signal. */
+    private void propertiesChanged(String interfaceName, Map<String, Variant> changed, String[] invalidated) {
+        String from = bus.getMessageContext().sender;
+        synchronized (this) {
+            if (sender == null || !sender.equals(from)) {
+                return;
+            }
+            Values cached = interfaces.get(interfaceName);
+            if (cached == null) {
+                return;
+            }
+            ++cached.generation;
+            if (cached.loaded) {
+                cached.values.putAll(changed);
+            }
+            for (String name : invalidated) {
+                cached.values.remove(name);
+            }
+        }
+    }
+
+    /**
+     * Tells whether a property may be cached.  A property is cacheable when
+     * its {@value #EMITS_CHANGED_SIGNAL} annotation, or else that of its
+     * interface, is "true", "invalidates" or "const".  The DBus default of
+     * "true" is not assumed, since AllJoyn services only emit the signal when
+     * told to.
+     *
+     * @param busInterface the interface of the property
+     * @param propertyName the bus name of the property
+     * @return true if the property may be cached
+     */
+    static boolean isCacheable(Class<?> busInterface, String propertyName) {
+        String value = null;
+        for (Method method : busInterface.getMethods()) {
+            if (method.getAnnotation(BusProperty.class) != null
+                && InterfaceDescription.getName(method).equals(propertyName)) {
+                String v = emitsChangedSignal(method.getAnnotation(BusAnnotations.class));
+                if (v != null) {
+                    value = v;
+                }
+            }
+        }
+        if (value == null) {
+            value = emitsChangedSignal(busInterface.getAnnotation(BusAnnotations.class));
+        }
+        return "true".equals(value) || "invalidates".equals(value) || "const".equals(value);
+    }
+
+    /**
+     * Tells whether a property read by name may be cached, as
+     * {@link #isCacheable(Class, String)} does, without scanning the
+     * interface again on later reads.
+     */
+    boolean mayCache(Class<?> busInterface, String propertyName) {
+        ConcurrentMap<String, Boolean> properties = cacheable.get(busInterface);
+        if (properties == null) {
+            properties = new ConcurrentHashMap<String, Boolean>();
+            ConcurrentMap<String, Boolean> existing = cacheable.putIfAbsent(busInterface, properties);
+            if (existing != null) {
+                properties = existing;
+            }
+        }
+        Boolean c = properties.get(propertyName);
+        if (c == null) {
+            c = isCacheable(busInterface, propertyName);
+            properties.put(propertyName, c);
+        }
+        return c;
+    }
+
+    private static String emitsChangedSignal(BusAnnotations annotations) {
+        if (annotations != null) {
+            for (BusAnnotation annotation : annotations.value()) {
+                if (EMITS_CHANGED_SIGNAL.equals(annotation.name())) {
+                    return annotation.value();
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -16,18 +16,25 @@
 
 package org.alljoyn.bus;
 
+import org.alljoyn.bus.annotation.BusMethod;
 import org.alljoyn.bus.annotation.BusProperty;
 import org.alljoyn.bus.annotation.BusSignalHandler;
+import org.alljoyn.bus.annotation.Idempotent;
+import org.alljoyn.bus.annotation.ReplyCache;
 import org.alljoyn.bus.annotation.Secure;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 /**
  * A bus object that exists and is managed by some other connection to
@@ -35,6 +42,7 @@ import java.util.Map;
  */
 public class ProxyBusObject {
 
+    private static final int NO_REPLY_EXPECTED = 0x01;
     private static final int AUTO_START = 0x02;
     private static final int ENCRYPTED = 0x80;
 
@@ -53,12 +61,52 @@ public class ProxyBusObject {
     /** Remote interfaces proxy. */
     private Object proxy;
 
+    /** The generated proxy of each bus interface that has one. */
+    private Map<Class<?>, Object> generatedProxies;
+
     private int replyTimeoutMsecs;
 
     private int flags;
 
+    /** Are void methods called without waiting for a reply. */
+    private volatile boolean noReplyExpected;
+
+    /** Executor that unmarshals asynchronous method replies, or null. */
+    private volatile Executor replyExecutor;
+
+    /** Are identical concurrent reads shared. */
+    private volatile boolean callCoalescing;
+
+    private final CallCoalescer coalescer = new CallCoalescer();
+
+    /**
+     * The invocation of each proxy method, computed when the method is first
+     * invoked.  The proxy class passes the same Method to every invocation,
+     * so a lookup is a hash of its name and class followed by a reference
+     * comparison.
+     */
+    private final ConcurrentMap<Method, Invocation> invocations = new ConcurrentHashMap<Method, Invocation>();
+
+    /**
+     * The bus methods of each interface called by bus name, mapped to null
+     * when the name is overloaded.
+     */
+    private final ConcurrentMap<Class<?>, Map<String, Method>> busMethods =
+        new ConcurrentHashMap<Class<?>, Map<String, Method>>();
+
+    /** The cached method replies, or null until a reply is first cached. */
+    private MethodReplyCache replyCache;
+
+    /** The cached properties of the remote object, or null if not cached. */
+    private volatile PropertyCache propertyCache;
+
     private Method busConnectionLost;
 
+    /** The pool sharing this proxy bus object, or null if not pooled. */
+    private ProxyBusObjectPool pool;
+
+    private ProxyBusObjectPool.Entry poolEntry;
+
     /**
      * Construct a ProxyBusObject.
      *
@@ -92,6 +140,14 @@ public class ProxyBusObject {
         create(busAttachment, busName, objPath, sessionId, secure);
         replyTimeoutMsecs = 25000;
         proxy = Proxy.newProxyInstance(busInterfaces[0].getClassLoader(), busInterfaces, new Handler());
+        generatedProxies = new HashMap<Class<?>, Object>();
+        for (Class<?> intf : busInterfaces) {
+            GeneratedProxy p = Generated.proxy(intf);
+            if (p != null) {
+                p.init(this);
+                generatedProxies.put(intf, p);
+            }
+        }
         try {
             busConnectionLost = 
                 getClass().getDeclaredMethod("busConnectionLost", String.class);
@@ -124,6 +180,11 @@ public class ProxyBusObject {
             String methodName, String inputSig, Type outType, Object[] args, int replyTimeoutMsecs,
             int flags) throws BusException;
 
+    /** Start a method call on the remote object, completing reply when the reply arrives. */
+    private native void methodCallAsync(BusAttachment busAttachment, String interfaceName,
+            String methodName, String inputSig, Object[] args, int replyTimeoutMsecs, int flags,
+            MethodCallFuture<?> reply) throws BusException;
+
     /** Get a property of the remote object. */
     private native Variant getProperty(BusAttachment busAttachment, String interfaceName,
             String propertyName) throws BusException;
@@ -137,129 +198,157 @@ public class ProxyBusObject {
     /** Is the remote object for this proxy bus object secure. */
     private native boolean isProxyBusObjectSecure();
 
-    /** The invocation handler for the bus interfaces. */
-    private class Handler implements InvocationHandler {
+    /**
+     * The precomputed names and signatures of a proxy method, shared by
+     * all proxies of its interface.
+     */
+    static final class Invocation {
+        public final Method method;
 
-        private class Invocation {
-            public Method method;
+        public final boolean isMethod;
+        public final boolean isGet;
 
-            public boolean isMethod;
-            public boolean isGet;
+        /** May the value of the property be cached. */
+        public final boolean isCacheable;
 
-            public String inputSig;
-            public String outSig;
+        /** May identical concurrent calls of the method be shared. */
+        public final boolean isIdempotent;
 
-            public String interfaceName;
-            public String methodName;
+        /** How the replies of the method are cached, or null if they are not. */
+        public final ReplyCache replyCache;
 
-            public Type genericReturnType;
-            public Class<?> returnType;
+        public final String inputSig;
+        public final String outSig;
 
-            public Invocation(Method method) throws BusException {
-                this.method = method;
-                if (method.getAnnotation(BusProperty.class) != null) {
-                    this.isGet = method.getName().startsWith("get");
-                    this.outSig = InterfaceDescription.getPropertySig(method);
-                } else {
-                    this.isMethod = true;
-                    this.outSig = InterfaceDescription.getOutSig(method);
-                    this.inputSig = InterfaceDescription.getInputSig(method);
-                }
-                this.interfaceName = InterfaceDescription.getName(method.getDeclaringClass());
-                this.methodName = InterfaceDescription.getName(method);
-                this.genericReturnType = method.getGenericReturnType();
-                this.returnType = method.getReturnType();
-            }
-        };
+        public final String interfaceName;
+        public final String methodName;
 
-        private Map<String, List<Invocation>> invocationCache;
+        public final Type genericReturnType;
+        public final Class<?> returnType;
 
-        public Handler() {
-            this.invocationCache = new HashMap<String, List<Invocation>>();
+        public Invocation(Method method) throws BusException {
+            this.method = method;
+            if (method.getAnnotation(BusProperty.class) != null) {
+                this.isMethod = false;
+                this.isGet = method.getName().startsWith("get");
+                this.isCacheable = PropertyCache.isCacheable(method.getDeclaringClass(),
+                                                             InterfaceDescription.getName(method));
+                this.isIdempotent = false;
+                this.replyCache = null;
+                this.inputSig = null;
+                this.outSig = InterfaceDescription.getPropertySignature(method).toString();
+            } else {
+                this.isMethod = true;
+                this.isGet = false;
+                this.isCacheable = false;
+                this.isIdempotent = method.getAnnotation(Idempotent.class) != null;
+                this.replyCache = method.getAnnotation(ReplyCache.class);
+                this.outSig = InterfaceDescription.getOutSignature(method).toString();
+                this.inputSig = InterfaceDescription.getInputSignature(method).toString();
+            }
+            this.interfaceName = InterfaceDescription.getName(method.getDeclaringClass());
+            this.methodName = InterfaceDescription.getName(method);
+            this.genericReturnType = method.getGenericReturnType();
+            this.returnType = method.getReturnType();
         }
+    }
 
-        public Object invoke(Object proxy, Method method, Object[] args) throws BusException {
-            /*
-             * Some notes on performance.
-             *
-             * Reflection is very expensive.  So first pass at optimization is to cache the
-             * reflection calls that lookup names and annotations the first time the method is
-             * invoked.
-             *
-             * Using a Method as a HashMap key is expensive.  Using method.getName() as the key
-             * is less expensive.  But method names may not be unique (they can be overloaded), so
-             * need to fall back to Method.equals if more than one method with the same name exists.
-             */
-            Invocation invocation = null;
-            String methodName = method.getName();
-            List<Invocation> invocationList = invocationCache.get(methodName);
-            if (invocationList != null) {
-                if (invocationList.size() == 1) {
-                    /* The fast path. */
-                    invocation = invocationList.get(0);
-                } else {
-                    /* The slow path.  Two Java methods exist with the same name for this proxy. */
-                    for (Invocation i : invocationList) {
-                        if (method.equals(i.method)) {
-                            invocation = i;
-                            break;
-                        }
-                    }
-                    if (invocation == null) {
-                        invocation = new Invocation(method);
-                        invocationList.add(invocation);
-                    }
+    /**
+     * Performs a method call or property access on the remote object.
+     *
+     * @param invocation the proxy method invoked
+     * @param args the arguments of the proxy method
+     * @return the unmarshalled reply, not checked against the return type of
+     *         the proxy method
+     * @throws BusException if the call fails
+     */
+    Object invoke(final Invocation invocation, final Object[] args) throws BusException {
+        if (invocation.isMethod) {
+            MethodReplyCache cache = null;
+            long generation = 0;
+            if (invocation.replyCache != null) {
+                cache = getReplyCache();
+                Object reply = cache.get(invocation.method, args);
+                if (reply != MethodReplyCache.MISS) {
+                    return reply;
                 }
-            } else {
-                /* 
-                 * The very slow path.  The first time a proxy method is invoked. 
-                 *
-                 * Walk through all the methods looking for ones that match the invoked method name.
-                 * This creates a list of all the cached invocation information that we'll use later
-                 * on the next method call.
-                 */
-                invocationList = new ArrayList<Invocation>();
-                for (Class<?> i : proxy.getClass().getInterfaces()) {
-                    for (Method m : i.getMethods()) {
-                        if (methodName.equals(m.getName())) {
-                            Invocation in = new Invocation(m);
-                            invocationList.add(in);
-                            if (method.equals(in.method)) {
-                                invocation = in;
-                            }
+                generation = cache.generation();
+            }
+            Object reply;
+            if (callCoalescing && invocation.isIdempotent) {
+                reply = coalescer.call(new Object[] { invocation.method, args }, new CallCoalescer.Call() {
+                        public Object call() throws BusException {
+                            return methodCall(invocation, args);
                         }
-                    }
-                }
-                if (invocation == null) {
-                    throw new BusException("No such method: " + method);
-                }
-                invocationCache.put(methodName, invocationList);
+                    });
+            } else {
+                reply = methodCall(invocation, args);
             }
-
-            Object value = null;
-            if (invocation.isMethod) {
-                value = methodCall(bus,
-                                   invocation.interfaceName,
-                                   invocation.methodName,
-                                   invocation.inputSig,
-                                   invocation.genericReturnType,
-                                   args,
-                                   replyTimeoutMsecs,
-                                   flags);
+            if (cache != null) {
+                cache.put(invocation.method, invocation.replyCache, args, reply, generation);
+            }
+            return reply;
+        } else if (invocation.isGet) {
+            PropertyCache cache = propertyCache;
+            Variant v;
+            if (cache != null && invocation.isCacheable) {
+                v = cache.get(invocation.interfaceName, invocation.methodName);
             } else {
-                if (invocation.isGet) {
-                    Variant v = getProperty(bus, 
-                                            invocation.interfaceName,
-                                            invocation.methodName);
-                    value = v.getObject(invocation.genericReturnType);
-                } else {
-                    setProperty(bus,
-                                invocation.interfaceName,
-                                invocation.methodName,
-                                invocation.outSig,
-                                args[0]);
-                }
+                v = getProperty(invocation.interfaceName, invocation.methodName);
             }
+            return v.getObject(invocation.genericReturnType);
+        } else {
+            PropertyCache cache = propertyCache;
+            if (cache != null) {
+                cache.invalidate(invocation.interfaceName, invocation.methodName);
+            }
+            setProperty(bus,
+                        invocation.interfaceName,
+                        invocation.methodName,
+                        invocation.outSig,
+                        args[0]);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the invocation of a proxy method, computing it the first time the
+     * method is invoked.
+     */
+    private Invocation getInvocation(Method method) throws BusException {
+        Invocation invocation = invocations.get(method);
+        if (invocation == null) {
+            invocation = new Invocation(method);
+            Invocation existing = invocations.putIfAbsent(method, invocation);
+            if (existing != null) {
+                invocation = existing;
+            }
+        }
+        return invocation;
+    }
+
+    private Object methodCall(Invocation invocation, Object[] args) throws BusException {
+        return methodCall(bus,
+                          invocation.interfaceName,
+                          invocation.methodName,
+                          invocation.inputSig,
+                          invocation.genericReturnType,
+                          args,
+                          replyTimeoutMsecs,
+                          callFlags(invocation.returnType));
+    }
+
+    /** The invocation handler for the bus interfaces. */
+    private class Handler implements InvocationHandler {
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws BusException {
+            /* The only methods not declared by a bus interface are those of Object. */
+            if (method.getDeclaringClass() == Object.class) {
+                throw new BusException("No such method: " + method);
+            }
+            Invocation invocation = getInvocation(method);
+
+            Object value = ProxyBusObject.this.invoke(invocation, args);
 
             /* 
              * The JNI layer can't perform complete type checking (at least not easily),
@@ -310,16 +399,70 @@ public class ProxyBusObject {
      *
      * It is a programming error to call another method on the ProxyBusObject
      * after the release() method has been called.
+     *
+     * A proxy bus object obtained from a {@link ProxyBusObjectPool} is
+     * returned to the pool instead, and is destroyed by the pool once no
+     * other user holds it.
      */
     public void release() {
+        if (pool != null) {
+            pool.release(poolEntry);
+            return;
+        }
+        destroyPooled();
+    }
+
+    /** Marks this proxy bus object as shared by a pool. */
+    void setPoolEntry(ProxyBusObjectPool pool, ProxyBusObjectPool.Entry entry) {
+        this.pool = pool;
+        this.poolEntry = entry;
+    }
+
+    /** Releases native resources, whether or not this proxy bus object is pooled. */
+    void destroyPooled() {
+        disablePropertyCaching();
+        synchronized (this) {
+            if (replyCache != null) {
+                replyCache.stop();
+                replyCache = null;
+            }
+        }
         destroy();
     }
 
+    /** Gets the cached method replies, starting to cache them if needed. */
+    private synchronized MethodReplyCache getReplyCache() {
+        if (replyCache == null) {
+            replyCache = new MethodReplyCache(bus, busName);
+        }
+        return replyCache;
+    }
+
     /**
-     * Release native resources.
+     * Drops the cached replies of the methods of this remote bus object
+     * annotated with {@link ReplyCache}, so that they are next read from the
+     * remote object.  The cached replies are also dropped when the owner of
+     * the bus name of this proxy bus object changes.
+     */
+    public synchronized void clearReplyCache() {
+        if (replyCache != null) {
+            replyCache.clear();
+        }
+    }
+
+    /**
+     * Release native resources.  The reply cache registers a listener with
+     * the bus that does not refer back to this proxy bus object, so it is
+     * stopped here as well as in release().
      */
     protected void finalize() throws Throwable {
         try {
+            synchronized (this) {
+                if (replyCache != null) {
+                    replyCache.stop();
+                    replyCache = null;
+                }
+            }
             destroy();
         } finally {
             super.finalize();
@@ -347,14 +490,21 @@ public class ProxyBusObject {
     /**
      * Gets a proxy to an interface of this remote bus object.
      *
+     * If the AllJoyn annotation processor generated a proxy class for the
+     * interface, the proxy returned is an instance of it and implements only
+     * that interface.  Otherwise it is a {@link Proxy} implementing all the
+     * interfaces of this remote bus object.
+     *
      * @param intf one of the interfaces supplied when the proxy bus object was
      *             created
      * @return the proxy implementing the interface
      * @see BusAttachment#getProxyBusObject(String, String, int, Class[])
+     * @see GeneratedProxy
      */
     public <T> T getInterface(Class<T> intf) {
+        Object generated = generatedProxies.get(intf);
         @SuppressWarnings(value = "unchecked")
-        T p = (T) proxy;
+        T p = (T) ((generated != null) ? generated : proxy);
         return p;
     }
 
@@ -369,6 +519,19 @@ public class ProxyBusObject {
         replyTimeoutMsecs = timeoutMsecs;
     }
 
+    /**
+     * Sets the executor that unmarshals the replies of asynchronous method
+     * calls and notifies their listeners.  By default, replies are handled
+     * on the AllJoyn thread that received them.
+     *
+     * @param executor the executor, or {@code null} to handle replies on the
+     *                 AllJoyn receive thread
+     * @see #methodCallAsync(Class, String, Object[], OnMethodReplyListener, Object)
+     */
+    public void setReplyExecutor(Executor executor) {
+        replyExecutor = executor;
+    }
+
     /**
      * Tells the bus to start an application to handle a method invocation of
      * this bus object if needed.
@@ -382,6 +545,52 @@ public class ProxyBusObject {
         this.flags = autoStart ? this.flags | AUTO_START : this.flags & ~AUTO_START;
     }
 
+    /**
+     * Shares identical concurrent reads of the remote object.  While a call
+     * is outstanding, threads making an identical call wait for its reply
+     * instead of sending their own.  This applies to methods annotated with
+     * {@link Idempotent} and to property reads, including {@link
+     * #getAllProperties(Class)}.  Calls are identical when they have the same
+     * method and equal arguments, comparing arrays by content.
+     * The reply, or the error, is shared by all the waiting threads, so
+     * returned arrays and collections must not be modified.
+     * The default behavior is to send every call.
+     *
+     * @param callCoalescing if {@code true} identical concurrent reads share
+     *                       one call
+     */
+    public void setCallCoalescing(boolean callCoalescing) {
+        this.callCoalescing = callCoalescing;
+    }
+
+    /**
+     * Tells the bus that no reply is expected to the invocations of the
+     * {@code void} methods of this bus object.  Such invocations return as
+     * soon as the call is sent, without waiting for the method return, and
+     * the remote object does not send one; errors raised by the remote method
+     * are therefore not reported.  Methods with reply values are not
+     * affected.
+     * This affects all future method invocations of this bus object.  The
+     * default behavior is to wait for the reply of every method, except
+     * those annotated with {@link BusMethod#ANNOTATE_NO_REPLY}, which never
+     * wait.
+     *
+     * @param noReplyExpected if {@code true} {@code void} methods do not
+     *                        wait for a reply
+     */
+    public void setNoReplyExpected(boolean noReplyExpected) {
+        this.noReplyExpected = noReplyExpected;
+    }
+
+    /**
+     * Gets the flags of a call to a method.
+     *
+     * @param returnType the return type of the method
+     */
+    private int callFlags(Class<?> returnType) {
+        return (noReplyExpected && returnType == void.class) ? flags | NO_REPLY_EXPECTED : flags;
+    }
+
     /**
      * Indicates if the remote object for this proxy bus object is secure.
      *
@@ -391,6 +600,123 @@ public class ProxyBusObject {
         return isProxyBusObjectSecure();
     }
 
+    /**
+     * Calls a method of the remote object without waiting for its reply.
+     *
+     * @param iface the interface that the method exists on
+     * @param methodName the bus name of the method
+     * @param args the arguments of the method
+     * @return the pending reply
+     * @throws BusException if the named method doesn't exist or is
+     *         overloaded, or the call cannot be sent
+     * @see #methodCallAsync(Class, String, Object[], OnMethodReplyListener, Object)
+     */
+    public <T> Future<T> methodCallAsync(Class<?> iface, String methodName, Object... args) throws BusException {
+        return methodCallAsync(iface, methodName, args, null, null);
+    }
+
+    /**
+     * Calls a method of the remote object without waiting for its reply.  The
+     * calling thread is not blocked: the reply is unmarshalled on the reply
+     * executor, if one is set, and then the listener is notified.  The reply
+     * timeout of this proxy bus object applies.
+     *
+     * Methods annotated as no-reply complete as soon as the call is sent.
+     *
+     * @param iface the interface that the method exists on
+     * @param methodName the bus name of the method
+     * @param args the arguments of the method
+     * @param listener the listener to notify when the call completes, or
+     *                 {@code null}
+     * @param context a user-defined context object passed to the listener
+     * @return the pending reply
+     * @throws BusException if the named method doesn't exist or is
+     *         overloaded, or the call cannot be sent
+     * @see #setReplyExecutor(Executor)
+     */
+    public <T> Future<T> methodCallAsync(Class<?> iface, String methodName, Object[] args,
+                                         OnMethodReplyListener<T> listener, Object context) throws BusException {
+        Invocation invocation = getInvocation(iface, methodName);
+        MethodCallFuture<T> reply = new MethodCallFuture<T>(invocation.genericReturnType, replyExecutor,
+                                                            listener, context);
+        send(invocation, args, reply);
+        return reply;
+    }
+
+    /**
+     * Creates a batch of method calls to the remote object.  The calls added
+     * to the batch are sent back-to-back when it is executed, so that the
+     * batch costs one round trip instead of one per call.
+     *
+     * @return an empty batch
+     */
+    public MethodCallBatch batch() {
+        return new MethodCallBatch(this);
+    }
+
+    /**
+     * Gets the invocation of a bus method of an interface by its bus name.
+     *
+     * @throws BusException if the interface has no such method, or more than
+     *         one method of that name
+     */
+    Invocation getInvocation(Class<?> iface, String methodName) throws BusException {
+        Map<String, Method> methods = busMethods.get(iface);
+        if (methods == null) {
+            methods = new HashMap<String, Method>();
+            for (Method m : iface.getMethods()) {
+                if (m.getAnnotation(BusMethod.class) == null) {
+                    continue;
+                }
+                String name = InterfaceDescription.getName(m);
+                if (!methods.containsKey(name)) {
+                    methods.put(name, m);
+                } else {
+                    Method other = methods.get(name);
+                    if (other != null && !Arrays.equals(other.getParameterTypes(), m.getParameterTypes())) {
+                        methods.put(name, null);
+                    }
+                }
+            }
+            Map<String, Method> existing = busMethods.putIfAbsent(iface, methods);
+            if (existing != null) {
+                methods = existing;
+            }
+        }
+        if (!methods.containsKey(methodName)) {
+            throw new BusException("No such method: " + methodName);
+        }
+        Method method = methods.get(methodName);
+        if (method == null) {
+            throw new BusException("Ambiguous method: " + methodName + " is overloaded in " + iface.getName());
+        }
+        return getInvocation(method);
+    }
+
+    /**
+     * Sends a method call without waiting for its reply.
+     *
+     * @param invocation the bus method
+     * @param args the arguments of the method
+     * @param reply the pending reply to complete
+     * @throws BusException if the call cannot be sent
+     */
+    void send(Invocation invocation, Object[] args, MethodCallFuture<?> reply) throws BusException {
+        methodCallAsync(bus,
+                        invocation.interfaceName,
+                        invocation.methodName,
+                        invocation.inputSig,
+                        args,
+                        replyTimeoutMsecs,
+                        callFlags(invocation.returnType),
+                        reply);
+    }
+
+    /** Gets the executor that unmarshals asynchronous method replies. */
+    Executor getReplyExecutor() {
+        return replyExecutor;
+    }
+
     /**
      * Get a property from an interface on the remote object.
      *
@@ -400,7 +726,25 @@ public class ProxyBusObject {
      * @throws BusException if the named property doesn't exist
      */
     public <T> Variant getProperty(Class<T> iface, String propertyName) throws BusException {
-        return getProperty(bus, InterfaceDescription.getName(iface), propertyName);
+        String interfaceName = InterfaceDescription.getName(iface);
+        PropertyCache cache = propertyCache;
+        if (cache != null && cache.mayCache(iface, propertyName)) {
+            return cache.get(interfaceName, propertyName);
+        }
+        return getProperty(interfaceName, propertyName);
+    }
+
+    /** Gets a property from the remote object, bypassing the cache. */
+    Variant getProperty(final String interfaceName, final String propertyName) throws BusException {
+        if (callCoalescing) {
+            return (Variant) coalescer.call(new Object[] { "Get", interfaceName, propertyName },
+                                            new CallCoalescer.Call() {
+                    public Object call() throws BusException {
+                        return getProperty(bus, interfaceName, propertyName);
+                    }
+                });
+        }
+        return getProperty(bus, interfaceName, propertyName);
     }
 
     /**
@@ -412,7 +756,12 @@ public class ProxyBusObject {
      * @throws BusException if the named property doesn't exist or cannot be set
      */
     public <T> void setProperty(Class<T> iface, String propertyName, Variant value) throws BusException {
-        setProperty(bus, InterfaceDescription.getName(iface), propertyName, value.getSignature(), value.getValue());;
+        String interfaceName = InterfaceDescription.getName(iface);
+        PropertyCache cache = propertyCache;
+        if (cache != null) {
+            cache.invalidate(interfaceName, propertyName);
+        }
+        setProperty(bus, interfaceName, propertyName, value.getSignature(), value.getValue());
     }
 
     /**
@@ -423,15 +772,111 @@ public class ProxyBusObject {
      * @throws BusException if request cannot be honored
      */
     public <T> Map<String, Variant> getAllProperties(Class<T> iface) throws BusException {
+        return getAllProperties(InterfaceDescription.getName(iface));
+    }
+
+    /** Gets all properties of an interface from the remote object, bypassing the cache. */
+    Map<String, Variant> getAllProperties(final String interfaceName) throws BusException {
+        if (callCoalescing) {
+            @SuppressWarnings(value = "unchecked")
+            Map<String, Variant> map = (Map<String, Variant>) coalescer.call(new Object[] { "GetAll", interfaceName },
+                                                                             new CallCoalescer.Call() {
+                    public Object call() throws BusException {
+                        return fetchAllProperties(interfaceName);
+                    }
+                });
+            return map;
+        }
+        return fetchAllProperties(interfaceName);
+    }
+
+    private Map<String, Variant> fetchAllProperties(String interfaceName) throws BusException {
         Map<String, Variant> map = null;
         try {
             Type returnType;
             returnType = org.alljoyn.bus.ifaces.Properties.class.getMethod("GetAll", String.class).getGenericReturnType();
-            map = getAllProperties(bus, returnType, InterfaceDescription.getName(iface));
+            map = getAllProperties(bus, returnType, interfaceName);
         } catch (NoSuchMethodException e) {
             /* This will not happen */
         }
         return map;
     }
-}
 
+    /**
+     * Get all properties from an interface on the remote object as a
+     * {@link LazyMap}, which unmarshals each property only when it is first
+     * accessed.  This is cheaper than {@link #getAllProperties(Class)} when
+     * only a few of many properties are read.
+     *
+     * @param iface the interface
+     * @return a LazyMap of name/value associations, which should be released
+     *         once no longer needed
+     * @throws BusException if request cannot be honored
+     */
+    public <T> LazyMap<String, Variant> getAllPropertiesLazily(Class<T> iface) throws BusException {
+        Type returnType = new VariantTypeReference<LazyMap<String, Variant>>() {}.getClass().getGenericSuperclass();
+        returnType = ((ParameterizedType) returnType).getActualTypeArguments()[0];
+        return (LazyMap<String, Variant>) getAllProperties(bus, returnType, InterfaceDescription.getName(iface));
+    }
+
+    /**
+     * Starts caching the properties of the remote object.  The properties of
+     * an interface are read with a single GetAll the first time one of them
+     * is read, and then served from the cache, which is kept current by the
+     * org.freedesktop.DBus.Properties.PropertiesChanged signals of the remote
+     * object.
+     *
+     * Only properties annotated, directly or through their interface, with
+     * org.freedesktop.DBus.Property.EmitsChangedSignal "true", "invalidates"
+     * or "const" are cached.  Other properties are always read from the
+     * remote object.  Setting a property through this proxy drops it from the
+     * cache.  Values served from the cache are shared, so arrays and
+     * collections returned for cached properties must not be modified.
+     *
+     * @return OK if caching is enabled
+     */
+    public synchronized Status enablePropertyCaching() {
+        if (propertyCache != null) {
+            return Status.OK;
+        }
+        PropertyCache cache = new PropertyCache(this, bus);
+        Status status = cache.start();
+        if (status == Status.OK) {
+            propertyCache = cache;
+        }
+        return status;
+    }
+
+    /**
+     * Stops caching the properties of the remote object and drops the cached
+     * values.
+     */
+    public synchronized void disablePropertyCaching() {
+        if (propertyCache != null) {
+            propertyCache.stop();
+            propertyCache = null;
+        }
+    }
+
+    /**
+     * Gets the number of cacheable property reads served from the cache
+     * since caching was enabled.
+     *
+     * @return the number of cache hits, or 0 if caching is not enabled
+     */
+    public long getPropertyCacheHits() {
+        PropertyCache cache = propertyCache;
+        return (cache == null) ? 0 : cache.getHits();
+    }
+
+    /**
+     * Gets the number of cacheable property reads that went to the remote
+     * object since caching was enabled.
+     *
+     * @return the number of cache misses, or 0 if caching is not enabled
+     */
+    public long getPropertyCacheMisses() {
+        PropertyCache cache = propertyCache;
+        return (cache == null) ? 0 : cache.getMisses();
+    }
+}
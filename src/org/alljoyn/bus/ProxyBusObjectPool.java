@@ -0,0 +1,286 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.alljoyn.bus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pool of reference-counted proxy bus objects shared between the users of
+ * a bus attachment.  Requests for identical proxy bus objects (same bus name,
+ * object path, session, interfaces and security mode) are served by the same
+ * instance instead of each allocating its own native proxy.
+ *
+ * Each {@link #get(String, String, int, Class[], boolean)} must be balanced by
+ * a {@link ProxyBusObject#release()} of the proxy bus object it returns, which
+ * returns it to the pool.  Proxy bus objects that nobody holds are destroyed
+ * once they have been idle for the idle timeout.  Since the proxy bus objects
+ * are shared, their reply timeout and other settings apply to all their users.
+ *
+ * The proxy bus objects of a session are dropped from the pool when the
+ * session is lost, provided that the {@link SessionListener} of the session
+ * is wrapped with {@link #sessionListener(SessionListener)}, or when {@link
+ * #invalidate(int)} is called.
+ */
+public final class ProxyBusObjectPool {
+
+    /** The identity of a pooled proxy bus object. */
+    private static final class Key {
+        final String busName;
+        final String objPath;
+        final int sessionId;
+        final List<Class<?>> busInterfaces;
+        final boolean secure;
+
+        Key(String busName, String objPath, int sessionId, Class<?>[] busInterfaces, boolean secure) {
+            this.busName = busName;
+            this.objPath = objPath;
+            this.sessionId = sessionId;
+            this.busInterfaces = Arrays.asList(busInterfaces.clone());
+            this.secure = secure;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return busName.equals(that.busName) && objPath.equals(that.objPath) && sessionId == that.sessionId
+                && busInterfaces.equals(that.busInterfaces) && secure == that.secure;
+        }
+
+        public int hashCode() {
+            int h = busName.hashCode();
+            h = 31 * h + objPath.hashCode();
+            h = 31 * h + sessionId;
+            h = 31 * h + busInterfaces.hashCode();
+            return 31 * h + (secure ? 1 : 0);
+        }
+    }
+
+    /** A pooled proxy bus object.  Guarded by the pool. */
+    static final class Entry {
+        final Key key;
+        final ProxyBusObject proxy;
+
+        /** The number of users holding the proxy bus object. */
+        int refs;
+
+        /** When the last user released the proxy bus object, in ns. */
+        long idleSince;
+
+        /** Has the entry been removed from the pool. */
+        boolean invalid;
+
+        Entry(Key key, ProxyBusObject proxy) {
+            this.key = key;
+            this.proxy = proxy;
+        }
+    }
+
+    private final BusAttachment bus;
+
+    /** Guarded by this. */
+    private final Map<Key, Entry> entries = new HashMap<Key, Entry>();
+
+    private long idleTimeoutNanos = 60000L * 1000000L;
+
+    ProxyBusObjectPool(BusAttachment bus) {
+        this.bus = bus;
+    }
+
+    /**
+     * Sets how long a proxy bus object that nobody holds is kept in the pool
+     * before it is destroyed.  The default idle timeout is 60 seconds.
+     *
+     * @param timeoutMsecs the idle timeout
+     */
+    public synchronized void setIdleTimeout(int timeoutMsecs) {
+        idleTimeoutNanos = timeoutMsecs * 1000000L;
+    }
+
+    /**
+     * Gets a shared proxy bus object for a remote bus object, creating it if
+     * the pool does not hold one.
+     *
+     * @param busName        the remote endpoint name (well-known or unique)
+     * @param objPath        the absolute (non-relative) object path for the object
+     * @param sessionId      the session corresponding to the connection to the the object
+     * @param busInterfaces  an array of BusInterfaces that this proxy should respond to
+     * @param secure         the security mode for the remote object
+     * @return the shared proxy bus object, which must be released once no
+     *         longer needed
+     * @see BusAttachment#getProxyBusObject(String, String, int, Class[], boolean)
+     */
+    public ProxyBusObject get(String busName, String objPath, int sessionId, Class<?>[] busInterfaces,
+                              boolean secure) {
+        Key key = new Key(busName, objPath, sessionId, busInterfaces, secure);
+        List<ProxyBusObject> expired;
+        ProxyBusObject proxy;
+        synchronized (this) {
+            expired = evict(System.nanoTime());
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(key, new ProxyBusObject(bus, busName, objPath, sessionId, busInterfaces, secure));
+                entry.proxy.setPoolEntry(this, entry);
+                entries.put(key, entry);
+            }
+            ++entry.refs;
+            proxy = entry.proxy;
+        }
+        destroy(expired);
+        return proxy;
+    }
+
+    /**
+     * Gets the number of proxy bus objects in the pool, whether held or idle.
+     *
+     * @return the number of pooled proxy bus objects
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drops the proxy bus objects of a session from the pool.  Idle ones are
+     * destroyed at once, and held ones when their last user releases them.
+     *
+     * @param sessionId the session that was lost or left
+     */
+    public void invalidate(int sessionId) {
+        List<ProxyBusObject> dropped = new ArrayList<ProxyBusObject>();
+        synchronized (this) {
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+                Entry entry = it.next();
+                if (entry.key.sessionId == sessionId) {
+                    it.remove();
+                    entry.invalid = true;
+                    if (entry.refs == 0) {
+                        dropped.add(entry.proxy);
+                    }
+                }
+            }
+        }
+        destroy(dropped);
+    }
+
+    /**
+     * Drops all the proxy bus objects from the pool.  Idle ones are destroyed
+     * at once, and held ones when their last user releases them.
+     */
+    public void clear() {
+        List<ProxyBusObject> dropped = new ArrayList<ProxyBusObject>();
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                entry.invalid = true;
+                if (entry.refs == 0) {
+                    dropped.add(entry.proxy);
+                }
+            }
+            entries.clear();
+        }
+        destroy(dropped);
+    }
+
+    /**
+     * Wraps the listener of a session so that the proxy bus objects of the
+     * session are dropped from the pool when the session is lost.  Pass the
+     * returned listener to {@link BusAttachment#joinSession} or {@link
+     * BusAttachment#setSessionListener(int, SessionListener)}.
+     *
+     * @param listener the listener to notify, or {@code null}
+     * @return the listener to register for the session
+     */
+    public SessionListener sessionListener(final SessionListener listener) {
+        return new SessionListener() {
+            @SuppressWarnings("deprecation")
+            public void sessionLost(int sessionId) {
+                invalidate(sessionId);
+                if (listener != null) {
+                    listener.sessionLost(sessionId);
+                }
+            }
+
+            public void sessionLost(int sessionId, int reason) {
+                invalidate(sessionId);
+                if (listener != null) {
+                    listener.sessionLost(sessionId, reason);
+                }
+            }
+
+            public void sessionMemberAdded(int sessionId, String uniqueName) {
+                if (listener != null) {
+                    listener.sessionMemberAdded(sessionId, uniqueName);
+                }
+            }
+
+            public void sessionMemberRemoved(int sessionId, String uniqueName) {
+                if (listener != null) {
+                    listener.sessionMemberRemoved(sessionId, uniqueName);
+                }
+            }
+        };
+    }
+
+    /**
+     * Called by {@link ProxyBusObject#release()} when a user releases a
+     * pooled proxy bus object.
+     */
+    void release(Entry entry) {
+        boolean destroy = false;
+        synchronized (this) {
+            if (entry.refs == 0) {
+                return;
+            }
+            if (--entry.refs == 0) {
+                entry.idleSince = System.nanoTime();
+                destroy = entry.invalid;
+            }
+        }
+        if (destroy) {
+            entry.proxy.destroyPooled();
+        }
+    }
+
+    /** Removes the entries idle for longer than the idle timeout. */
+    private List<ProxyBusObject> evict(long now) {
+        List<ProxyBusObject> expired = null;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+            Entry entry = it.next();
+            if (entry.refs == 0 && now - entry.idleSince >= idleTimeoutNanos) {
+                it.remove();
+                entry.invalid = true;
+                if (expired == null) {
+                    expired = new ArrayList<ProxyBusObject>();
+                }
+                expired.add(entry.proxy);
+            }
+        }
+        return expired;
+    }
+
+    private static void destroy(List<ProxyBusObject> proxies) {
+        if (proxies != null) {
+            for (ProxyBusObject proxy : proxies) {
+                proxy.destroyPooled();
+            }
+        }
+    }
+}
@@ -19,6 +19,17 @@ package org.alljoyn.bus;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.alljoyn.bus.BusAttachment;
 
@@ -40,6 +51,37 @@ public class SignalEmitter {
     private Object proxy;
     private MessageContext msgContext;
 
+    /** The destinations of a fan-out emitter, or null. */
+    private String[] destinations;
+
+    /** The sessions of a fan-out emitter, or null. */
+    private int[] sessionIds;
+
+    /** The status of the last signal sent to each target of a fan-out emitter. */
+    private volatile Status[] targetStatus;
+
+    /** The queue of signals sent asynchronously, or null to send them at once. */
+    private volatile EmitQueue emitQueue;
+
+    /** The signals sent by each proxy method, computed at construction. */
+    private Map<Method, Emission[]> emissions;
+
+    /** What an asynchronous emitter does with a signal emitted when its queue is full. */
+    public enum Overflow {
+
+        /** Wait until the queue has room. */
+        Block,
+
+        /** Drop the oldest queued signal to make room. */
+        DropOldest,
+
+        /** Drop the signal being emitted. */
+        DropNewest,
+
+        /** Throw a BusException from the emit. */
+        Fail
+    }
+
     /** Controls behavior of broadcast signals ({@code null} desintation). */
     public enum GlobalBroadcast {
         
@@ -74,6 +116,7 @@ public class SignalEmitter {
             : this.flags & ~GLOBAL_BROADCAST;
         proxy = Proxy.newProxyInstance(source.getClass().getClassLoader(),
                                        source.getClass().getInterfaces(), new Emitter());
+        emissions = plan(proxy.getClass().getInterfaces());
         msgContext = new MessageContext();
     }
     
@@ -100,6 +143,45 @@ public class SignalEmitter {
         this(source, null, BusAttachment.SESSION_ID_ANY, globalBroadcast);
     }
 
+    /**
+     * Constructs a SignalEmitter that sends each signal to several targets.
+     * The arguments of a signal are marshalled once and the same message
+     * body is sent to every target.  A failure to send to one target does
+     * not prevent sending to the others; see {@link #getTargetStatus()}.
+     * Sending a signal fails with a BusException only if it could not be
+     * sent to any target.
+     *
+     * @param source the source object of any signals sent from this emitter
+     * @param destinations well-known or unique name of the destination of
+     *                     each target, or {@code null} elements to broadcast
+     *                     to the session of the target
+     * @param sessionIds the session of each target
+     * @param globalBroadcast whether to forward broadcast signals
+     *                        across bus-to-bus connections
+     * @throws IllegalArgumentException if there are not as many destinations
+     *                                  as sessions
+     */
+    public SignalEmitter(BusObject source, String[] destinations, int[] sessionIds, GlobalBroadcast globalBroadcast) {
+        this(source, null, BusAttachment.SESSION_ID_ANY, globalBroadcast);
+        if (destinations.length != sessionIds.length) {
+            throw new IllegalArgumentException("destinations and sessionIds differ in length");
+        }
+        this.destinations = destinations.clone();
+        this.sessionIds = sessionIds.clone();
+    }
+
+    /**
+     * Constructs a SignalEmitter that broadcasts each signal to several
+     * sessions.
+     *
+     * @param source the source object of any signals sent from this emitter
+     * @param sessionIds the sessions to broadcast to
+     * @see #SignalEmitter(BusObject, String[], int[], GlobalBroadcast)
+     */
+    public SignalEmitter(BusObject source, int[] sessionIds) {
+        this(source, new String[sessionIds.length], sessionIds, GlobalBroadcast.Off);
+    }
+
     /**
      * Constructs a SignalEmitter used for local broadcasting.
      *
@@ -114,29 +196,577 @@ public class SignalEmitter {
                                String signalName, String inputSig, Object[] args, int timeToLive,
                                int flags, MessageContext ctx) throws BusException;
 
+    /** Sends the signal to several targets, returning the status of each. */
+    private native Status[] signalFanOut(BusObject busObj, String[] destinations, int[] sessionIds,
+                                         String ifaceName, String signalName, String inputSig, Object[] args,
+                                         int timeToLive, int flags) throws BusException;
+
+    /** Queues a signal if this emitter is asynchronous, or else sends it. */
+    private void dispatch(Emission e, Object[] args) throws BusException {
+        EmitQueue queue = emitQueue;
+        while (queue != null && !queue.add(e, args)) {
+            queue = replacementQueue();
+        }
+        if (queue == null) {
+            send(e, args);
+        }
+    }
+
+    /**
+     * Gets the queue that replaces one being stopped, waiting for {@link
+     * #setAsynchronous(int, Overflow)} to send the signals of the old queue
+     * first.
+     */
+    private synchronized EmitQueue replacementQueue() {
+        return emitQueue;
+    }
+
+    /** A queued signal. */
+    private static final class Queued {
+        final Emission emission;
+        final Object[] args;
+
+        Queued(Emission emission, Object[] args) {
+            this.emission = emission;
+            this.args = args;
+        }
+    }
+
+    /** How long the sender thread of an empty queue waits before exiting. */
+    private static final int SENDER_IDLE_MSECS = 1000;
+
+    /**
+     * A bounded queue of signals and the thread that sends them.  The thread
+     * exits once the queue has been empty for a while and is started again
+     * by the next signal queued, so an emitter that is no longer used does
+     * not keep a thread.
+     */
+    private final class EmitQueue implements Runnable {
+        private final int capacity;
+        private final Overflow overflow;
+
+        /** Guarded by this. */
+        private final LinkedList<Queued> queue = new LinkedList<Queued>();
+        private Thread thread;
+        private boolean stopping;
+        private long dropped;
+
+        EmitQueue(int capacity, Overflow overflow) {
+            this.capacity = capacity;
+            this.overflow = overflow;
+        }
+
+        /**
+         * Queues a signal.
+         *
+         * @return {@code false} if the queue is being stopped, in which case
+         *         the signal is not queued
+         */
+        synchronized boolean add(Emission e, Object[] args) throws BusException {
+            while (!stopping && queue.size() >= capacity) {
+                switch (overflow) {
+                case Block:
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new BusException("interrupted waiting for room in the emit queue");
+                    }
+                    break;
+                case DropOldest:
+                    queue.removeFirst();
+                    ++dropped;
+                    break;
+                case DropNewest:
+                    ++dropped;
+                    return true;
+                default:
+                    throw new BusException("emit queue full");
+                }
+            }
+            if (stopping) {
+                return false;
+            }
+            queue.addLast(new Queued(e, args));
+            if (thread == null) {
+                startSender();
+            }
+            notifyAll();
+            return true;
+        }
+
+        /** Guarded by this. */
+        private void startSender() {
+            thread = new Thread(this, "SignalEmitter sender");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        public void run() {
+            try {
+                while (true) {
+                    Queued q;
+                    synchronized (this) {
+                        if (queue.isEmpty() && !stopping) {
+                            try {
+                                wait(SENDER_IDLE_MSECS);
+                            } catch (InterruptedException ex) {
+                                /* Exit if still idle */
+                            }
+                        }
+                        if (queue.isEmpty()) {
+                            return;
+                        }
+                        q = queue.removeFirst();
+                        notifyAll();
+                    }
+                    try {
+                        send(q.emission, q.args);
+                    } catch (BusException ex) {
+                        BusException.log(ex);
+                    } catch (RuntimeException ex) {
+                        BusException.log(ex);
+                    }
+                }
+            } finally {
+                /*
+                 * Also reached when sending throws an Error.  The signals still
+                 * queued then get a new sender, so that they are not left
+                 * behind and stop() does not wait forever.
+                 */
+                synchronized (this) {
+                    thread = null;
+                    if (!queue.isEmpty()) {
+                        startSender();
+                    }
+                    notifyAll();
+                }
+            }
+        }
+
+        synchronized int depth() {
+            return queue.size();
+        }
+
+        synchronized long dropped() {
+            return dropped;
+        }
+
+        /**
+         * Sends the queued signals and then stops the sender thread.  Signals
+         * queued afterwards are rejected by {@link #add}.
+         */
+        synchronized void stop() {
+            stopping = true;
+            notifyAll();
+            if (Thread.currentThread() == thread) {
+                return;
+            }
+            boolean interrupted = false;
+            while (thread != null) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Sends a signal to the target or targets of this emitter. */
+    private void send(Emission e, Object[] args) throws BusException {
+        if (sessionIds != null) {
+            Status[] status = signalFanOut(source,
+                                           destinations,
+                                           sessionIds,
+                                           e.interfaceName,
+                                           e.signalName,
+                                           e.inputSig,
+                                           args,
+                                           timeToLive,
+                                           flags);
+            targetStatus = status;
+            for (Status s : status) {
+                if (s == Status.OK) {
+                    return;
+                }
+            }
+            if (status.length > 0) {
+                throw new BusException("signal not sent to any target: " + status[0]);
+            }
+            return;
+        }
+        signal(source,
+               destination,
+               sessionId,
+               e.interfaceName,
+               e.signalName,
+               e.inputSig,
+               args,
+               timeToLive,
+               flags,
+               msgContext);
+    }
+
+    /** The names and signature of a signal sent by a proxy method. */
+    private static final class Emission {
+        final String interfaceName;
+        final String signalName;
+        final String inputSig;
+        final int numArgs;
+
+        /** Why the signal cannot be sent, or null. */
+        final BusException error;
+
+        /** Limits how often the signal is sent, or null to send every emit. */
+        volatile Coalescer coalescer;
+
+        Emission(Class<?> busInterface, Method method) {
+            String interfaceName = null;
+            String signalName = null;
+            String inputSig = null;
+            BusException error = null;
+            try {
+                interfaceName = InterfaceDescription.getName(busInterface);
+                signalName = InterfaceDescription.getName(method);
+                inputSig = InterfaceDescription.getInputSignature(method).toString();
+            } catch (BusException ex) {
+                error = ex;
+            }
+            this.interfaceName = interfaceName;
+            this.signalName = signalName;
+            this.inputSig = inputSig;
+            this.error = error;
+            this.numArgs = method.getParameterTypes().length;
+        }
+    }
+
+    /**
+     * Computes the signals sent by each method of the interfaces: one per
+     * interface with a method of the same name and parameter types.
+     */
+    private static Map<Method, Emission[]> plan(Class<?>[] interfaces) {
+        Map<List<Object>, List<Method>> methods = new HashMap<List<Object>, List<Method>>();
+        Map<List<Object>, List<Emission>> signals = new HashMap<List<Object>, List<Emission>>();
+        for (Class<?> i : interfaces) {
+            for (Method m : i.getMethods()) {
+                List<Object> key = new ArrayList<Object>();
+                key.add(m.getName());
+                key.addAll(Arrays.asList(m.getParameterTypes()));
+                if (!methods.containsKey(key)) {
+                    methods.put(key, new ArrayList<Method>());
+                    signals.put(key, new ArrayList<Emission>());
+                }
+                methods.get(key).add(m);
+                signals.get(key).add(new Emission(i, m));
+            }
+        }
+        Map<Method, Emission[]> plan = new HashMap<Method, Emission[]>();
+        for (Map.Entry<List<Object>, List<Method>> entry : methods.entrySet()) {
+            List<Emission> e = signals.get(entry.getKey());
+            Emission[] emissions = e.toArray(new Emission[e.size()]);
+            for (Method m : entry.getValue()) {
+                plan.put(m, emissions);
+            }
+        }
+        return plan;
+    }
+
     private class Emitter implements InvocationHandler {
 
         public Object invoke(Object proxy, Method method, Object[] args) throws BusException {
-            for (Class<?> i : proxy.getClass().getInterfaces()) {
-                for (Method m : i.getMethods()) {
-                    if (method.getName().equals(m.getName())) {
-                        signal(source,
-                               destination,
-                               sessionId,
-                               InterfaceDescription.getName(i),
-                               InterfaceDescription.getName(m),
-                               InterfaceDescription.getInputSig(m),
-                               args,
-                               timeToLive,
-                               flags,
-                               msgContext);
+            Emission[] signals = emissions.get(method);
+            if (signals != null) {
+                for (Emission e : signals) {
+                    if (e.error != null) {
+                        throw e.error;
+                    }
+                    Coalescer coalescer = e.coalescer;
+                    if (coalescer != null) {
+                        coalescer.emit(args);
+                        continue;
                     }
+                    dispatch(e, args);
                 }
             }
             return null;
         }
     }
 
+    /** The thread that times the signals held back by coalescing emitters. */
+    private static ScheduledExecutorService scheduler;
+
+    private static synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "SignalEmitter");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        }
+        return scheduler;
+    }
+
+    /**
+     * The threads that send the signals held back by coalescing emitters, so
+     * that a send blocked on one emitter does not hold back the others.
+     */
+    private static ExecutorService sender;
+
+    private static synchronized ExecutorService sender() {
+        if (sender == null) {
+            sender = Executors.newCachedThreadPool(new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "SignalEmitter coalescer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        }
+        return sender;
+    }
+
+    /**
+     * The coalescing state of one key of a signal.  A key is kept while a
+     * timer is scheduled for it, which is from when the signal is first sent
+     * until an interval passes without an emit.  Guarded by the Coalescer.
+     */
+    private static final class Pending {
+        /** When the signal was last sent, in ns. */
+        long lastSent;
+
+        /** The latest arguments not yet sent, or null. */
+        Object[] args;
+    }
+
+    /**
+     * Sends a signal at most once per interval for each key, holding back
+     * the arguments of emits made in between and sending only the latest
+     * once the interval has elapsed.
+     */
+    private final class Coalescer {
+        private final Emission emission;
+        private final long minIntervalNanos;
+        private final int keyArg;
+
+        /** The state of each key.  Guarded by this. */
+        private final Map<CallKey, Pending> keys = new HashMap<CallKey, Pending>();
+
+        Coalescer(Emission emission, int minIntervalMsecs, int keyArg) {
+            this.emission = emission;
+            this.minIntervalNanos = minIntervalMsecs * 1000000L;
+            this.keyArg = keyArg;
+        }
+
+        void emit(Object[] args) throws BusException {
+            CallKey key = new CallKey((keyArg < 0) ? null : new Object[] { args[keyArg] });
+            synchronized (this) {
+                Pending pending = keys.get(key);
+                if (pending != null) {
+                    pending.args = args;
+                    return;
+                }
+                pending = new Pending();
+                pending.lastSent = System.nanoTime();
+                keys.put(key, pending);
+                schedule(key, pending, minIntervalNanos);
+            }
+            dispatch(emission, args);
+        }
+
+        private void schedule(final CallKey key, final Pending pending, long delayNanos) {
+            scheduler().schedule(new Runnable() {
+                    public void run() {
+                        expire(key, pending);
+                    }
+                }, delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Runs on the scheduler when the interval of a key may have elapsed.
+         * Hands the latest held-back arguments to a sender thread, or forgets
+         * the key if there are none.
+         */
+        private void expire(CallKey key, Pending pending) {
+            final Object[] args;
+            synchronized (this) {
+                long remaining = pending.lastSent + minIntervalNanos - System.nanoTime();
+                if (remaining > 0) {
+                    /* Flushed since the timer was scheduled */
+                    schedule(key, pending, remaining);
+                    return;
+                }
+                if (pending.args == null) {
+                    keys.remove(key);
+                    return;
+                }
+                args = pending.args;
+                pending.args = null;
+                pending.lastSent = System.nanoTime();
+                schedule(key, pending, minIntervalNanos);
+            }
+            sender().execute(new Runnable() {
+                    public void run() {
+                        send(args);
+                    }
+                });
+        }
+
+        /** Sends the latest arguments held back for every key. */
+        void flush() {
+            List<Object[]> held = new ArrayList<Object[]>();
+            synchronized (this) {
+                long now = System.nanoTime();
+                for (Pending pending : keys.values()) {
+                    if (pending.args != null) {
+                        held.add(pending.args);
+                        pending.args = null;
+                        pending.lastSent = now;
+                    }
+                }
+            }
+            for (Object[] args : held) {
+                send(args);
+            }
+        }
+
+        private void send(Object[] args) {
+            try {
+                dispatch(emission, args);
+            } catch (BusException ex) {
+                BusException.log(ex);
+            }
+        }
+    }
+
+    /**
+     * Limits how often a signal is sent from this emitter.  Each key of the
+     * signal is sent at most once per interval: the first emit is sent at
+     * once, and of the emits made during the rest of the interval only the
+     * latest is sent, when the interval has elapsed.  Intermediate values are
+     * dropped, so this suits signals that report the current state of
+     * something, such as sensor readings.
+     *
+     * The arguments of held-back emits are sent as they were when emitted, so
+     * arrays passed to them must not be modified afterwards.  Held-back
+     * signals are sent from a separate thread, and errors sending them are
+     * logged.
+     *
+     * @param intf the interface of the signal
+     * @param signalName the bus name of the signal
+     * @param minIntervalMsecs the minimum interval between two signals with
+     *                         the same key, or 0 to send every emit
+     * @param keyArg the index of the argument whose value identifies the key,
+     *               such as a sensor ID, or -1 to coalesce all emits of the
+     *               signal together
+     * @throws BusException if this emitter has no such signal
+     * @throws IllegalArgumentException if the signal has no argument keyArg
+     * @see #flush()
+     */
+    public void setCoalescing(Class<?> intf, String signalName, int minIntervalMsecs, int keyArg)
+        throws BusException {
+        String interfaceName = InterfaceDescription.getName(intf);
+        boolean found = false;
+        for (Emission[] signals : emissions.values()) {
+            for (Emission e : signals) {
+                if (interfaceName.equals(e.interfaceName) && signalName.equals(e.signalName)) {
+                    if (keyArg < -1 || keyArg >= e.numArgs) {
+                        throw new IllegalArgumentException("Signal " + signalName + " has no argument " + keyArg);
+                    }
+                    found = true;
+                    synchronized (e) {
+                        Coalescer previous = e.coalescer;
+                        e.coalescer = (minIntervalMsecs > 0) ? new Coalescer(e, minIntervalMsecs, keyArg) : null;
+                        if (previous != null) {
+                            previous.flush();
+                        }
+                    }
+                }
+            }
+        }
+        if (!found) {
+            throw new BusException("No such signal: " + signalName);
+        }
+    }
+
+    /**
+     * Sends now the latest arguments held back by coalescing for every
+     * signal of this emitter.
+     *
+     * @see #setCoalescing(Class, String, int, int)
+     */
+    public void flush() {
+        for (Emission[] signals : emissions.values()) {
+            for (Emission e : signals) {
+                Coalescer coalescer = e.coalescer;
+                if (coalescer != null) {
+                    coalescer.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the signals of this emitter from a dedicated thread instead of
+     * the thread that emits them.  An emit only queues the signal, so it
+     * never waits for marshalling or the transport, except as chosen by the
+     * overflow policy when the queue is full.  Signals are sent in the order
+     * they were emitted.
+     *
+     * The arguments of queued signals are marshalled when they are sent, so
+     * arrays and collections passed to an emit must not be modified
+     * afterwards.  Errors sending queued signals, including exceptions from
+     * marshalling, are logged and the later signals are still sent.  The
+     * MessageContext of this emitter is updated by the sender thread.
+     *
+     * The sender thread exits when the queue has been empty for a second
+     * and is started again by the next emit, so an asynchronous emitter
+     * needs no shutdown.  Changing the capacity or overflow policy first
+     * sends the signals already queued.
+     *
+     * @param capacity the number of signals the queue holds, or 0 to send
+     *                 signals from the emitting thread again once the queued
+     *                 signals have been sent
+     * @param overflow what to do with a signal emitted when the queue is full
+     * @see #getQueueDepth()
+     * @see #getDroppedSignals()
+     */
+    public synchronized void setAsynchronous(int capacity, Overflow overflow) {
+        if (emitQueue != null) {
+            emitQueue.stop();
+        }
+        emitQueue = (capacity > 0) ? new EmitQueue(capacity, overflow) : null;
+    }
+
+    /**
+     * Gets the number of signals waiting to be sent by an asynchronous
+     * emitter.
+     *
+     * @return the number of queued signals
+     * @see #setAsynchronous(int, Overflow)
+     */
+    public int getQueueDepth() {
+        EmitQueue queue = emitQueue;
+        return (queue == null) ? 0 : queue.depth();
+    }
+
+    /**
+     * Gets the number of signals dropped by the overflow policy of an
+     * asynchronous emitter since it was made asynchronous.
+     *
+     * @return the number of dropped signals
+     * @see #setAsynchronous(int, Overflow)
+     */
+    public long getDroppedSignals() {
+        EmitQueue queue = emitQueue;
+        return (queue == null) ? 0 : queue.dropped();
+    }
+
     /**
      * Sets the time-to-live of future signals sent from this emitter.
      *
@@ -174,7 +804,21 @@ public class SignalEmitter {
     }
     
     /**
-     * Get the MessageContext of the last signal sent from this emitter.
+     * Gets the status of sending the last signal to each target of an
+     * emitter constructed with several targets.
+     *
+     * @return the status of each target, in the order the targets were
+     *         given, or {@code null} if no signal has been sent or this
+     *         emitter has a single target
+     */
+    public Status[] getTargetStatus() {
+        Status[] status = targetStatus;
+        return (status == null) ? null : status.clone();
+    }
+
+    /**
+     * Get the MessageContext of the last signal sent from this emitter.  The
+     * MessageContext is not updated by emitters with several targets.
      *
      * @return  MessageContext of the last signal sent from this emitter.
      */
@@ -22,6 +22,8 @@ import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -100,7 +102,17 @@ final class Signature {
         return sb.toString();
     }
 
-    public static native String[] split(String signature);
+    /**
+     * Splits a signature into its complete types.  The returned array is
+     * shared and must not be modified.
+     *
+     * @param signature the signature, may be {@code null}
+     * @return the complete types, or {@code null} if the signature is
+     *         {@code null} or invalid
+     */
+    public static String[] split(String signature) {
+        return (signature == null) ? null : Codec.split(signature);
+    }
 
     /**
      * Compute the DBus type signature of the type.
@@ -136,6 +148,9 @@ final class Signature {
                 sig += typeSig(actuals[i], (signatures == null) ? null : signatures[i]);
             }
             return "a{" + sig + "}";
+        } else if (Collection.class.isAssignableFrom(cls)) {
+            return "a" + typeSig(type.getActualTypeArguments()[0],
+                                 (signature == null) ? null : signature.substring(1));
         } else {
             throw new AnnotationBusException("unsupported parameterized type " + type);
         }
@@ -160,6 +175,8 @@ final class Signature {
             return (signature == null) ? "s" : signature;
         } else if (Variant.class.isAssignableFrom(cls)) {
             return (signature == null) ? "v" : signature;
+        } else if (ByteBuffer.class.isAssignableFrom(cls)) {
+            return (signature == null) ? "ay" : signature;
         } else if (cls.isArray()) {
             String sig = (signature == null) ? "a" : signature.substring(0, 1);
             return sig + typeSig(cls.getComponentType(),
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.alljoyn.bus;
+
+/**
+ * Creates and accesses the fields of a Java class marshalled as an AllJoyn
+ * struct without reflection.  Implementations are generated by the AllJoyn
+ * annotation processor ({@code alljoyn-processor.jar}) for each class with
+ * {@link org.alljoyn.bus.annotation.Position} annotated fields, as a class
+ * named after the binary name of the struct class with the suffix {@code
+ * _BusStruct}, and are preferred to reflection at runtime.
+ *
+ * @param <T> the struct class
+ */
+public interface StructAccessor<T> {
+
+    /**
+     * Creates an instance of the struct class.
+     *
+     * @return the new instance
+     */
+    T newInstance();
+
+    /**
+     * Gets the value of a field.
+     *
+     * @param struct the struct
+     * @param position the {@link org.alljoyn.bus.annotation.Position} of the field
+     * @return the value of the field, boxed if primitive
+     */
+    Object get(T struct, int position);
+
+    /**
+     * Sets the value of a field.
+     *
+     * @param struct the struct
+     * @param position the {@link org.alljoyn.bus.annotation.Position} of the field
+     * @param value the value of the field, boxed if primitive
+     */
+    void set(T struct, int position, Object value);
+}
@@ -34,6 +34,9 @@ public class Variant {
     /** Wrapped native object */
     private long handle;
 
+    /** Whether the wrapped native object was marshalled by {@link #freeze()}. */
+    private boolean frozen;
+
     /**
      * Creates a variant that can represent any AllJoyn data type.
      * This constructor is typically used by message receivers (method and
@@ -72,6 +75,42 @@ public class Variant {
     /** Releases native resources */
     private synchronized native void destroy();
 
+    /** Sets the wrapped native object to the marshalled value. */
+    private native void freeze(String signature, Object value) throws BusException;
+
+    /**
+     * Marshals the value of this Variant now, so that the messages it is
+     * later sent in copy the marshalled value natively instead of marshalling
+     * it again from Java.  This suits large values sent repeatedly, such as a
+     * descriptor included in every emit of a signal.
+     *
+     * The marshalled value is immutable: changes to the wrapped object after
+     * freezing are not sent.
+     *
+     * @return this Variant
+     * @throws BusException if the value cannot be marshalled
+     */
+    public synchronized Variant freeze() throws BusException {
+        if (!frozen) {
+            /* A received Variant already holds its own marshalled value */
+            if (handle == 0) {
+                freeze(getSignature(), value);
+            }
+            frozen = true;
+        }
+        return this;
+    }
+
+    /**
+     * Indicates whether the value of this Variant has been marshalled by
+     * {@link #freeze()}.
+     *
+     * @return {@code true} if this Variant is frozen
+     */
+    public synchronized boolean isFrozen() {
+        return frozen;
+    }
+
     /** Releases resources. */
     protected void finalize() throws Throwable {
         try {
@@ -82,7 +121,7 @@ public class Variant {
     }
 
     /** Gets the wrapped native object. */
-    long getMsgArg() { return handle; }
+    synchronized long getMsgArg() { return handle; }
 
     /** Sets the wrapped native object to the MsgArg. */
     native void setMsgArg(long msgArg);
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.alljoyn.bus.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Indicates that the replies of an AllJoyn method may be cached by the
+ * callers for a while.  Proxy bus objects keep the reply of each distinct
+ * set of arguments and return it again, without calling the remote object,
+ * until it expires.
+ *
+ * Cached replies are shared by all the callers, so returned arrays and
+ * collections must not be modified, nor may array arguments once the call
+ * is made.
+ *
+ * The cached replies of a proxy bus object are dropped when the owner of its
+ * bus name changes, or when {@link
+ * org.alljoyn.bus.ProxyBusObject#clearReplyCache()} is called.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReplyCache {
+
+    /** How long a reply is kept, in milliseconds. */
+    long timeToLive();
+
+    /**
+     * The number of distinct sets of arguments whose replies are kept.  The
+     * least recently used reply is dropped first.
+     */
+    int maxSize() default 16;
+}
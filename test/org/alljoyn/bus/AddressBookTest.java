@@ -139,6 +139,24 @@ public class AddressBookTest extends TestCase {
         assertEquals("last", contacts[0].lastName);
         assertEquals("1234567", contacts[0].phoneNumberMap.get("home"));
         assertEquals("7654321", contacts[0].phoneNumberMap.get("work"));
+
+        /* Add contacts without waiting for the replies of setContact */
+        remoteObj.setNoReplyExpected(true);
+        for (int i = 0; i < 10; ++i) {
+            Contact c = new Contact();
+            c.firstName = "first";
+            c.lastName = "last" + i;
+            proxy.setContact(c);
+        }
+
+        /* Methods with reply values still wait for them */
+        contacts = proxy.getContacts(new String[] { "last9" });
+        for (int i = 0; i < 50 && contacts.length == 0; ++i) {
+            Thread.sleep(100);
+            contacts = proxy.getContacts(new String[] { "last9" });
+        }
+        assertEquals(1, contacts.length);
+        assertEquals("last9", contacts[0].lastName);
     }
 }
 
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.alljoyn.bus;
+
+import static junit.framework.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+public class CallCoalescerTest extends TestCase {
+    public CallCoalescerTest(String name) {
+        super(name);
+    }
+
+    /** Makes a call on a new thread, recording its reply or what it threw. */
+    private static class Caller extends Thread {
+        private final CallCoalescer coalescer;
+        private final CallCoalescer.Call call;
+        Object reply;
+        Throwable thrown;
+
+        Caller(CallCoalescer coalescer, CallCoalescer.Call call) {
+            this.coalescer = coalescer;
+            this.call = call;
+        }
+
+        public void run() {
+            try {
+                reply = coalescer.call(new Object[] { "key" }, call);
+            } catch (Throwable th) {
+                thrown = th;
+            }
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void testErrorIsShared() throws Exception {
+        CallCoalescer coalescer = new CallCoalescer();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        Caller leader = new Caller(coalescer, new CallCoalescer.Call() {
+                public Object call() {
+                    started.countDown();
+                    await(release);
+                    throw new AssertionError("leader failed");
+                }
+            });
+        leader.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Caller waiter = new Caller(coalescer, new CallCoalescer.Call() {
+                public Object call() {
+                    return "waiter made its own call";
+                }
+            });
+        waiter.start();
+        for (int i = 0; i < 500 && waiter.getState() != Thread.State.WAITING; ++i) {
+            Thread.sleep(10);
+        }
+        assertEquals(Thread.State.WAITING, waiter.getState());
+        release.countDown();
+        leader.join();
+        waiter.join();
+
+        assertTrue(leader.thrown instanceof AssertionError);
+        assertSame(leader.thrown, waiter.thrown);
+        assertNull(waiter.reply);
+    }
+}
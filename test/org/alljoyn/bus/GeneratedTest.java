@@ -0,0 +1,109 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.alljoyn.bus;
+
+import org.alljoyn.bus.annotation.BusProperty;
+
+import static junit.framework.Assert.*;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import junit.framework.TestCase;
+
+/**
+ * Checks the code generated by the annotation processor, which must be on
+ * the class path when the tests are compiled, against reflection.
+ */
+public class GeneratedTest extends TestCase {
+    public GeneratedTest(String name) {
+        super(name);
+    }
+
+    static {
+        System.loadLibrary("alljoyn_java");
+    }
+
+    public void tearDown() throws Exception {
+        Generated.enabled = true;
+    }
+
+    private void checkSignatures(Class<?> busInterface) throws Exception {
+        assertNotNull(Generated.signatures(busInterface));
+        for (Method method : busInterface.getMethods()) {
+            Generated.enabled = false;
+            String inputSig, outSig, propertySig;
+            if (method.getAnnotation(BusProperty.class) != null) {
+                inputSig = outSig = null;
+                propertySig = InterfaceDescription.getPropertySig(method);
+            } else {
+                inputSig = InterfaceDescription.getInputSig(method);
+                outSig = InterfaceDescription.getOutSig(method);
+                propertySig = null;
+            }
+            Generated.enabled = true;
+            assertEquals(method.toString(), inputSig, Generated.getInputSig(method));
+            assertEquals(method.toString(), outSig, Generated.getOutSig(method));
+            assertEquals(method.toString(), propertySig, Generated.getPropertySig(method));
+        }
+    }
+
+    public void testSignatures() throws Exception {
+        checkSignatures(InferredTypesInterface.class);
+        checkSignatures(AnnotatedTypesInterface.class);
+        checkSignatures(MarshalStressInterface.class);
+        checkSignatures(PropsInterface.class);
+    }
+
+    public class Service implements SimpleInterface, BusObject {
+        public String Ping(String inStr) { return inStr; }
+    }
+
+    public void testProxy() throws Exception {
+        BusAttachment bus = new BusAttachment(getClass().getName());
+        Service service = new Service();
+        assertEquals(Status.OK, bus.registerBusObject(service, "/simple"));
+        assertEquals(Status.OK, bus.connect());
+        try {
+            ProxyBusObject proxyObj = bus.getProxyBusObject(bus.getUniqueName(), "/simple",
+                                                            BusAttachment.SESSION_ID_ANY,
+                                                            new Class[] { SimpleInterface.class });
+            SimpleInterface proxy = proxyObj.getInterface(SimpleInterface.class);
+            assertTrue(proxy instanceof GeneratedProxy);
+            assertEquals("ping", proxy.Ping("ping"));
+
+            Generated.enabled = false;
+            proxyObj = bus.getProxyBusObject(bus.getUniqueName(), "/simple", BusAttachment.SESSION_ID_ANY,
+                                             new Class[] { SimpleInterface.class });
+            proxy = proxyObj.getInterface(SimpleInterface.class);
+            assertTrue(Proxy.isProxyClass(proxy.getClass()));
+            assertEquals("ping", proxy.Ping("ping"));
+        } finally {
+            bus.unregisterBusObject(service);
+            bus.disconnect();
+            bus.release();
+        }
+    }
+
+    public void testStruct() throws Exception {
+        StructAccessor<Object> accessor = Generated.struct(InferredTypesInterface.Struct.class);
+        assertNotNull(accessor);
+        InferredTypesInterface.Struct struct = (InferredTypesInterface.Struct) accessor.newInstance();
+        accessor.set(struct, 0, (byte) 1);
+        assertEquals((byte) 1, struct.y);
+        assertEquals((byte) 1, accessor.get(struct, 0));
+    }
+}
@@ -23,7 +23,9 @@ import org.alljoyn.bus.annotation.BusMethod;
 import org.alljoyn.bus.annotation.BusProperty;
 import org.alljoyn.bus.annotation.Position;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.Arrays;
 
@@ -399,6 +401,21 @@ public interface InferredTypesInterface {
     @BusMethod
     public TreeMap<String, String>[] TreeDictionaryArray(TreeMap<String, String>[] aaess) throws BusException;
 
+    @BusMethod
+    public List<Integer> ListI(List<Integer> ai) throws BusException;
+
+    @BusMethod
+    public List<Double> ListD(List<Double> ad) throws BusException;
+
+    @BusMethod
+    public List<String> ListS(List<String> as) throws BusException;
+
+    @BusMethod
+    public List<InnerStruct> ListR(List<InnerStruct> ar) throws BusException;
+
+    @BusMethod
+    public Set<String> SetS(Set<String> as) throws BusException;
+
     @BusProperty 
     public Map<String, String> getDictionarySS() throws BusException;
 
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.alljoyn.bus;
+
+import org.alljoyn.bus.annotation.BusInterface;
+import org.alljoyn.bus.annotation.BusMethod;
+import org.alljoyn.bus.annotation.Position;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+@BusInterface
+public interface MarshalBenchmarkInterface {
+
+    public class Struct {
+        @Position(0)
+        public int i;
+
+        @Position(1)
+        public String s;
+
+        @Position(2)
+        public double d;
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Struct)) {
+                return false;
+            }
+            Struct that = (Struct) obj;
+            return i == that.i && s.equals(that.s) && d == that.d;
+        }
+
+        public int hashCode() {
+            return i;
+        }
+    }
+
+    @BusMethod(signature="a{si}", replySignature="a{si}")
+    public Map<String, Integer> Dictionary(Map<String, Integer> m) throws BusException;
+
+    @BusMethod(signature="a{ss}", replySignature="a{ss}")
+    public Map<String, String> StringDictionary(Map<String, String> m) throws BusException;
+
+    @BusMethod(signature="a{sv}", replySignature="a{sv}")
+    public Map<String, Variant> VariantDictionary(Map<String, Variant> m) throws BusException;
+
+    @BusMethod(signature="a(isd)", replySignature="a(isd)")
+    public Struct[] StructArray(Struct[] m) throws BusException;
+
+    @BusMethod(signature="ai", replySignature="ai")
+    public int[] IntArray(int[] m) throws BusException;
+
+    @BusMethod(signature="ay", replySignature="ay")
+    public ByteBuffer Bytes(ByteBuffer m) throws BusException;
+}
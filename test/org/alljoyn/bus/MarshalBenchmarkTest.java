@@ -0,0 +1,242 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.alljoyn.bus;
+
+import org.alljoyn.bus.BusAttachment;
+import org.alljoyn.bus.BusException;
+import org.alljoyn.bus.BusObject;
+import org.alljoyn.bus.Status;
+import org.alljoyn.bus.ifaces.DBusProxyObj;
+
+import static junit.framework.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import junit.framework.TestCase;
+
+/**
+ * Compares marshalling and unmarshalling through a single bulk encoding of
+ * the message against walking the message one JNI call per node.  Both the
+ * service (arguments) and the client (replies) are measured, since they
+ * share the process.
+ *
+ * Normally each call is made once in each mode and the results compared.
+ * The calls are only timed, and the times printed, when the system property
+ * {@value #BENCHMARK_PROPERTY} is "true".
+ */
+public class MarshalBenchmarkTest extends TestCase {
+    public MarshalBenchmarkTest(String name) {
+        super(name);
+    }
+
+    static {
+        System.loadLibrary("alljoyn_java");
+    }
+
+    private static final String BENCHMARK_PROPERTY = "org.alljoyn.bus.benchmark";
+
+    private static final boolean BENCHMARK = Boolean.getBoolean(BENCHMARK_PROPERTY);
+
+    private static final int NUM_ELEMENTS = BENCHMARK ? 10000 : 1000;
+    private static final int NUM_WARMUP = BENCHMARK ? 5 : 0;
+    private static final int NUM_ITERATIONS = BENCHMARK ? 20 : 1;
+
+    public class Service implements MarshalBenchmarkInterface,
+                                    BusObject {
+        public Map<String, Integer> Dictionary(Map<String, Integer> m) throws BusException { return m; }
+        public Map<String, String> StringDictionary(Map<String, String> m) throws BusException { return m; }
+        public Map<String, Variant> VariantDictionary(Map<String, Variant> m) throws BusException { return m; }
+        public Struct[] StructArray(Struct[] m) throws BusException { return m; }
+        public int[] IntArray(int[] m) throws BusException { return m; }
+        public ByteBuffer Bytes(ByteBuffer m) throws BusException {
+            if (!m.isDirect() || !m.isReadOnly()) {
+                throw new BusException("'ay' parameter was copied");
+            }
+            return m;
+        }
+    }
+
+    private BusAttachment bus;
+    private BusAttachment serviceBus;
+
+    private Service service;
+
+    private MarshalBenchmarkInterface proxy;
+
+    private boolean bulkMarshal;
+    private boolean bulkUnmarshal;
+
+    public void setUp() throws Exception {
+        bulkMarshal = MsgArg.bulkMarshal;
+        bulkUnmarshal = MsgArg.bulkUnmarshal;
+
+        serviceBus = new BusAttachment(getClass().getName() + "Service");
+
+        service = new Service();
+        Status status = serviceBus.registerBusObject(service, "/service");
+        assertEquals(Status.OK, status);
+
+        status = serviceBus.connect();
+        assertEquals(Status.OK, status);
+
+        DBusProxyObj control = serviceBus.getDBusProxyObj();
+        DBusProxyObj.RequestNameResult res = control.RequestName("org.alljoyn.bus.MarshalBenchmarkTest",
+                                                                 DBusProxyObj.REQUEST_NAME_NO_FLAGS);
+        assertEquals(DBusProxyObj.RequestNameResult.PrimaryOwner, res);
+
+        bus = new BusAttachment(getClass().getName());
+        status = bus.connect();
+        assertEquals(Status.OK, status);
+
+        ProxyBusObject remoteObj = bus.getProxyBusObject("org.alljoyn.bus.MarshalBenchmarkTest", "/service",
+                                                         BusAttachment.SESSION_ID_ANY,
+                                                         new Class[] { MarshalBenchmarkInterface.class });
+        proxy = remoteObj.getInterface(MarshalBenchmarkInterface.class);
+    }
+
+    public void tearDown() throws Exception {
+        MsgArg.bulkMarshal = bulkMarshal;
+        MsgArg.bulkUnmarshal = bulkUnmarshal;
+
+        proxy = null;
+
+        DBusProxyObj control = serviceBus.getDBusProxyObj();
+        DBusProxyObj.ReleaseNameResult res = control.ReleaseName("org.alljoyn.bus.MarshalBenchmarkTest");
+        assertEquals(DBusProxyObj.ReleaseNameResult.Released, res);
+
+        serviceBus.unregisterBusObject(service);
+        service = null;
+
+        serviceBus.disconnect();
+        serviceBus.release();
+        serviceBus = null;
+
+        bus.disconnect();
+        bus.release();
+        bus = null;
+    }
+
+    private interface Call {
+        Object call() throws BusException;
+    }
+
+    /**
+     * Makes a call with bulk marshalling off and on and checks both produce
+     * the same result.  When benchmarking, also prints the average time per
+     * call.
+     */
+    private void benchmark(String name, Call call) throws Exception {
+        Object[] results = new Object[2];
+        long[] nanos = new long[2];
+        for (int mode = 0; mode < 2; ++mode) {
+            MsgArg.bulkMarshal = (mode == 1);
+            MsgArg.bulkUnmarshal = (mode == 1);
+            for (int i = 0; i < NUM_WARMUP; ++i) {
+                results[mode] = call.call();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < NUM_ITERATIONS; ++i) {
+                results[mode] = call.call();
+            }
+            nanos[mode] = (System.nanoTime() - start) / NUM_ITERATIONS;
+        }
+        if (results[0] instanceof Object[]) {
+            assertTrue(Arrays.equals((Object[]) results[0], (Object[]) results[1]));
+        } else if (results[0] instanceof int[]) {
+            assertTrue(Arrays.equals((int[]) results[0], (int[]) results[1]));
+        } else {
+            assertEquals(results[0], results[1]);
+        }
+        if (BENCHMARK) {
+            System.out.println(name + ": per-node " + (nanos[0] / 1000) + "us, bulk " + (nanos[1] / 1000)
+                               + "us per call");
+        }
+    }
+
+    public void testDictionary() throws Exception {
+        final Map<String, Integer> m = new HashMap<String, Integer>();
+        for (int i = 0; i < NUM_ELEMENTS; ++i) {
+            m.put("key" + i, i);
+        }
+        benchmark("a{si}", new Call() {
+                public Object call() throws BusException { return proxy.Dictionary(m); }
+            });
+    }
+
+    public void testStringDictionary() throws Exception {
+        final Map<String, String> m = new HashMap<String, String>();
+        for (int i = 0; i < NUM_ELEMENTS; ++i) {
+            m.put("key" + i, "value" + i);
+        }
+        benchmark("a{ss}", new Call() {
+                public Object call() throws BusException { return proxy.StringDictionary(m); }
+            });
+    }
+
+    public void testVariantDictionary() throws Exception {
+        final Map<String, Variant> m = new HashMap<String, Variant>();
+        for (int i = 0; i < NUM_ELEMENTS; ++i) {
+            m.put("key" + i, new Variant(i));
+        }
+        /* Unmarshalled Variants cannot be compared with equals, so compare sizes and spot check. */
+        benchmark("a{sv}", new Call() {
+                public Object call() throws BusException { return proxy.VariantDictionary(m).size(); }
+            });
+        Map<String, Variant> reply = proxy.VariantDictionary(m);
+        assertEquals(NUM_ELEMENTS, reply.size());
+        assertEquals(Integer.valueOf(NUM_ELEMENTS - 1),
+                     reply.get("key" + (NUM_ELEMENTS - 1)).getObject(Integer.class));
+    }
+
+    public void testStructArray() throws Exception {
+        final MarshalBenchmarkInterface.Struct[] m = new MarshalBenchmarkInterface.Struct[NUM_ELEMENTS];
+        for (int i = 0; i < NUM_ELEMENTS; ++i) {
+            m[i] = new MarshalBenchmarkInterface.Struct();
+            m[i].i = i;
+            m[i].s = "string" + i;
+            m[i].d = i / 3.0;
+        }
+        benchmark("a(isd)", new Call() {
+                public Object call() throws BusException { return proxy.StructArray(m); }
+            });
+    }
+
+    public void testIntArray() throws Exception {
+        final int[] m = new int[NUM_ELEMENTS];
+        for (int i = 0; i < NUM_ELEMENTS; ++i) {
+            m[i] = i;
+        }
+        benchmark("ai", new Call() {
+                public Object call() throws BusException { return proxy.IntArray(m); }
+            });
+    }
+
+    public void testByteBuffer() throws Exception {
+        final ByteBuffer m = ByteBuffer.allocateDirect(1024 * 1024);
+        for (int i = 0; i < m.capacity(); ++i) {
+            m.put((byte) i);
+        }
+        m.flip();
+        benchmark("ay", new Call() {
+                public Object call() throws BusException { return proxy.Bytes(m); }
+            });
+        assertEquals(m, proxy.Bytes(m));
+        assertEquals(0, m.position());
+    }
+}
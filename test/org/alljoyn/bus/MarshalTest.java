@@ -26,7 +26,12 @@ import org.alljoyn.bus.VariantTypeReference;
 import org.alljoyn.bus.ifaces.DBusProxyObj;
 import static org.alljoyn.bus.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.HashMap;
 import java.lang.reflect.GenericArrayType;
@@ -549,6 +554,16 @@ public class MarshalTest extends TestCase {
         }
 
         public TwoByteArrays TwoByteArrays(TwoByteArrays rayay) throws BusException { return rayay; }
+
+        public List<Integer> ListI(List<Integer> ai) throws BusException { return ai; }
+
+        public List<Double> ListD(List<Double> ad) throws BusException { return ad; }
+
+        public List<String> ListS(List<String> as) throws BusException { return as; }
+
+        public List<InferredTypesInterface.InnerStruct> ListR(List<InferredTypesInterface.InnerStruct> ar) throws BusException { return ar; }
+
+        public Set<String> SetS(Set<String> as) throws BusException { return as; }
     }
 
     public class NullService implements InferredTypesInterface, 
@@ -1048,6 +1063,16 @@ public class MarshalTest extends TestCase {
         }
 
         public TwoByteArrays TwoByteArrays(TwoByteArrays rayay) throws BusException { return null; }
+
+        public List<Integer> ListI(List<Integer> ai) throws BusException { return null; }
+
+        public List<Double> ListD(List<Double> ad) throws BusException { return null; }
+
+        public List<String> ListS(List<String> as) throws BusException { return null; }
+
+        public List<InferredTypesInterface.InnerStruct> ListR(List<InferredTypesInterface.InnerStruct> ar) throws BusException { return null; }
+
+        public Set<String> SetS(Set<String> as) throws BusException { return null; }
     }
 
     private BusAttachment bus;
@@ -2339,6 +2364,35 @@ public class MarshalTest extends TestCase {
                      inferred.Variant(v).getObject(aessTypeReference));
     }
 
+    public void testFrozenVariant() throws Exception {
+        InferredTypesInterface proxy = remoteObj.getInterface(InferredTypesInterface.class);
+
+        TreeMap<String, String> ae = new TreeMap<String, String>();
+        ae.put("six", "seven");
+        Variant v = new Variant(ae, "a{ss}").freeze();
+        assertTrue(v.isFrozen());
+        assertEquals("a{ss}", v.getSignature());
+
+        /* The value marshalled when frozen is sent every time */
+        AessTypeReference aessTypeReference = new AessTypeReference();
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(ae, proxy.Variant(v).getObject(aessTypeReference));
+        }
+        ae.put("eight", "nine");
+        assertEquals(1, proxy.Variant(v).getObject(aessTypeReference).size());
+
+        Variant[] av = new Variant[] { v, new Variant("ten").freeze(), new Variant(11) };
+        Variant[] reply = proxy.VariantArray(av);
+        assertEquals(1, reply[0].getObject(aessTypeReference).size());
+        assertEquals("ten", reply[1].getObject(String.class));
+        assertEquals(11, (int) reply[2].getObject(Integer.class));
+
+        /* A received Variant can be frozen and sent on */
+        Variant received = proxy.Variant(new Variant("twelve"));
+        assertSame(received, received.freeze());
+        assertEquals("twelve", proxy.Variant(received).getObject(String.class));
+    }
+
     public void testEnums() throws Exception {
         AnnotatedTypesInterface proxy = remoteObj.getInterface(AnnotatedTypesInterface.class);
 
@@ -2365,6 +2419,31 @@ public class MarshalTest extends TestCase {
         assertArrayEquals(aaess, proxy.TreeDictionaryArray(aaess));
     }
 
+    public void testCollections() throws Exception {
+        InferredTypesInterface proxy = remoteObj.getInterface(InferredTypesInterface.class);
+
+        List<Integer> ai = Arrays.asList(new Integer[] { -1, 0, 1, Integer.MAX_VALUE });
+        assertEquals(ai, proxy.ListI(ai));
+        List<Integer> ai2 = proxy.ListI(new ArrayList<Integer>());
+        assertEquals(0, ai2.size());
+
+        List<Double> ad = Arrays.asList(new Double[] { 0.1, 0.2 });
+        assertEquals(ad, proxy.ListD(ad));
+
+        List<String> as = Arrays.asList(new String[] { "one", "two", "three" });
+        assertEquals(as, proxy.ListS(as));
+
+        List<InferredTypesInterface.InnerStruct> ar = new ArrayList<InferredTypesInterface.InnerStruct>();
+        ar.add(new InferredTypesInterface.InnerStruct(1));
+        ar.add(new InferredTypesInterface.InnerStruct(2));
+        assertEquals(ar, proxy.ListR(ar));
+
+        Set<String> ss = new LinkedHashSet<String>(as);
+        Set<String> ssr = proxy.SetS(ss);
+        assertEquals(ss, ssr);
+        assertEquals(as, new ArrayList<String>(ssr));
+    }
+
     public void testArraySizes() throws Exception {
         if (!isAndroid) // Android device has less than 32M heap per process JVM
         {
@@ -2386,6 +2465,25 @@ public class MarshalTest extends TestCase {
         }
     }
 
+    public void testEncodedSize() throws Exception {
+        TreeMap<String, Integer> aesi = new TreeMap<String, Integer>();
+        aesi.put("one", 1);
+        aesi.put("tw\u00f6", 2);
+        Object[] args = new Object[] { "ascii", "n\u00f6n-ascii", new byte[5000], new int[] { 1, 2, 3 },
+                                       new String[] { "a", "bc" }, aesi, new Variant("v"), (short) 4 };
+        String[] sigs = new String[] { "s", "s", "ay", "ai", "as", "a{si}", "v", "n" };
+
+        /* The encoding is larger than the initial buffer, so it is sized exactly and written again */
+        Codec[] codecs = new Codec[args.length];
+        int size = 0;
+        for (int i = 0; i < args.length; ++i) {
+            codecs[i] = Codec.get(args[i].getClass(), sigs[i]);
+            size += codecs[i].encodedSize(args[i]);
+        }
+        assertTrue(size > 4096);
+        assertEquals(size, Codec.encode(codecs, args).position());
+    }
+
     public void testPacketSizes() throws Exception {
         if (!isAndroid) // Android device has less than 32M heap per process JVM
         {
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2009-2013, Qualcomm Innovation Center, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.alljoyn.bus;
+
+import static junit.framework.Assert.*;
+
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+public class ParsedSignatureTest extends TestCase {
+    public ParsedSignatureTest(String name) {
+        super(name);
+    }
+
+    public void testSplit() throws Exception {
+        assertEquals(0, ParsedSignature.parse("").size());
+        assertEquals(Arrays.asList("a{sv}", "(ii)", "as", "v"),
+                     Arrays.asList(ParsedSignature.parse("a{sv}(ii)asv").getTypeSigs()));
+        assertEquals(Arrays.asList("a(ia{s(yv)})", "aay"),
+                     Arrays.asList(ParsedSignature.parse("a(ia{s(yv)})aay").getTypeSigs()));
+    }
+
+    public void testInvalid() throws Exception {
+        String[] invalid = { "a", "(", "(i", "()", "a{vs}", "a{(i)s}", "a{s}", "a{sss}", "{sv}",
+                             ")", "z", "i)" };
+        for (String sig : invalid) {
+            assertNull(sig, ParsedSignature.parse(sig));
+        }
+        StringBuilder deep = new StringBuilder();
+        for (int i = 0; i < 33; ++i) {
+            deep.append('a');
+        }
+        assertNull(ParsedSignature.parse(deep.append('i').toString()));
+    }
+
+    public void testTree() throws Exception {
+        ParsedSignature dict = ParsedSignature.parse("a{sv}").getType(0);
+        assertEquals('a', dict.getTypeId());
+        ParsedSignature entry = dict.getType(0);
+        assertEquals('{', entry.getTypeId());
+        assertEquals("s", entry.getType(0).toString());
+        assertEquals("v", entry.getType(1).toString());
+
+        ParsedSignature struct = ParsedSignature.parse("(sai)").getType(0);
+        assertEquals(2, struct.size());
+        assertTrue(struct.getType(1).isPrimitiveArray());
+        assertFalse(ParsedSignature.parse("as").getType(0).isPrimitiveArray());
+    }
+
+    public void testFixedSize() throws Exception {
+        assertEquals(1, ParsedSignature.parse("y").getType(0).getFixedSize());
+        assertEquals(8, ParsedSignature.parse("(yi)").getType(0).getFixedSize());
+        assertEquals(16, ParsedSignature.parse("(yx)").getType(0).getFixedSize());
+        assertEquals(-1, ParsedSignature.parse("(ys)").getType(0).getFixedSize());
+        assertEquals(-1, ParsedSignature.parse("ai").getType(0).getFixedSize());
+    }
+
+    public void testInterned() throws Exception {
+        assertSame(ParsedSignature.parse("a{sv}i"), ParsedSignature.parse("a{sv}i"));
+        assertSame(ParsedSignature.parse("a{sv}").getType(0), ParsedSignature.parse("ia{sv}").getType(1));
+        assertSame(ParsedSignature.parse("i").getTypeSigs(), ParsedSignature.parse("i").getTypeSigs());
+    }
+}
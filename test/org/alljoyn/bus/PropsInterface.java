@@ -17,6 +17,8 @@
 package org.alljoyn.bus;
 
 import org.alljoyn.bus.BusException;
+import org.alljoyn.bus.annotation.BusAnnotation;
+import org.alljoyn.bus.annotation.BusAnnotations;
 import org.alljoyn.bus.annotation.BusInterface;
 import org.alljoyn.bus.annotation.BusMethod;
 import org.alljoyn.bus.annotation.BusProperty;
@@ -26,6 +28,7 @@ import org.alljoyn.bus.annotation.BusProperty;
  * alljoyn by org.alljoyn.bus.samples.props.Service and is subscribed
  * to by org.alljoyn.bus.samples.props.Client.  The interface
  * contains two read/write properties: 'StringProp' and 'IntProp'.
+ * Changes of 'StringProp' are signalled with PropertiesChanged.
  */
 @BusInterface
 public interface PropsInterface {
@@ -37,6 +40,7 @@ public interface PropsInterface {
      * @return The property value.
      */
     @BusProperty
+    @BusAnnotations({@BusAnnotation(name="org.freedesktop.DBus.Property.EmitsChangedSignal", value="true")})
     public String getStringProp() throws BusException;
     
     /**
@@ -54,13 +54,14 @@ public class PropsTest extends TestCase {
 
     BusAttachment bus;
     BusAttachment clientBus;
+    Service service;
 
     public void setUp() throws Exception {
         bus = new BusAttachment(getClass().getName());
         assertEquals(Status.OK, bus.connect());
 
         /* Register the service */
-        Service service = new Service();
+        service = new Service();
         Status status = bus.registerBusObject(service, "/testProperties");
         if (Status.OK != status) {
             throw new BusException("BusAttachment.registerBusObject() failed: " + status.toString());
@@ -135,6 +136,22 @@ public class PropsTest extends TestCase {
         assertEquals(6, (int)map.get("IntProp").getObject(Integer.class));
     }
     
+    public void testGetAllPropertiesLazily() throws Exception {
+        ProxyBusObject remoteObj = bus.getProxyBusObject(bus.getUniqueName(),
+                                                         "/testProperties",  BusAttachment.SESSION_ID_ANY,
+                                                         new Class<?>[] { PropsInterface.class });
+        LazyMap<String, Variant> map = remoteObj.getAllPropertiesLazily(PropsInterface.class);
+        assertEquals(remoteObj.getAllProperties(PropsInterface.class).size(), map.size());
+        assertEquals("Hello", map.get("StringProp").getObject(String.class));
+        map.release();
+        assertEquals("Hello", map.get("StringProp").getObject(String.class));
+        try {
+            map.get("IntProp");
+            fail("accessed released LazyMap");
+        } catch (IllegalStateException ex) {
+        }
+    }
+
     /* ALLJOYN-2043 */
     public void testGetAllThenMethodCall() throws Exception {
         /* Get a remote object */
@@ -153,4 +170,45 @@ public class PropsTest extends TestCase {
         PropsInterface proxy = remoteObj.getInterface(PropsInterface.class);
         assertEquals("World", proxy.Ping("World"));
    }
-}
\ No newline at end of file
+
+    public void testPropertyCaching() throws Exception {
+        ProxyBusObject remoteObj = bus.getProxyBusObject(bus.getUniqueName(),
+                                                         "/testProperties",  BusAttachment.SESSION_ID_ANY,
+                                                         new Class<?>[] { PropsInterface.class });
+        assertEquals(Status.OK, remoteObj.enablePropertyCaching());
+        PropsInterface proxy = remoteObj.getInterface(PropsInterface.class);
+
+        /* The first read loads the cache, the second is served from it */
+        assertEquals("Hello", proxy.getStringProp());
+        assertEquals("Hello", proxy.getStringProp());
+        assertEquals("Hello", remoteObj.getProperty(PropsInterface.class, "StringProp").getObject(String.class));
+        assertEquals(1, remoteObj.getPropertyCacheMisses());
+        assertEquals(2, remoteObj.getPropertyCacheHits());
+
+        /* IntProp does not emit PropertiesChanged, so it is never cached */
+        assertEquals(6, proxy.getIntProp());
+        service.setIntProp(7);
+        assertEquals(7, proxy.getIntProp());
+        assertEquals(1, remoteObj.getPropertyCacheMisses());
+        assertEquals(2, remoteObj.getPropertyCacheHits());
+
+        /* The cache follows PropertiesChanged */
+        service.setStringProp("Changed");
+        bus.emitChangedSignal(service, "org.alljoyn.bus.PropsInterface", "StringProp", "Changed", 0);
+        for (int i = 0; i < 50 && !"Changed".equals(proxy.getStringProp()); ++i) {
+            Thread.sleep(100);
+        }
+        assertEquals("Changed", proxy.getStringProp());
+        assertEquals(1, remoteObj.getPropertyCacheMisses());
+
+        /* Setting a property drops it from the cache */
+        proxy.setStringProp("Set");
+        assertEquals("Set", proxy.getStringProp());
+        assertEquals(2, remoteObj.getPropertyCacheMisses());
+
+        remoteObj.disablePropertyCaching();
+        assertEquals(0, remoteObj.getPropertyCacheHits());
+        service.setStringProp("Uncached");
+        assertEquals("Uncached", proxy.getStringProp());
+    }
+}
@@ -23,6 +23,16 @@ import org.alljoyn.bus.SignalEmitter;
 import org.alljoyn.bus.Status;
 import org.alljoyn.bus.ifaces.DBusProxyObj;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import static junit.framework.Assert.*;
 import junit.framework.TestCase;
 
@@ -70,7 +80,16 @@ public class ProxyBusObjectTest extends TestCase {
 
     public class DelayReply implements SimpleInterface,
                                        BusObject {
+        public int calls;
+        public int active;
+        public int maxActive;
+
         public String Ping(String str) {
+            otherBus.enableConcurrentCallbacks();
+            synchronized (this) {
+                ++calls;
+                maxActive = Math.max(maxActive, ++active);
+            }
             boolean thrown = false;
             try {
                 Thread.currentThread().sleep(100);
@@ -79,6 +98,10 @@ public class ProxyBusObjectTest extends TestCase {
                 // the stacktrace to aid with debugging.
                 ex.printStackTrace();
                 thrown = true;
+            } finally {
+                synchronized (this) {
+                    --active;
+                }
             }
             assertFalse(thrown);
             return str;
@@ -112,6 +135,39 @@ public class ProxyBusObjectTest extends TestCase {
     }
 
 
+    public void testProxyBusObjectPool() throws Exception {
+        ProxyBusObjectPool pool = bus.getProxyBusObjectPool();
+        Class<?>[] ifaces = new Class<?>[] { SimpleInterface.class };
+
+        /* Identical requests share a proxy bus object */
+        ProxyBusObject a = pool.get(name, "/simple", BusAttachment.SESSION_ID_ANY, ifaces, false);
+        ProxyBusObject b = pool.get(name, "/simple", BusAttachment.SESSION_ID_ANY, ifaces, false);
+        ProxyBusObject c = pool.get(name, "/other", BusAttachment.SESSION_ID_ANY, ifaces, false);
+        assertSame(a, b);
+        assertNotSame(a, c);
+        assertEquals(2, pool.size());
+
+        /* Released proxy bus objects stay pooled until idle for too long */
+        a.release();
+        assertEquals("ping", b.getInterface(SimpleInterface.class).Ping("ping"));
+        b.release();
+        c.release();
+        assertEquals(2, pool.size());
+        assertSame(a, pool.get(name, "/simple", BusAttachment.SESSION_ID_ANY, ifaces, false));
+        a.release();
+
+        pool.setIdleTimeout(0);
+        ProxyBusObject d = pool.get(name, "/simple", BusAttachment.SESSION_ID_ANY, ifaces, false);
+        assertNotSame(a, d);
+        assertEquals(1, pool.size());
+
+        /* Invalidated proxy bus objects remain usable until released */
+        pool.invalidate(BusAttachment.SESSION_ID_ANY);
+        assertEquals(0, pool.size());
+        assertEquals("ping", d.getInterface(SimpleInterface.class).Ping("ping"));
+        d.release();
+    }
+
     public void testMethodCall() throws Exception {
         assertEquals(Status.OK, otherBus.advertiseName(name, SessionOpts.TRANSPORT_ANY));
 
@@ -126,6 +182,294 @@ public class ProxyBusObjectTest extends TestCase {
         otherBus.cancelAdvertiseName(name, SessionOpts.TRANSPORT_ANY);
     }
 
+    public void testMethodCallAsync() throws Exception {
+        proxyObj = bus.getProxyBusObject(name, "/simple", BusAttachment.SESSION_ID_ANY, new Class[] { SimpleInterface.class });
+        Future<String> reply = proxyObj.methodCallAsync(SimpleInterface.class, "Ping", "ping");
+        assertEquals("ping", reply.get(5, TimeUnit.SECONDS));
+        assertTrue(reply.isDone());
+        assertFalse(reply.isCancelled());
+    }
+
+    public void testMethodCallAsyncListener() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            proxyObj = bus.getProxyBusObject(name, "/simple", BusAttachment.SESSION_ID_ANY, new Class[] { SimpleInterface.class });
+            proxyObj.setReplyExecutor(executor);
+
+            final String[] replies = new String[10];
+            final CountDownLatch done = new CountDownLatch(replies.length);
+            OnMethodReplyListener<String> listener = new OnMethodReplyListener<String>() {
+                public void onMethodReply(String reply, BusException error, Object context) {
+                    replies[(Integer) context] = reply;
+                    done.countDown();
+                }
+            };
+            for (int i = 0; i < replies.length; ++i) {
+                proxyObj.methodCallAsync(SimpleInterface.class, "Ping", new Object[] { "ping" + i }, listener, i);
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < replies.length; ++i) {
+                assertEquals("ping" + i, replies[i]);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testMethodCallAsyncTimeout() throws Exception {
+        DelayReply service = new DelayReply();
+        assertEquals(Status.OK, otherBus.registerBusObject(service, "/delayreply"));
+
+        proxyObj = bus.getProxyBusObject(name, "/delayreply", BusAttachment.SESSION_ID_ANY, new Class[] { SimpleInterface.class });
+        proxyObj.setReplyTimeout(10);
+
+        Future<String> reply = proxyObj.methodCallAsync(SimpleInterface.class, "Ping", "testMethodCallAsyncTimeout");
+        boolean thrown = false;
+        try {
+            reply.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException ex) {
+            thrown = ex.getCause() instanceof ErrorReplyBusException;
+        }
+        assertTrue(thrown);
+    }
+
+    public void testBatch() throws Exception {
+        proxyObj = bus.getProxyBusObject(name, "/simple", BusAttachment.SESSION_ID_ANY, new Class[] { SimpleInterface.class });
+        MethodCallBatch batch = proxyObj.batch();
+        List<Future<String>> pings = new ArrayList<Future<String>>();
+        for (int i = 0; i < 40; ++i) {
+            Future<String> reply = batch.add(SimpleInterface.class, "Ping", "ping" + i);
+            assertFalse(reply.isDone());
+            pings.add(reply);
+        }
+        assertEquals(40, batch.size());
+
+        List<Future<?>> replies = batch.execute();
+        assertEquals(40, replies.size());
+        for (int i = 0; i < replies.size(); ++i) {
+            assertSame(pings.get(i), replies.get(i));
+            assertTrue(replies.get(i).isDone());
+            assertEquals("ping" + i, pings.get(i).get());
+        }
+
+        try {
+            batch.execute();
+            fail("executed batch twice");
+        } catch (IllegalStateException ex) {
+        }
+    }
+
+    public void testBatchCancelled() throws Exception {
+        proxyObj = bus.getProxyBusObject(name, "/simple", BusAttachment.SESSION_ID_ANY, new Class[] { SimpleInterface.class });
+        MethodCallBatch batch = proxyObj.batch();
+        Future<String> cancelled = batch.add(SimpleInterface.class, "Ping", "one");
+        Future<String> sent = batch.add(SimpleInterface.class, "Ping", "two");
+        assertTrue(cancelled.cancel(false));
+
+        List<Future<?>> replies = batch.execute();
+        assertTrue(replies.get(0).isCancelled());
+        assertTrue(replies.get(1).isDone());
+        assertEquals("two", sent.get());
+    }
+
+    public void testBatchFailure() throws Exception {
+        DelayReply service = new DelayReply();
+        assertEquals(Status.OK, otherBus.registerBusObject(service, "/delayreply"));
+
+        proxyObj = bus.getProxyBusObject(name, "/delayreply", BusAttachment.SESSION_ID_ANY, new Class[] { SimpleInterface.class });
+        proxyObj.setReplyTimeout(10);
+        MethodCallBatch batch = proxyObj.batch();
+        batch.add(SimpleInterface.class, "Ping", "one");
+        batch.add(SimpleInterface.class, "Ping", "two");
+        for (Future<?> reply : batch.execute()) {
+            try {
+                reply.get();
+                fail("batched call did not time out");
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof BusException);
+            }
+        }
+    }
+
+    public void testMethodCallAsyncNoSuchMethod() throws Exception {
+        proxyObj = bus.getProxyBusObject(name, "/simple", BusAttachment.SESSION_ID_ANY, new Class[] { SimpleInterface.class });
+        boolean thrown = false;
+        try {
+            proxyObj.methodCallAsync(SimpleInterface.class, "NoSuchMethod");
+        } catch (BusException ex) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+    }
+
+    private interface Caller {
+        void call(int thread) throws Exception;
+    }
+
+    /*
+     * Runs caller on the given number of threads at once and rethrows the
+     * first failure of any of them.
+     */
+    private void callConcurrently(int threads, final Caller caller) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        for (int i = 0; i < threads; ++i) {
+            final int thread = i;
+            new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        caller.call(thread);
+                    } catch (Throwable ex) {
+                        failures.add(ex);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        start.countDown();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        if (!failures.isEmpty()) {
+            Throwable failure = failures.get(0);
+            if (failure instanceof Exception) {
+                throw (Exception) failure;
+            }
+            throw (Error) failure;
+        }
+    }
+
+    /*
+     * Callers that were serialized in the binding would never have more than
+     * one DelayReply call active at the service.
+     */
+    public void testConcurrentMethodCalls() throws Exception {
+        DelayReply service = new DelayReply();
+        assertEquals(Status.OK, otherBus.registerBusObject(service, "/delayreply"));
+
+        final int threads = 8;
+        final int calls = 4;
+        final ProxyBusObject[] proxies = new ProxyBusObject[threads];
+        for (int i = 0; i < threads; ++i) {
+            proxies[i] = bus.getProxyBusObject(name, "/delayreply", BusAttachment.SESSION_ID_ANY, new Class[] { SimpleInterface.class });
+        }
+        try {
+            callConcurrently(threads, new Caller() {
+                public void call(int thread) throws Exception {
+                    SimpleInterface proxy = proxies[thread].getInterface(SimpleInterface.class);
+                    String str = "testConcurrentMethodCalls" + thread;
+                    for (int j = 0; j < calls; ++j) {
+                        assertEquals(str, proxy.Ping(str));
+                    }
+                }
+            });
+        } finally {
+            for (ProxyBusObject proxy : proxies) {
+                proxy.release();
+            }
+            otherBus.unregisterBusObject(service);
+        }
+
+        synchronized (service) {
+            assertEquals(threads * calls, service.calls);
+            assertTrue("at most " + service.maxActive + " calls active", service.maxActive > 1);
+        }
+    }
+
+    /*
+     * Identical calls share one call in flight, so the service never has more
+     * than one of them active.
+     */
+    public void testCallCoalescing() throws Exception {
+        DelayReply service = new DelayReply();
+        assertEquals(Status.OK, otherBus.registerBusObject(service, "/delayreply"));
+
+        proxyObj = bus.getProxyBusObject(name, "/delayreply", BusAttachment.SESSION_ID_ANY, new Class[] { SimpleInterface.class });
+        proxyObj.setCallCoalescing(true);
+        final SimpleInterface proxy = proxyObj.getInterface(SimpleInterface.class);
+        final int threads = 8;
+        try {
+            callConcurrently(threads, new Caller() {
+                public void call(int thread) throws Exception {
+                    assertEquals("testCallCoalescing", proxy.Ping("testCallCoalescing"));
+                }
+            });
+        } finally {
+            otherBus.unregisterBusObject(service);
+        }
+
+        synchronized (service) {
+            assertEquals(1, service.maxActive);
+        }
+    }
+
+    public class ReplyCacheService implements ReplyCacheInterface, BusObject {
+        public int calls;
+
+        public synchronized String Version(String component) {
+            ++calls;
+            return component + "-1.0";
+        }
+
+        public synchronized int Counter() {
+            return ++calls;
+        }
+    }
+
+    public void testReplyCache() throws Exception {
+        ReplyCacheService service = new ReplyCacheService();
+        assertEquals(Status.OK, otherBus.registerBusObject(service, "/replycache"));
+
+        proxyObj = bus.getProxyBusObject(name, "/replycache", BusAttachment.SESSION_ID_ANY, new Class[] { ReplyCacheInterface.class });
+        ReplyCacheInterface proxy = proxyObj.getInterface(ReplyCacheInterface.class);
+
+        /* Replies are cached by arguments */
+        assertEquals("a-1.0", proxy.Version("a"));
+        assertEquals("a-1.0", proxy.Version("a"));
+        assertEquals("b-1.0", proxy.Version("b"));
+        assertEquals("b-1.0", proxy.Version("b"));
+        assertEquals(2, service.calls);
+
+        /* The least recently used reply is dropped */
+        assertEquals("a-1.0", proxy.Version("a"));
+        assertEquals("c-1.0", proxy.Version("c"));
+        assertEquals("a-1.0", proxy.Version("a"));
+        assertEquals(3, service.calls);
+        assertEquals("b-1.0", proxy.Version("b"));
+        assertEquals(4, service.calls);
+
+        /* Cleared replies are read again */
+        proxyObj.clearReplyCache();
+        assertEquals("a-1.0", proxy.Version("a"));
+        assertEquals(5, service.calls);
+
+        /* Replies expire */
+        assertEquals(6, proxy.Counter());
+        assertEquals(6, proxy.Counter());
+        long deadline = System.currentTimeMillis() + 10000;
+        int counter;
+        while ((counter = proxy.Counter()) == 6 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(7, counter);
+
+        otherBus.unregisterBusObject(service);
+    }
+
+    public void testSharedProxyBusObject() throws Exception {
+        proxyObj = bus.getProxyBusObject(name, "/simple", BusAttachment.SESSION_ID_ANY, new Class[] { SimpleInterface.class });
+        final SimpleInterface proxy = proxyObj.getInterface(SimpleInterface.class);
+        callConcurrently(8, new Caller() {
+            public void call(int thread) throws Exception {
+                String str = "testSharedProxyBusObject" + thread;
+                for (int j = 0; j < 10; ++j) {
+                    assertEquals(str, proxy.Ping(str));
+                }
+            }
+        });
+    }
+
     public void testMultipleProxyBusObjects() throws Exception {
         // Connect two proxy objects
         proxyObj = bus.getProxyBusObject(name, "/simple", BusAttachment.SESSION_ID_ANY, new Class[] { SimpleInterface.class });
@@ -24,6 +24,14 @@ import org.alljoyn.bus.Status;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import static junit.framework.Assert.*;
 import junit.framework.TestCase;
 
@@ -81,10 +89,58 @@ public class SignalEmitterTest extends TestCase {
         public Status cancelSessionlessSignal(int serialNum) {
             return local.cancelSessionlessSignal(serialNum);
         }
+
+        public void setCoalescing(int minIntervalMsecs) throws BusException {
+            setCoalescing(minIntervalMsecs, -1);
+        }
+
+        public void setCoalescing(int minIntervalMsecs, int keyArg) throws BusException {
+            local.setCoalescing(EmitterInterface.class, "Emit", minIntervalMsecs, keyArg);
+        }
+
+        public void flush() {
+            local.flush();
+        }
+
+        public void setAsynchronous(int capacity, SignalEmitter.Overflow overflow) {
+            local.setAsynchronous(capacity, overflow);
+        }
+
+        public int getQueueDepth() {
+            return local.getQueueDepth();
+        }
+
+        public long getDroppedSignals() {
+            return local.getDroppedSignals();
+        }
+
+        public Status[] emitFanOut(String[] destinations, int[] sessionIds, String string) throws BusException {
+            SignalEmitter fanOut = new SignalEmitter(this, destinations, sessionIds, SignalEmitter.GlobalBroadcast.Off);
+            fanOut.getInterface(EmitterInterface.class).Emit(string);
+            return fanOut.getTargetStatus();
+        }
     }
 
     private Emitter emitter;
 
+    public class OverloadedEmitter implements OverloadedEmitterInterface,
+                                              BusObject {
+
+        private SignalEmitter local = new SignalEmitter(this);
+
+        public void Emit(String string) throws BusException {
+            local.getInterface(OverloadedEmitterInterface.class).Emit(string);
+        }
+
+        public void Emit(Map<String, String> map) throws BusException {
+            local.getInterface(OverloadedEmitterInterface.class).Emit(map);
+        }
+
+        public void setAsynchronous(int capacity, SignalEmitter.Overflow overflow) {
+            local.setAsynchronous(capacity, overflow);
+        }
+    }
+
     public void setUp() throws Exception {
         bus = new BusAttachment(getClass().getName());
         Status status = bus.connect();
@@ -122,11 +178,45 @@ public class SignalEmitterTest extends TestCase {
     private boolean signalReceived = false;
     private int signalsHandled = 0;
     private MessageContext rxMessageContext;
+    private String lastSignal;
+    private List<String> received = new ArrayList<String>();
 
-    public void signalHandler(String string) throws BusException {
+    public synchronized void signalHandler(String string) throws BusException {
         rxMessageContext = bus.getMessageContext();
+        lastSignal = string;
+        received.add(string);
         ++signalsHandled;
         signalReceived = true;
+        notifyAll();
+    }
+
+    public synchronized void overloadedHandler(String string) throws BusException {
+        received.add(bus.getMessageContext().signature + " " + string);
+        notifyAll();
+    }
+
+    public synchronized void overloadedMapHandler(Map<String, String> map) throws BusException {
+        received.add(bus.getMessageContext().signature + " " + map);
+        notifyAll();
+    }
+
+    private OverloadedEmitter registerOverloadedEmitter() throws Exception {
+        OverloadedEmitter overloaded = new OverloadedEmitter();
+        assertEquals(Status.OK, bus.registerBusObject(overloaded, "/overloaded"));
+        assertEquals(Status.OK, bus.registerSignalHandler("org.alljoyn.bus.OverloadedEmitterInterface", "Emit",
+                                                          this, getClass().getMethod("overloadedHandler",
+                                                                                     String.class)));
+        assertEquals(Status.OK, bus.registerSignalHandler("org.alljoyn.bus.OverloadedEmitterInterface", "EmitMap",
+                                                          this, getClass().getMethod("overloadedMapHandler",
+                                                                                     Map.class)));
+        assertEquals(Status.OK, bus.addMatch("type='signal',interface='org.alljoyn.bus.OverloadedEmitterInterface'"));
+        return overloaded;
+    }
+
+    private void unregisterOverloadedEmitter(OverloadedEmitter overloaded) {
+        bus.removeMatch("type='signal',interface='org.alljoyn.bus.OverloadedEmitterInterface'");
+        bus.unregisterSignalHandlers(this);
+        bus.unregisterBusObject(overloaded);
     }
 
     public void testTimeToLive() throws Exception {
@@ -166,6 +256,153 @@ public class SignalEmitterTest extends TestCase {
         assertEquals("s", ctx.signature);
     }
 
+    private synchronized void waitForSignals(int count) throws InterruptedException {
+        for (int i = 0; i < 50 && signalsHandled < count; ++i) {
+            wait(100);
+        }
+    }
+
+    /**
+     * Waits for the signal with the given argument, which is emitted last,
+     * and returns the arguments of all the signals received.
+     */
+    private synchronized List<String> waitForSignal(String marker) throws InterruptedException {
+        for (int i = 0; i < 50 && !received.contains(marker); ++i) {
+            wait(100);
+        }
+        assertTrue(received.contains(marker));
+        List<String> signals = new ArrayList<String>(received);
+        received.clear();
+        return signals;
+    }
+
+    public void testOverloadedSignal() throws Exception {
+        OverloadedEmitter overloaded = registerOverloadedEmitter();
+        try {
+            /* Each overload sends only its own signal, with its own signature */
+            Map<String, String> map = new HashMap<String, String>();
+            map.put("key", "value");
+            overloaded.Emit("string");
+            overloaded.Emit(map);
+            assertEquals(Arrays.asList("s string", "a{ss} {key=value}"), waitForSignal("a{ss} {key=value}"));
+        } finally {
+            unregisterOverloadedEmitter(overloaded);
+        }
+    }
+
+    public void testCoalescing() throws Exception {
+        emitter.setCoalescing(500);
+
+        /* The first emit is sent at once, the latest of the others after the interval */
+        for (int i = 0; i < 10; ++i) {
+            emitter.Emit("coalesced" + i);
+        }
+        waitForSignals(2);
+        emitter.setCoalescing(0);
+        emitter.Emit("marker1");
+        assertEquals(Arrays.asList("coalesced0", "coalesced9", "marker1"), waitForSignal("marker1"));
+
+        /* Flushing sends the latest held-back emit at once */
+        emitter.setCoalescing(60000);
+        emitter.Emit("held1");
+        emitter.Emit("held2");
+        emitter.Emit("held3");
+        emitter.flush();
+        emitter.setCoalescing(0);
+        emitter.Emit("marker2");
+        assertEquals(Arrays.asList("held1", "held3", "marker2"), waitForSignal("marker2"));
+
+        /* Each key is coalesced separately */
+        emitter.setCoalescing(60000, 0);
+        emitter.Emit("a");
+        emitter.Emit("b");
+        emitter.Emit("a");
+        emitter.setCoalescing(0);
+        emitter.Emit("marker3");
+        assertEquals(Arrays.asList("a", "b", "a", "marker3"), waitForSignal("marker3"));
+
+        try {
+            emitter.setCoalescing(500, 1);
+            fail("setCoalescing accepted a key argument the signal does not have");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    public void testAsynchronous() throws Exception {
+        emitter.setAsynchronous(100, SignalEmitter.Overflow.Block);
+
+        /* Queued signals are sent in order, including across a change of queue */
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 5; ++i) {
+            emitter.Emit("async" + i);
+            expected.add("async" + i);
+        }
+        emitter.setAsynchronous(100, SignalEmitter.Overflow.Fail);
+        emitter.Emit("async5");
+        expected.add("async5");
+        assertEquals(expected, waitForSignal("async5"));
+        assertEquals(0, emitter.getQueueDepth());
+        assertEquals(0, emitter.getDroppedSignals());
+
+        /* Every signal is either sent or counted as dropped */
+        emitter.setAsynchronous(1, SignalEmitter.Overflow.DropNewest);
+        for (int i = 0; i < 50; ++i) {
+            emitter.Emit("dropped" + i);
+        }
+        long dropped = emitter.getDroppedSignals();
+        emitter.setAsynchronous(0, null);
+        assertEquals(0, emitter.getQueueDepth());
+        emitter.Emit("marker");
+        assertEquals(50 - dropped + 1, waitForSignal("marker").size());
+    }
+
+    public void testAsynchronousFailure() throws Exception {
+        OverloadedEmitter overloaded = registerOverloadedEmitter();
+        try {
+            overloaded.setAsynchronous(10, SignalEmitter.Overflow.Block);
+
+            /* A signal that cannot be marshalled does not stop the signals queued after it */
+            Map<String, String> broken = new AbstractMap<String, String>() {
+                public Set<Map.Entry<String, String>> entrySet() {
+                    throw new ConcurrentModificationException();
+                }
+            };
+            overloaded.Emit(broken);
+            overloaded.Emit("after");
+            assertEquals(Arrays.asList("s after"), waitForSignal("s after"));
+            overloaded.setAsynchronous(0, null);
+        } finally {
+            unregisterOverloadedEmitter(overloaded);
+        }
+    }
+
+    public void testFanOut() throws Exception {
+        signalsHandled = 0;
+        Status[] status = emitter.emitFanOut(new String[] { null, bus.getUniqueName(), ":no.such-1" },
+                                             new int[] { BusAttachment.SESSION_ID_ANY,
+                                                         BusAttachment.SESSION_ID_ANY,
+                                                         BusAttachment.SESSION_ID_ANY },
+                                             "fanOut");
+        assertEquals(3, status.length);
+        assertEquals(Status.OK, status[0]);
+        assertEquals(Status.OK, status[1]);
+        assertTrue(status[2] != Status.OK);
+        waitForSignals(2);
+        synchronized (this) {
+            assertEquals(2, signalsHandled);
+            assertEquals("fanOut", lastSignal);
+        }
+
+        /* A signal that cannot be sent to any target fails */
+        try {
+            emitter.emitFanOut(new String[] { ":no.such-1", ":no.such-2" },
+                               new int[] { BusAttachment.SESSION_ID_ANY, BusAttachment.SESSION_ID_ANY },
+                               "fanOutFailed");
+            fail("fan-out to unreachable targets did not throw");
+        } catch (BusException ex) {
+        }
+    }
+
     public void testCancelSessionless() throws Exception {
         emitter.setCompressHeader(false);
         emitter.setSessionlessFlag(true);
@@ -19,6 +19,7 @@ package org.alljoyn.bus;
 import org.alljoyn.bus.BusException;
 import org.alljoyn.bus.annotation.BusInterface;
 import org.alljoyn.bus.annotation.BusMethod;
+import org.alljoyn.bus.annotation.Idempotent;
 
 /** 
  * SimpleInterface is an example of an interface that is published
@@ -35,6 +36,7 @@ public interface SimpleInterface {
      * @return  The echoed string.
      */
     @BusMethod(signature="s", replySignature="s")
+    @Idempotent
     public String Ping(String inStr) throws BusException;
 }
 